@@ -0,0 +1,50 @@
+package com.gmo.discord.codenames.bot.entities;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gmo.discord.codenames.bot.store.RandomWordsFromFileMapSupplier;
+
+/**
+ * Cost of dealing a new game: drawing 25 words from the bundled word list with
+ * {@link RandomWordsFromFileMapSupplier#get()}, and laying them out with {@link GameBoard#newBoard}. Run with
+ * {@code -prof gc} to see the allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBoardBenchmark {
+    private RandomWordsFromFileMapSupplier wordSupplier;
+    private Collection<String> words;
+
+    @Setup
+    public void setUp() throws IOException {
+        wordSupplier = new RandomWordsFromFileMapSupplier("words.txt");
+        words = wordSupplier.get();
+    }
+
+    @Benchmark
+    public Collection<String> drawWords() {
+        return wordSupplier.get();
+    }
+
+    @Benchmark
+    public GameBoard newBoard() {
+        return GameBoard.newBoard(words, TeamType.RED);
+    }
+}
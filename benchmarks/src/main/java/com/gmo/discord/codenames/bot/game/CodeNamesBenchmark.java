@@ -0,0 +1,85 @@
+package com.gmo.discord.codenames.bot.game;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gmo.discord.codenames.bot.entities.Card;
+import com.gmo.discord.codenames.bot.entities.Player;
+import com.gmo.discord.codenames.bot.entities.TeamType;
+import com.gmo.discord.codenames.bot.exception.GamePlayException;
+import sx.blah.discord.handle.obj.IUser;
+
+/**
+ * Cost of a correct guess with {@link CodeNames#revealCard}. Revealing changes the game, so every invocation gets a
+ * fresh game with an active clue; the setup isn't measured, but at this scale JMH's per-invocation bookkeeping is
+ * visible, so compare results against each other rather than reading them as absolute. Run with {@code -prof gc} to
+ * see the allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeNamesBenchmark {
+    private final Player redClueGiver = player("red clue giver");
+    private final Player redGuesser = player("red guesser");
+    private final Player blueClueGiver = player("blue clue giver");
+    private final Player blueGuesser = player("blue guesser");
+
+    private CodeNames game;
+    private String word;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws GamePlayException {
+        game = new CodeNamesBuilder()
+                .addPlayer(redClueGiver, TeamType.RED)
+                .addPlayer(redGuesser, TeamType.RED)
+                .addPlayer(blueClueGiver, TeamType.BLUE)
+                .addPlayer(blueGuesser, TeamType.BLUE)
+                .withFirstTeam(TeamType.RED)
+                .build();
+        game.giveClue(redClueGiver, "benchmark", 2);
+        for (final Card[] row : game.map()) {
+            for (final Card card : row) {
+                if (card.getTrueOwner() == TeamType.RED) {
+                    word = card.getWord();
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int revealCard() throws GamePlayException {
+        return game.revealCard(redGuesser, word);
+    }
+
+    private static Player player(final String name) {
+        final IUser user = (IUser) Proxy.newProxyInstance(IUser.class.getClassLoader(), new Class<?>[] {IUser.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return name;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return new Player(user, name);
+    }
+}
@@ -0,0 +1,51 @@
+package com.gmo.discord.codenames.bot.output;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gmo.discord.codenames.bot.entities.Card;
+import com.gmo.discord.codenames.bot.entities.GameBoard;
+import com.gmo.discord.codenames.bot.entities.TeamType;
+import com.gmo.discord.codenames.bot.store.RandomWordsFromFileMapSupplier;
+
+/**
+ * Cost of drawing a board and encoding it as PNG with {@link CodeNamesToPng#getPngBytes}, for the players' view and
+ * the clue givers' view. Run with {@code -prof gc} to see the allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CodeNamesToPngBenchmark {
+    @Param({"false", "true"})
+    private boolean showAll;
+
+    private Card[][] map;
+
+    @Setup
+    public void setUp() throws IOException {
+        final GameBoard board = GameBoard.newBoard(new RandomWordsFromFileMapSupplier("words.txt").get(), TeamType.RED);
+        board.getGameMap()[0][1].reveal();
+        board.getGameMap()[3][2].reveal();
+        map = board.getGameMap();
+    }
+
+    @Benchmark
+    public byte[] getPngBytes() {
+        return CodeNamesToPng.INSTANCE.getPngBytes(map, showAll);
+    }
+}
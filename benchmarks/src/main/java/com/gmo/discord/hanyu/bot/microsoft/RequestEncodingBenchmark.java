@@ -0,0 +1,72 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.StringEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+
+/**
+ * Compares building a translate request the way the client used to, serializing to a {@link String}, copying it
+ * into a {@link StringEntity}, parsing the URI with {@link URIBuilder} and drawing the trace id from
+ * {@link UUID#randomUUID()}, with {@link MicrosoftApiRequests#translate}. Runs on several threads so contention on
+ * the shared random source shows; run with {@code -prof gc} to see the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class RequestEncodingBenchmark {
+    private static final String API_HOST = "https://api.cognitive.microsofttranslator.com";
+
+    private MicrosoftApiRequests requests;
+    private TranslationRequest request;
+
+    @Setup
+    public void setUp() {
+        requests = new MicrosoftApiRequests(API_HOST, () -> "key");
+        request = TranslationRequest.newBuilder()
+                .addText("Could you tell me how to get to the train station from here?")
+                .addDestinationLanguage("zh-Hans")
+                .addDestinationLanguage("en")
+                .build();
+    }
+
+    @Benchmark
+    public HttpPost legacy() throws IOException, URISyntaxException {
+        final URIBuilder uriBuilder = new URIBuilder(API_HOST + "/translate?api-version=3.0");
+        request.getDestinationLanguages().forEach(lang -> uriBuilder.addParameter("to", lang));
+        final HttpPost postRequest = new HttpPost(uriBuilder.build());
+        postRequest.setHeader("Content-Type", "application/json");
+        postRequest.setHeader("Ocp-Apim-Subscription-Key", "key");
+        postRequest.setHeader("X-ClientTraceId", UUID.randomUUID().toString());
+        postRequest.setEntity(new StringEntity(MicrosoftApiRequests.OBJECT_MAPPER.writeValueAsString(request.getText()),
+                StandardCharsets.UTF_8));
+        return postRequest;
+    }
+
+    @Benchmark
+    public HttpPost encoded() throws IOException {
+        return requests.translate(request);
+    }
+}
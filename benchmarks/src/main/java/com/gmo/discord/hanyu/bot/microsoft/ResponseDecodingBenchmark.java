@@ -0,0 +1,87 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+
+/**
+ * Compares decoding a Microsoft response by buffering the body into a {@link String} first, as the client used to,
+ * with parsing straight from the entity stream via {@link MicrosoftApiRequests#readResponse}. Run with {@code -prof gc}
+ * to see the allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecodingBenchmark {
+    @Param({"translate", "lookup", "examples"})
+    private String fixture;
+
+    private byte[] body;
+    private ObjectReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (final InputStream in = ResponseDecodingBenchmark.class.getResourceAsStream("/fixtures/" + fixture + ".json")) {
+            body = ByteStreams.toByteArray(in);
+        }
+        switch (fixture) {
+            case "translate":
+                reader = MicrosoftApiRequests.TRANSLATION_RESPONSE_READER;
+                break;
+            case "lookup":
+                reader = MicrosoftApiRequests.DICTIONARY_LOOKUP_RESPONSE_READER;
+                break;
+            case "examples":
+                reader = MicrosoftApiRequests.DICTIONARY_EXAMPLE_RESPONSE_READER;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown fixture " + fixture);
+        }
+    }
+
+    @Benchmark
+    public Object buffered() throws IOException {
+        final HttpResponse response = response();
+        try (final Reader streamReader = new InputStreamReader(response.getEntity().getContent())) {
+            final String responseJson = CharStreams.toString(streamReader);
+            return reader.readValue(responseJson);
+        }
+    }
+
+    @Benchmark
+    public Object streaming() throws IOException {
+        return MicrosoftApiRequests.readResponse(response(), reader);
+    }
+
+    private HttpResponse response() {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+}
@@ -0,0 +1,125 @@
+package com.gmo.discord.support.command;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gmo.discord.support.message.DiscordMessage;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Compares the regex split, linear command scan and per-command flag stripping the bots used to do on every message
+ * with {@link CommandParser} and {@link CommandRouter}. The commands carry the hanyu bot's aliases. Run with
+ * {@code -prof gc} to see the allocation per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandRoutingBenchmark {
+    private static final String PREFIX = "!";
+    private static final String NO_PINYIN = "no-pinyin";
+    private static final Set<String> NO_PINYIN_ALIASES = ImmutableSet.of("peenless", "pl", "no-pinyin", "np");
+
+    @Param({"!ex   pl 我们明天去公园吧", "!t how are you doing today", "just chatting, not a command"})
+    private String content;
+
+    private List<ICommand> commands;
+    private CommandParser parser;
+    private CommandRouter router;
+
+    @Setup
+    public void setUp() {
+        commands = ImmutableList.of(new StubCommand(ImmutableSet.of("translate", "t", "tranny")),
+                new StubCommand(ImmutableSet.of("lookup", "l")),
+                new StubCommand(ImmutableSet.of("example", "examples", "e", "ex")));
+        parser = CommandParser.newBuilder()
+                .withPrefix(PREFIX)
+                .withFlag(NO_PINYIN, NO_PINYIN_ALIASES)
+                .build();
+        router = CommandRouter.of(commands);
+    }
+
+    @Benchmark
+    public Object legacy() {
+        if (!content.startsWith(PREFIX)) {
+            return null;
+        }
+        final String normalized = PREFIX + content.substring(1).trim().replaceAll("\\s+", " ");
+        final String[] split = normalized.split(" ");
+        final String command = split[0].replaceFirst(PREFIX, "");
+        final String[] args = split.length >= 2 ? Arrays.copyOfRange(split, 1, split.length) : new String[0];
+        final CommandInfo commandInfo = CommandInfo.newBuilder()
+                .withArgs(args)
+                .withCommand(command)
+                .build();
+        return commands.stream().filter(t -> t.canHandle(commandInfo)).findFirst().map(cmd -> {
+            // What each command then did with its arguments
+            final boolean peenless = Arrays.stream(commandInfo.getArgs()).anyMatch(NO_PINYIN_ALIASES::contains);
+            final String text = Joiner.on(" ").join(commandInfo.getArgs())
+                    .replaceAll(String.join(" |", NO_PINYIN_ALIASES), "");
+            return peenless ? text : text + cmd;
+        }).orElse(null);
+    }
+
+    @Benchmark
+    public Object parser() {
+        final ParsedCommand parsed = parser.parse(content);
+        if (parsed == null) {
+            return null;
+        }
+        final CommandInfo commandInfo = CommandInfo.newBuilder()
+                .withParsedCommand(parsed)
+                .build();
+        return router.route(commandInfo).map(cmd -> {
+            final String text = Joiner.on(" ").join(commandInfo.getArgs());
+            return commandInfo.hasFlag(NO_PINYIN) ? text : text + cmd;
+        }).orElse(null);
+    }
+
+    private static final class StubCommand implements ICommand {
+        private final Set<String> aliases;
+
+        private StubCommand(final Set<String> aliases) {
+            this.aliases = aliases;
+        }
+
+        @Override
+        public Set<String> getAliases() {
+            return aliases;
+        }
+
+        @Override
+        public boolean canHandle(final CommandInfo commandInfo) {
+            return aliases.contains(commandInfo.getCommand());
+        }
+
+        @Override
+        public Iterable<DiscordMessage> execute(final CommandInfo commandInfo) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public DiscordMessage help() {
+            return null;
+        }
+    }
+}
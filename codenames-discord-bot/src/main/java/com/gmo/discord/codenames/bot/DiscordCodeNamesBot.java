@@ -3,6 +3,8 @@ package com.gmo.discord.codenames.bot;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.time.Clock;
 import java.util.Arrays;
 import java.util.List;
@@ -20,11 +22,21 @@ import com.gmo.discord.codenames.bot.command.NewGameCommand;
 import com.gmo.discord.codenames.bot.command.NextGameCommand;
 import com.gmo.discord.codenames.bot.command.PassCommand;
 import com.gmo.discord.codenames.bot.command.StartGameCommand;
+import com.gmo.discord.codenames.bot.output.CodeNamesToPng;
 import com.gmo.discord.codenames.bot.store.CodeNamesStore;
 import com.gmo.discord.codenames.bot.store.InMemoryCodeNamesStore;
 import com.gmo.discord.support.command.CommandInfo;
+import com.gmo.discord.support.command.CommandMetrics;
+import com.gmo.discord.support.command.CommandParser;
+import com.gmo.discord.support.command.CommandRouter;
 import com.gmo.discord.support.command.ICommand;
+import com.gmo.discord.support.command.ParsedCommand;
 import com.gmo.discord.support.message.DiscordMessage;
+import com.gmo.discord.support.metrics.MetricsRegistry;
+import com.gmo.discord.support.metrics.MetricsServer;
+import com.gmo.discord.support.metrics.StartupMetrics;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import sx.blah.discord.api.ClientBuilder;
 import sx.blah.discord.api.IDiscordClient;
@@ -41,27 +53,59 @@ import sx.blah.discord.util.RateLimitException;
 
 public class DiscordCodeNamesBot {
     private static final Logger LOGGER = LoggerFactory.getLogger(DiscordCodeNamesBot.class);
+    private static final String DEFAULT_WARMUP_ITERATIONS = "20";
+    private static final String WARMUP_ONLY_ARG = "--warmup-only";
 
     private static IDiscordClient client;
 
-    public static void main(String[] args) throws DiscordException, RateLimitException {
+    public static void main(String[] args) throws DiscordException, RateLimitException, IOException {
+        // --warmup-only runs the warm-up and exits, as the training run for the AppCDS class list
+        final boolean warmupOnly = Arrays.asList(args).contains(WARMUP_ONLY_ARG);
         final String token = System.getenv("CODENAMES_BOT_TOKEN");
-        if (token == null || token.isEmpty()) {
+        if (!warmupOnly && (token == null || token.isEmpty())) {
             throw new IllegalStateException("Could not get bot token");
         }
 
         final CodeNamesStore codeNamesStore = new InMemoryCodeNamesStore();
 
+        // CODENAMES_WARMUP_ITERATIONS is how many boards the warm-up deals and draws, 0 disables it
+        final int warmupIterations = Integer.parseInt(MoreObjects.firstNonNull(
+                Strings.emptyToNull(System.getenv("CODENAMES_WARMUP_ITERATIONS")), DEFAULT_WARMUP_ITERATIONS));
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final StartupMetrics startupMetrics = new StartupMetrics(metrics);
+        metrics.register("codenames_render_seconds", "Time to draw a board as a PNG",
+                CodeNamesToPng.INSTANCE.getRenderTime());
+        // CODENAMES_METRICS_PORT serves Prometheus metrics at /metrics, on CODENAMES_METRICS_HOST or else loopback only
+        final String metricsPort = System.getenv("CODENAMES_METRICS_PORT");
+        if (metricsPort != null && !metricsPort.isEmpty()) {
+            final String metricsHost = System.getenv("CODENAMES_METRICS_HOST");
+            final MetricsServer server = MetricsServer.start(metrics, metricsHost == null || metricsHost.isEmpty()
+                    ? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(metricsPort))
+                    : new InetSocketAddress(metricsHost, Integer.parseInt(metricsPort)));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        }
+
+        final DiscordCodeNamesBot bot = new DiscordCodeNamesBot(codeNamesStore, metrics, startupMetrics);
+        startupMetrics.warmUp(() -> Warmup.run(bot.commandParser, bot.commandRouter, warmupIterations));
+        if (warmupOnly) {
+            System.exit(0);
+        }
+
         System.out.println("Logging bot in...");
         client = new ClientBuilder().withToken(token).build();
-        client.getDispatcher().registerListener(new DiscordCodeNamesBot(codeNamesStore));
+        client.getDispatcher().registerListener(bot);
         client.login();
     }
 
-    private final List<ICommand> commandList;
+    private final CommandParser commandParser;
+    private final CommandRouter commandRouter;
+    private final CommandMetrics commandMetrics;
+    private final StartupMetrics startupMetrics;
 
-    public DiscordCodeNamesBot(final CodeNamesStore gameStore) {
-        this.commandList = ImmutableList.of(
+    public DiscordCodeNamesBot(final CodeNamesStore gameStore, final MetricsRegistry metrics,
+                               final StartupMetrics startupMetrics) {
+        final List<ICommand> commandList = ImmutableList.of(
                 new AbandonCommand(gameStore),
                 new ClueCommand(gameStore),
                 new CurrentStateCommand(gameStore),
@@ -72,15 +116,21 @@ public class DiscordCodeNamesBot {
                 new NextGameCommand(gameStore),
                 new PassCommand(gameStore),
                 new StartGameCommand(gameStore));
+        this.commandParser = CommandParser.newBuilder().build();
+        this.commandRouter = CommandRouter.of(commandList);
+        this.commandMetrics = new CommandMetrics(metrics, commandList);
+        this.startupMetrics = startupMetrics;
     }
 
     @EventSubscriber
     public void onReady(final ReadyEvent event) {
+        startupMetrics.onReady();
         System.out.println("Bot is now ready!");
     }
 
     @EventSubscriber
     public void onMessage(final MessageReceivedEvent event) throws RateLimitException, DiscordException, MissingPermissionsException {
+        final long received = System.nanoTime();
         final IMessage message = event.getMessage();
         final IUser user = message.getAuthor();
         final IChannel channel = message.getChannel();
@@ -89,26 +139,39 @@ public class DiscordCodeNamesBot {
             return;
         }
 
+        commandMetrics.getMessages().increment();
         try {
-            final String content = message.getContent().trim().replaceAll("\\s+", " ");
-            final String[] split = content.split(" ");
-            final String command = split[0];
-            final String[] args = split.length >= 2 ? Arrays.copyOfRange(split, 1, split.length) : new String[0];
+            final long parseStart = System.nanoTime();
+            final ParsedCommand parsed = commandParser.parse(message.getContent());
+            commandMetrics.getParseTime().recordNanos(System.nanoTime() - parseStart);
+            if (parsed == null) {
+                return;
+            }
             final CommandInfo commandInfo = CommandInfo.newBuilder()
                     .withChannel(channel)
                     .withGuild(guild)
                     .withMessage(message)
-                    .withArgs(args)
-                    .withCommand(command)
+                    .withParsedCommand(parsed)
                     .withUser(message.getAuthor())
                     .build();
 
-            commandList.stream().filter(t -> t.canHandle(commandInfo)).findFirst().ifPresent(cmd -> {
+            commandRouter.route(commandInfo).ifPresent(cmd -> {
                 try {
-                    for (final DiscordMessage response : cmd.execute(commandInfo)) {
+                    final long executeStart = System.nanoTime();
+                    final Iterable<DiscordMessage> responses;
+                    try {
+                        responses = cmd.execute(commandInfo);
+                    } finally {
+                        commandMetrics.getExecuteTime(cmd).recordNanos(System.nanoTime() - executeStart);
+                    }
+                    for (final DiscordMessage response : responses) {
+                        final long sendStart = System.nanoTime();
                         sendMessage(response, response.getDirectRecipient().<IChannel>map(IUser::getOrCreatePMChannel).orElse(channel));
+                        commandMetrics.getSendTime().recordNanos(System.nanoTime() - sendStart);
                     }
+                    startupMetrics.onCommand(System.nanoTime() - received);
                 } catch (final Exception e) {
+                    commandMetrics.getFailures(cmd).increment();
                     LOGGER.error("Something bad happened executing the command " + commandInfo.toString(), e);
                 }
             });
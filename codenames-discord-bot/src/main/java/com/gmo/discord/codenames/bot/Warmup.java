@@ -0,0 +1,61 @@
+package com.gmo.discord.codenames.bot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import com.gmo.discord.codenames.bot.entities.Card;
+import com.gmo.discord.codenames.bot.entities.GameBoard;
+import com.gmo.discord.codenames.bot.entities.TeamType;
+import com.gmo.discord.codenames.bot.output.CodeNamesToPng;
+import com.gmo.discord.codenames.bot.store.RandomWordsFromFileMapSupplier;
+import com.gmo.discord.support.command.CommandInfo;
+import com.gmo.discord.support.command.CommandParser;
+import com.gmo.discord.support.command.CommandRouter;
+import com.gmo.discord.support.command.ParsedCommand;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs the bot's hot paths on synthetic data before it logs in, so the first board after a deploy isn't slowed by
+ * loading AWT, fonts and the PNG encoder: parsing and routing typical messages, dealing boards, and drawing them for
+ * both players and clue givers. Commands are only routed, not executed, since they need a real channel and users.
+ */
+final class Warmup {
+    private static final List<String> MESSAGES = ImmutableList.of(
+            "!new",
+            "!join",
+            "!start",
+            "!clue animal 2",
+            "guess horse",
+            "!pass",
+            "good luck everyone");
+
+    private Warmup() {
+    }
+
+    static void run(final CommandParser parser, final CommandRouter router, final int iterations) {
+        final RandomWordsFromFileMapSupplier words;
+        try {
+            words = new RandomWordsFromFileMapSupplier("words.txt");
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            for (final String message : MESSAGES) {
+                final ParsedCommand parsed = parser.parse(message);
+                if (parsed != null) {
+                    router.route(CommandInfo.newBuilder().withParsedCommand(parsed).build());
+                }
+            }
+
+            final GameBoard board = GameBoard.newBoard(words.get(), i % 2 == 0 ? TeamType.RED : TeamType.BLUE);
+            final Card[][] map = board.getGameMap();
+            map[i % map.length][0].reveal();
+            CodeNamesToPng.INSTANCE.getPngBytes(map, false);
+            CodeNamesToPng.INSTANCE.getPngBytes(map, true);
+        }
+        // Only real boards should count towards the render time metric
+        CodeNamesToPng.INSTANCE.getRenderTime().reset();
+    }
+}
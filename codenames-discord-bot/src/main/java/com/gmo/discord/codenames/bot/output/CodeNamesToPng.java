@@ -19,6 +19,7 @@ import com.gmo.discord.codenames.bot.entities.Card;
 import com.gmo.discord.codenames.bot.entities.GameBoard;
 import com.gmo.discord.codenames.bot.entities.TeamType;
 import com.gmo.discord.codenames.bot.store.RandomWordsFromFileMapSupplier;
+import com.gmo.discord.support.metrics.LatencyHistogram;
 
 public class CodeNamesToPng {
     public static final CodeNamesToPng INSTANCE = new CodeNamesToPng();
@@ -32,7 +33,10 @@ public class CodeNamesToPng {
     private static final int FONT_SIZE = 20;
     private static final int CHARACTER_WIDTH = 13;
 
+    private final LatencyHistogram renderTime = new LatencyHistogram();
+
     public byte[] getPngBytes(final Card[][] map, final boolean showAll) {
+        final long start = System.nanoTime();
         try {
             final BufferedImage bi = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
             final Graphics2D ig2 = bi.createGraphics();
@@ -44,9 +48,18 @@ public class CodeNamesToPng {
             }
         } catch (final IOException ie) {
             throw new UncheckedIOException(ie);
+        } finally {
+            renderTime.recordNanos(System.nanoTime() - start);
         }
     }
 
+    /**
+     * @return time spent drawing and encoding boards
+     */
+    public LatencyHistogram getRenderTime() {
+        return renderTime;
+    }
+
     private static class BoardPanel extends JPanel {
         private final Card[][] map;
         private final boolean showAll;
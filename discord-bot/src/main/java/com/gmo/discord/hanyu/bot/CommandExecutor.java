@@ -0,0 +1,114 @@
+package com.gmo.discord.hanyu.bot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gmo.discord.support.metrics.LatencyHistogram;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs commands on a fixed pool of worker threads instead of the Discord dispatcher thread. Commands for the same
+ * channel form a serial queue: each one starts only after the previous one, including its asynchronous reply, has
+ * completed, so replies appear in the order the commands were sent. Commands for different channels run in parallel.
+ * <p>
+ * The number of commands waiting across all channels is bounded; beyond that, new commands are refused. Commands
+ * should send their replies on {@link #getWorkers()} too, rather than on whichever thread completed their future.
+ */
+final class CommandExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandExecutor.class);
+
+    private final ExecutorService workers;
+    private final int maxQueued;
+    private final ConcurrentMap<Long, CompletableFuture<Void>> channelTails = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    CommandExecutor(final int parallelism, final int maxQueued) {
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+        Preconditions.checkArgument(maxQueued > 0, "Queue size must be positive");
+        this.workers = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                .setNameFormat("command-worker-%d")
+                .setDaemon(true)
+                .build());
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Queues a command behind any others for the same channel.
+     *
+     * @param command started on a worker thread; the channel's next command waits for the returned future
+     * @return false if too many commands are already waiting, in which case the command is not run
+     */
+    boolean submit(final long channelId, final Supplier<CompletableFuture<?>> command) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejectedCount.increment();
+            return false;
+        }
+
+        final long submitted = System.nanoTime();
+        final CompletableFuture<Void> next = channelTails.compute(channelId, (id, tail) ->
+                (tail == null ? CompletableFuture.<Void>completedFuture(null) : tail)
+                        .thenComposeAsync(ignored -> {
+                            queued.decrementAndGet();
+                            waitTime.recordNanos(System.nanoTime() - submitted);
+                            return run(command);
+                        }, workers));
+        next.whenComplete((ignored, error) -> channelTails.remove(channelId, next));
+        return true;
+    }
+
+    /**
+     * @return the worker pool, for the blocking parts of a command such as sending its reply to Discord
+     */
+    Executor getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return the number of commands waiting to start, across all channels
+     */
+    int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return time between a command being submitted and starting
+     */
+    LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Never completes exceptionally, so one failed command doesn't stop the rest of its channel's queue.
+     */
+    private static CompletableFuture<Void> run(final Supplier<CompletableFuture<?>> command) {
+        try {
+            return command.get().handle((result, error) -> {
+                if (error != null) {
+                    LOGGER.error("Command failed", error);
+                }
+                return null;
+            });
+        } catch (final RuntimeException e) {
+            LOGGER.error("Command failed", e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
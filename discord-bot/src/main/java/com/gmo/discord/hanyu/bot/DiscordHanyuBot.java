@@ -1,28 +1,64 @@
 package com.gmo.discord.hanyu.bot;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.gmo.discord.hanyu.bot.api.RetryingTranslatorTextApi;
-import com.gmo.discord.hanyu.bot.api.TranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.AsyncRetryingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.BatchingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.CachingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.CircuitBreakingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.CoalescingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.HedgingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.InstrumentedTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.PersistentCachingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.RateLimitingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.ScriptLanguageDetector;
 import com.gmo.discord.support.command.CommandInfo;
+import com.gmo.discord.support.command.CommandMetrics;
+import com.gmo.discord.support.command.CommandParser;
+import com.gmo.discord.support.command.CommandRouter;
+import com.gmo.discord.hanyu.bot.command.CommandFlags;
 import com.gmo.discord.hanyu.bot.command.ExampleCommand;
 import com.gmo.discord.support.command.ICommand;
+import com.gmo.discord.support.command.ParsedCommand;
 import com.gmo.discord.hanyu.bot.command.LookupCommand;
+import com.gmo.discord.hanyu.bot.command.RecentMessages;
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+import com.gmo.discord.hanyu.bot.pinyin.PinyinEngine;
+import com.gmo.discord.hanyu.bot.pinyin.RemoteTransliterator;
+import com.gmo.discord.hanyu.bot.pinyin.Transliterator;
 import com.gmo.discord.hanyu.bot.command.TranslateCommand;
+import com.gmo.discord.hanyu.bot.command.TranslatorCost;
 import com.gmo.discord.support.message.DiscordMessage;
-import com.gmo.discord.hanyu.bot.microsoft.MicrosoftTranslatorTextApi;
+import com.gmo.discord.support.metrics.Counter;
+import com.gmo.discord.support.metrics.MetricsRegistry;
+import com.gmo.discord.support.metrics.MetricsServer;
+import com.gmo.discord.support.metrics.StartupMetrics;
+import com.gmo.discord.hanyu.bot.microsoft.AsyncMicrosoftTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.store.MappedSegmentStore;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import sx.blah.discord.api.ClientBuilder;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.events.EventSubscriber;
 import sx.blah.discord.handle.impl.events.ReadyEvent;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageDeleteEvent;
 import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
 import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IGuild;
@@ -40,22 +76,144 @@ import sx.blah.discord.util.RateLimitException;
 public class DiscordHanyuBot {
     private static final Logger LOGGER = LoggerFactory.getLogger(DiscordHanyuBot.class);
     private static final String DEFAULT_PREFIX = "!";
+    private static final String DEFAULT_CACHE_CHARS = "2000000";
+    private static final String DEFAULT_CHARS_PER_HOUR = "2000000";
+    private static final int MAX_COMMAND_CHARACTERS = 2000;
+    private static final String DEFAULT_HEDGE_RATIO = "0.05";
+    private static final String DEFAULT_WORKER_THREADS = "8";
+    private static final int MAX_QUEUED_COMMANDS = 1000;
+    private static final String DEFAULT_RECENT_MESSAGES = "20";
+    private static final int REPLACEABLE_WITHIN_MESSAGES = 5;
+    private static final long MAX_TRACKED_CHANNELS = 10_000;
+    private static final long NOTICE_INTERVAL_SECONDS = 30;
+    private static final String DEFAULT_WARMUP_ITERATIONS = "200";
+    private static final String WARMUP_ONLY_ARG = "--warmup-only";
     private static IDiscordClient client;
 
-    private final List<ICommand> commandList;
     private final String prefix;
+    private final CommandParser commandParser;
+    private final CommandRouter commandRouter;
+    private final GuildQuota guildQuota;
+    private final CommandExecutor commandExecutor;
+    private final ReplyTracker replyTracker;
+    private final Cache<Long, Boolean> recentNotices;
+    private final RecentMessages recentMessages;
+    private final CommandMetrics commandMetrics;
+    private final Counter quotaRejections;
+    private final Counter busyRejections;
+    private final StartupMetrics startupMetrics;
 
-    public static void main(String[] args) throws DiscordException, RateLimitException {
+    public static void main(String[] args) throws DiscordException, RateLimitException, IOException {
+        // --warmup-only runs the warm-up and exits, as the training run for the AppCDS class list
+        final boolean warmupOnly = Arrays.asList(args).contains(WARMUP_ONLY_ARG);
         final String token = System.getenv("HANYU_BOT_TOKEN");
-        if (token == null || token.isEmpty()) {
+        if (!warmupOnly && (token == null || token.isEmpty())) {
             throw new IllegalStateException("Could not get bot token");
         }
 
-        final TranslatorTextApi api = RetryingTranslatorTextApi.newBuilder()
-                .withDelegate(MicrosoftTranslatorTextApi.newBuilder()
-                        .withHttpClient(HttpClientBuilder.create().build())
-                        .build())
+        // HANYU_CHARS_PER_HOUR is the subscription's character quota; each guild may use a tenth of it
+        final long charactersPerHour = Long.parseLong(MoreObjects.firstNonNull(
+                Strings.emptyToNull(System.getenv("HANYU_CHARS_PER_HOUR")), DEFAULT_CHARS_PER_HOUR));
+
+        // HANYU_CACHE_CHARS is how many characters of requests and responses the in-memory cache may hold
+        final long cacheCharacters = Long.parseLong(MoreObjects.firstNonNull(
+                Strings.emptyToNull(System.getenv("HANYU_CACHE_CHARS")), DEFAULT_CACHE_CHARS));
+
+        // HANYU_HEDGE_RATIO is the largest fraction of translate and lookup calls that may be hedged, 0 disables it
+        final double hedgeRatio = Double.parseDouble(MoreObjects.firstNonNull(
+                Strings.emptyToNull(System.getenv("HANYU_HEDGE_RATIO")), DEFAULT_HEDGE_RATIO));
+
+        // HANYU_WORKER_THREADS is how many commands may run at once; commands in the same channel always run in order
+        final int workerThreads = Integer.parseInt(MoreObjects.firstNonNull(
+                Strings.emptyToNull(System.getenv("HANYU_WORKER_THREADS")), DEFAULT_WORKER_THREADS));
+
+        // HANYU_RECENT_MESSAGES is how many messages per channel an argumentless !translate looks back through
+        final int recentMessageDepth = Integer.parseInt(MoreObjects.firstNonNull(
+                Strings.emptyToNull(System.getenv("HANYU_RECENT_MESSAGES")), DEFAULT_RECENT_MESSAGES));
+
+        // HANYU_WARMUP_ITERATIONS is how many times the warm-up runs through its synthetic messages, 0 disables it
+        final int warmupIterations = Integer.parseInt(MoreObjects.firstNonNull(
+                Strings.emptyToNull(System.getenv("HANYU_WARMUP_ITERATIONS")), DEFAULT_WARMUP_ITERATIONS));
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final StartupMetrics startupMetrics = new StartupMetrics(metrics);
+        startMetricsServer(metrics);
+
+        final AsyncMicrosoftTranslatorTextApi microsoftApi = AsyncMicrosoftTranslatorTextApi.newBuilder().build();
+        Runtime.getRuntime().addShutdownHook(new Thread(microsoftApi::close));
+        final AsyncTranslatorTextApi instrumentedUpstream = InstrumentedTranslatorTextApi.newBuilder()
+                .withDelegate(microsoftApi)
+                .withRegistry(metrics)
+                .withLayer("upstream")
+                .build();
+        // The quota sits below retries and hedging, so every attempt and every duplicate sent is charged
+        final RateLimitingTranslatorTextApi rateLimitingApi = RateLimitingTranslatorTextApi.newBuilder()
+                .withDelegate(instrumentedUpstream)
+                .withCapacity(charactersPerHour / 40)
+                .withRefill(charactersPerHour, 1, TimeUnit.HOURS)
+                .build();
+        final HedgingTranslatorTextApi hedgingApi = hedgeRatio > 0
+                ? HedgingTranslatorTextApi.newBuilder()
+                        .withDelegate(rateLimitingApi)
+                        .withMaxHedgeRatio(hedgeRatio, 5)
+                        .build()
+                : null;
+        final AsyncRetryingTranslatorTextApi retryingApi = AsyncRetryingTranslatorTextApi.newBuilder()
+                .withDelegate(hedgingApi == null ? rateLimitingApi : hedgingApi)
+                .build();
+        final BatchingTranslatorTextApi batchingApi = BatchingTranslatorTextApi.newBuilder()
+                .withDelegate(retryingApi)
+                .build();
+        final CircuitBreakingTranslatorTextApi circuitBreakingApi = CircuitBreakingTranslatorTextApi.newBuilder()
+                .withDelegate(batchingApi)
+                .build();
+        final CoalescingTranslatorTextApi coalescingApi = CoalescingTranslatorTextApi.newBuilder()
+                .withAsyncDelegate(circuitBreakingApi)
+                .build();
+        AsyncTranslatorTextApi backend = coalescingApi;
+
+        final String cacheDirectory = System.getenv("HANYU_CACHE_DIR");
+        if (cacheDirectory != null && !cacheDirectory.isEmpty()) {
+            final PersistentCachingTranslatorTextApi persistentApi = PersistentCachingTranslatorTextApi.newBuilder()
+                    .withAsyncDelegate(backend)
+                    .withStore(MappedSegmentStore.newBuilder()
+                            .withDirectory(Paths.get(cacheDirectory))
+                            .build())
+                    .build();
+            Runtime.getRuntime().addShutdownHook(new Thread(persistentApi::close));
+            backend = persistentApi;
+        }
+
+        final CachingTranslatorTextApi cachingApi = CachingTranslatorTextApi.newBuilder()
+                .withAsyncDelegate(backend)
+                .withMaximumWeight(cacheCharacters)
+                .build();
+        final ScriptLanguageDetector languageDetector = ScriptLanguageDetector.newBuilder()
+                .withDelegate(cachingApi)
                 .build();
+        final AsyncTranslatorTextApi api = InstrumentedTranslatorTextApi.newBuilder()
+                .withDelegate(languageDetector)
+                .withRegistry(metrics)
+                .build();
+
+        registerApiMetrics(metrics, microsoftApi, languageDetector, cachingApi, coalescingApi, circuitBreakingApi,
+                batchingApi, retryingApi, hedgingApi, rateLimitingApi);
+
+        final String dictionaryFile = System.getenv("HANYU_CEDICT_FILE");
+        final CedictDictionary dictionary = dictionaryFile == null || dictionaryFile.isEmpty()
+                ? CedictDictionary.fromResource()
+                : CedictDictionary.fromFile(Paths.get(dictionaryFile));
+
+        // HANYU_PINYIN_MODE: "local" never calls the API, "remote" always does, by default the API is only used
+        // for characters the dictionary doesn't cover
+        final String pinyinMode = Strings.nullToEmpty(System.getenv("HANYU_PINYIN_MODE"));
+        final Transliterator remoteTransliterator = new RemoteTransliterator(api);
+        final Transliterator transliterator = pinyinMode.equalsIgnoreCase("remote")
+                ? remoteTransliterator
+                : PinyinEngine.newBuilder()
+                        .withDictionary(dictionary)
+                        .withFallback(pinyinMode.equalsIgnoreCase("local") ? null : remoteTransliterator)
+                        .build();
 
         String prefix = DEFAULT_PREFIX;
         for (int i = 0; i < args.length; i++) {
@@ -65,83 +223,297 @@ public class DiscordHanyuBot {
             }
         }
 
+        final String commandPrefix = prefix;
+        startupMetrics.warmUp(() -> Warmup.run(microsoftApi, dictionary, newCommandParser(commandPrefix), commandPrefix,
+                warmupIterations));
+        if (warmupOnly) {
+            System.exit(0);
+        }
+
         System.out.println("Logging bot in...");
         client = new ClientBuilder().withToken(token).build();
-        client.getDispatcher().registerListener(new DiscordHanyuBot(api, prefix));
+        client.getDispatcher().registerListener(new DiscordHanyuBot(api, dictionary, transliterator, prefix,
+                charactersPerHour / 10, workerThreads, recentMessageDepth, metrics, startupMetrics));
         client.login();
     }
 
-    public DiscordHanyuBot(final TranslatorTextApi translatorTextApi, final String prefix) {
-        this.commandList = ImmutableList.of(new TranslateCommand(translatorTextApi),
-                new LookupCommand(translatorTextApi),
-                new ExampleCommand(translatorTextApi));
+    private static void startMetricsServer(final MetricsRegistry metrics) throws IOException {
+        // HANYU_METRICS_PORT serves Prometheus metrics at /metrics, on HANYU_METRICS_HOST or else loopback only
+        final String port = System.getenv("HANYU_METRICS_PORT");
+        if (port == null || port.isEmpty()) {
+            return;
+        }
+        final String host = System.getenv("HANYU_METRICS_HOST");
+        final InetSocketAddress address = host == null || host.isEmpty()
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port))
+                : new InetSocketAddress(host, Integer.parseInt(port));
+        final MetricsServer server = MetricsServer.start(metrics, address);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    }
+
+    private static void registerApiMetrics(final MetricsRegistry metrics,
+                                           final AsyncMicrosoftTranslatorTextApi microsoftApi,
+                                           final ScriptLanguageDetector languageDetector,
+                                           final CachingTranslatorTextApi cachingApi,
+                                           final CoalescingTranslatorTextApi coalescingApi,
+                                           final CircuitBreakingTranslatorTextApi circuitBreakingApi,
+                                           final BatchingTranslatorTextApi batchingApi,
+                                           final AsyncRetryingTranslatorTextApi retryingApi,
+                                           final HedgingTranslatorTextApi hedgingApi,
+                                           final RateLimitingTranslatorTextApi rateLimitingApi) {
+        metrics.counter("translator_detections_total", "Language detections by where they were answered",
+                languageDetector::getLocalDetectionCount, "source", "local");
+        metrics.counter("translator_detections_total", "Language detections by where they were answered",
+                languageDetector::getRemoteDetectionCount, "source", "remote");
+        metrics.counter("translator_cache_hits_total", "Calls answered from the in-memory cache",
+                () -> cachingApi.getStats().hitCount());
+        metrics.counter("translator_cache_misses_total", "Calls not found in the in-memory cache",
+                () -> cachingApi.getStats().missCount());
+        metrics.gauge("translator_cache_characters", "Characters held by the in-memory cache",
+                cachingApi::getWeightedSize);
+        metrics.counter("translator_coalesced_total", "Calls served by another caller's identical call in flight",
+                coalescingApi::getCollapsedCount);
+        metrics.counter("translator_coalesced_characters_total", "Characters not sent thanks to coalescing",
+                coalescingApi::getCollapsedCharacters);
+        metrics.counter("translator_coalescer_upstream_total", "Calls passed on by the coalescer",
+                coalescingApi::getUpstreamCount);
+        metrics.gauge("translator_circuit_open", "1 if calls are being refused because the API is failing",
+                () -> circuitBreakingApi.getState() == CircuitBreakingTranslatorTextApi.State.CLOSED ? 0 : 1);
+        metrics.counter("translator_circuit_rejected_total", "Calls refused by the open circuit",
+                circuitBreakingApi::getRejectedCount);
+        metrics.counter("translator_circuit_stale_total", "Refused calls answered from a previous response",
+                circuitBreakingApi::getStaleCount);
+        metrics.counter("translator_circuit_opened_total", "Times the circuit has opened",
+                circuitBreakingApi::getOpenCount);
+        metrics.counter("translator_batches_total", "Upstream translate calls made for batched requests",
+                batchingApi::getBatchCount);
+        metrics.counter("translator_batched_requests_total", "Translate requests which went through a batch",
+                batchingApi::getBatchedRequestCount);
+        metrics.counter("translator_quota_delayed_total", "Calls held back for quota",
+                rateLimitingApi::getDelayedCount);
+        metrics.counter("translator_quota_rejected_total", "Calls rejected for quota",
+                rateLimitingApi::getRejectedCount);
+        metrics.counter("translator_retries_total", "Attempts scheduled after a failure",
+                retryingApi::getRetryCount);
+        metrics.counter("translator_retries_exhausted_total", "Calls which failed after running out of attempts",
+                retryingApi::getExhaustedCount);
+        metrics.counter("translator_non_retryable_total", "Calls which failed fast with an error not worth retrying",
+                retryingApi::getNonRetryableCount);
+        for (int attempt = 1; attempt <= retryingApi.getMaxAttempts(); attempt++) {
+            metrics.register("translator_attempt_seconds", "Translator API latency by attempt",
+                    retryingApi.getAttemptLatency(attempt), "attempt", Integer.toString(attempt));
+        }
+        if (hedgingApi != null) {
+            metrics.counter("translator_hedges_total", "Hedged calls sent", hedgingApi::getHedgeCount);
+            metrics.counter("translator_hedge_wins_total", "Hedged calls which answered first",
+                    hedgingApi::getHedgeWinCount);
+            metrics.counter("translator_hedges_suppressed_total", "Slow calls not hedged because the budget was spent",
+                    hedgingApi::getSuppressedCount);
+        }
+        metrics.gauge("translator_connections", "Connections in the translator client's pool by state",
+                () -> microsoftApi.getPoolStats().map(PoolStats::getLeased).orElse(0), "state", "leased");
+        metrics.gauge("translator_connections", "Connections in the translator client's pool by state",
+                () -> microsoftApi.getPoolStats().map(PoolStats::getAvailable).orElse(0), "state", "available");
+        metrics.gauge("translator_connection_requests_pending", "Calls waiting for a pooled connection",
+                () -> microsoftApi.getPoolStats().map(PoolStats::getPending).orElse(0));
+    }
+
+    public DiscordHanyuBot(final AsyncTranslatorTextApi translatorTextApi,
+                           final CedictDictionary dictionary,
+                           final Transliterator transliterator,
+                           final String prefix,
+                           final long guildCharactersPerHour,
+                           final int workerThreads,
+                           final int recentMessageDepth,
+                           final MetricsRegistry metrics,
+                           final StartupMetrics startupMetrics) {
         this.prefix = prefix;
+        this.recentMessages = RecentMessages.newBuilder()
+                .withDepth(recentMessageDepth)
+                .build();
+        this.commandExecutor = new CommandExecutor(workerThreads, MAX_QUEUED_COMMANDS);
+        final LookupCommand lookupCommand = new LookupCommand(translatorTextApi, dictionary, transliterator);
+        final ExampleCommand exampleCommand = new ExampleCommand(translatorTextApi, transliterator,
+                commandExecutor.getWorkers());
+        final List<ICommand> commandList = ImmutableList.of(
+                new TranslateCommand(translatorTextApi, transliterator, recentMessages),
+                lookupCommand,
+                exampleCommand);
+        this.commandParser = newCommandParser(prefix);
+        this.commandRouter = CommandRouter.of(commandList);
+        this.commandMetrics = new CommandMetrics(metrics, commandList);
+        this.startupMetrics = startupMetrics;
+        this.quotaRejections = metrics.counter("discord_commands_rejected_total", "Commands refused before running",
+                "reason", "quota");
+        this.busyRejections = metrics.counter("discord_commands_rejected_total", "Commands refused before running",
+                "reason", "busy");
+        this.replyTracker = new ReplyTracker(REPLACEABLE_WITHIN_MESSAGES, MAX_TRACKED_CHANNELS);
+        this.recentNotices = CacheBuilder.newBuilder()
+                .maximumSize(MAX_TRACKED_CHANNELS)
+                .expireAfterWrite(NOTICE_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .build();
+        this.guildQuota = new GuildQuota(Math.max(MAX_COMMAND_CHARACTERS, guildCharactersPerHour / 20),
+                guildCharactersPerHour, 1, TimeUnit.HOURS, Ticker.systemTicker());
+
+        metrics.gauge("discord_command_queue_depth", "Commands waiting for a worker", commandExecutor::getQueueDepth);
+        metrics.register("discord_command_wait_seconds", "Time commands wait for a worker",
+                commandExecutor.getWaitTime());
+        metrics.register("discord_example_seconds", "End to end latency of example commands that called the API",
+                exampleCommand.getLatency());
+        metrics.counter("discord_lookup_speculations_total", "Lookups sent before detection, by whether they were used",
+                lookupCommand::getSpeculativeHitCount, "result", "hit");
+        metrics.counter("discord_lookup_speculations_total", "Lookups sent before detection, by whether they were used",
+                lookupCommand::getSpeculativeMissCount, "result", "miss");
+        metrics.gauge("discord_recent_message_channels", "Channels with recent messages held for !translate",
+                recentMessages::getChannelCount);
+    }
+
+    private static CommandParser newCommandParser(final String prefix) {
+        return CommandParser.newBuilder()
+                .withPrefix(prefix)
+                .withFlag(CommandFlags.NO_PINYIN, CommandFlags.NO_PINYIN_ALIASES)
+                .build();
     }
 
     @EventSubscriber
     public void onReady(final ReadyEvent event) {
+        startupMetrics.onReady();
         System.out.println("Bot is now ready!");
     }
 
     @EventSubscriber
     public void onMessage(final MessageReceivedEvent event) throws RateLimitException, DiscordException, MissingPermissionsException {
+        final long received = System.nanoTime();
         final IMessage message = event.getMessage();
         final IUser user = message.getAuthor();
         final IChannel channel = message.getChannel();
         final IGuild guild = message.getGuild();
+        replyTracker.onMessage(channel.getLongID(), user.isBot());
+        final String content = message.getContent();
+        if (!content.trim().startsWith(prefix)) {
+            recentMessages.add(channel.getLongID(), content, user.isBot());
+        }
         if (user.isBot()) {
             return;
         }
 
+        commandMetrics.getMessages().increment();
         try {
-            final String content;
-            if (message.getContent().startsWith(prefix)) {
-                content = prefix + message.getContent().substring(1).trim().replaceAll("\\s+", " ");
-            } else {
+            final long parseStart = System.nanoTime();
+            final ParsedCommand parsed = commandParser.parse(content);
+            commandMetrics.getParseTime().recordNanos(System.nanoTime() - parseStart);
+            if (parsed == null) {
                 return;
             }
 
-            final String[] split = content.split(" ");
-            final String command = split[0].replaceFirst(prefix, "");
-            final String[] args = split.length >= 2 ? Arrays.copyOfRange(split, 1, split.length) : new String[0];
             final CommandInfo commandInfo = CommandInfo.newBuilder()
                     .withChannel(channel)
                     .withGuild(guild)
                     .withMessage(message)
-                    .withArgs(args)
-                    .withCommand(command)
+                    .withParsedCommand(parsed)
                     .withUser(message.getAuthor())
                     .build();
-            final AtomicInteger messagesAgo = new AtomicInteger();
-            commandList.stream().filter(t -> t.canHandle(commandInfo)).findFirst().ifPresent(cmd -> {
-                final IMessage previousMessage = channel.getMessageHistory().stream()
-                        .peek(t -> messagesAgo.incrementAndGet())
-                        .filter(t -> t.getAuthor().equals(client.getOurUser()))
-                        .findFirst()
-                        .orElse(null);
-                sendMessage(Iterables.getOnlyElement(cmd.execute(commandInfo)), messagesAgo.get() <= 5 ? previousMessage : null, channel);
+            commandRouter.route(commandInfo).ifPresent(cmd -> {
+                final long quotaKey = guild == null ? channel.getLongID() : guild.getLongID();
+                // Charged for what the command will send upstream, which can be several calls or a recent message
+                final int characters = cmd instanceof TranslatorCost
+                        ? ((TranslatorCost) cmd).estimateCharacters(commandInfo)
+                        : argumentLength(parsed);
+                final long retryAfterMillis = guildQuota.tryAcquire(quotaKey, characters);
+                if (retryAfterMillis > 0) {
+                    quotaRejections.increment();
+                    sendNotice(channel, String.format("This server has used up its translation quota, try again in %d s",
+                            Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis))));
+                    return;
+                }
+                final boolean accepted = commandExecutor.submit(channel.getLongID(), () -> {
+                    final long executeStart = System.nanoTime();
+                    return cmd.executeAsync(commandInfo)
+                            .whenComplete((result, e) -> {
+                                commandMetrics.getExecuteTime(cmd).recordNanos(System.nanoTime() - executeStart);
+                                if (e != null) {
+                                    commandMetrics.getFailures(cmd).increment();
+                                }
+                            })
+                            // The future may complete on an HTTP client or timer thread, which a blocking send would stall
+                            .thenAcceptAsync(result -> {
+                                sendMessage(Iterables.getOnlyElement(result), channel);
+                                startupMetrics.onCommand(System.nanoTime() - received);
+                            }, commandExecutor.getWorkers())
+                            .exceptionally(e -> {
+                                LOGGER.error("Exception processing message: " + message.getContent(), e);
+                                return null;
+                            });
+                });
+                if (!accepted) {
+                    busyRejections.increment();
+                    LOGGER.warn("Command queue full, dropping message: {}", message.getContent());
+                    sendNotice(channel, "I'm too busy right now, try again in a moment");
+                }
             });
         } catch (final Exception e) {
             LOGGER.error("Exception processing message: " + message.getContent(), e);
         }
     }
 
+    @EventSubscriber
+    public void onMessageDelete(final MessageDeleteEvent event) {
+        replyTracker.onDelete(event.getChannel().getLongID(), event.getMessageID());
+    }
+
+    private static int argumentLength(final ParsedCommand parsed) {
+        int length = 0;
+        for (final String arg : parsed.getArgs()) {
+            length += arg.length() + 1;
+        }
+        return length;
+    }
+
     private void sendMessage(final DiscordMessage resultMessage,
-                             final IMessage previousMessage,
                              final IChannel channel) {
+        final IMessage previousMessage = resultMessage.isReplacePrevious()
+                ? replyTracker.getReplaceable(channel.getLongID())
+                : null;
         resultMessage.getEmbedObject().ifPresent(embedObject -> {
-            if (resultMessage.isReplacePrevious() && previousMessage != null) {
-                previousMessage.edit(embedObject);
+            if (previousMessage != null) {
+                timeSend(() -> previousMessage.edit(embedObject));
             } else {
-                channel.sendMessage(embedObject);
+                replyTracker.onReply(channel.getLongID(), timeSend(() -> channel.sendMessage(embedObject)));
             }
         });
         resultMessage.getText().ifPresent(text -> {
-            if (resultMessage.isReplacePrevious() && previousMessage != null) {
-                previousMessage.edit(text);
+            if (previousMessage != null) {
+                timeSend(() -> previousMessage.edit(text));
             } else {
-                channel.sendMessage(text);
+                replyTracker.onReply(channel.getLongID(), timeSend(() -> channel.sendMessage(text)));
+            }
+        });
+    }
+
+    /**
+     * Tells the channel why a command was refused, at most once per interval, so someone repeating the command isn't
+     * answered every time. The notice is sent from a worker rather than the dispatcher thread, and is not a reply a
+     * later command may replace.
+     */
+    private void sendNotice(final IChannel channel, final String text) {
+        if (recentNotices.asMap().putIfAbsent(channel.getLongID(), Boolean.TRUE) != null) {
+            return;
+        }
+        commandExecutor.getWorkers().execute(() -> {
+            try {
+                timeSend(() -> channel.sendMessage(text));
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Failed to send notice to channel {}", channel.getLongID(), e);
             }
         });
     }
+
+    private IMessage timeSend(final Supplier<IMessage> send) {
+        final long start = System.nanoTime();
+        try {
+            return send.get();
+        } finally {
+            commandMetrics.getSendTime().recordNanos(System.nanoTime() - start);
+        }
+    }
 }
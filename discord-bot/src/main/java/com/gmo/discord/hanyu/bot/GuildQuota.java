@@ -0,0 +1,49 @@
+package com.gmo.discord.hanyu.bot;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.gmo.discord.hanyu.bot.api.TokenBucket;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+/**
+ * Per-guild character budget, so one busy guild can't spend the whole translator quota. Each guild gets its own
+ * {@link TokenBucket}; buckets that have refilled completely are dropped once many guilds are being tracked, since a
+ * new bucket is equivalent.
+ */
+final class GuildQuota {
+    private static final int MAX_TRACKED = 1024;
+
+    private final long capacity;
+    private final long refillCharacters;
+    private final long refillPeriodNanos;
+    private final Ticker ticker;
+    private final ConcurrentMap<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    GuildQuota(final long capacity, final long refillCharacters, final long refillPeriod, final TimeUnit unit,
+            final Ticker ticker) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+        this.capacity = capacity;
+        this.refillCharacters = refillCharacters;
+        this.refillPeriodNanos = unit.toNanos(refillPeriod);
+        this.ticker = ticker;
+    }
+
+    /**
+     * @return 0 if the characters were taken from the guild's budget, otherwise the milliseconds until they would be
+     * available
+     */
+    long tryAcquire(final long guildId, final int characters) {
+        if (buckets.size() > MAX_TRACKED) {
+            buckets.values().removeIf(TokenBucket::isFull);
+        }
+        final TokenBucket bucket = buckets.computeIfAbsent(guildId, id ->
+                new TokenBucket(capacity, refillCharacters, refillPeriodNanos, TimeUnit.NANOSECONDS, ticker));
+        if (bucket.tryAcquire(characters)) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilAvailable(characters)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.gmo.discord.hanyu.bot;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import sx.blah.discord.handle.obj.IMessage;
+
+/**
+ * Remembers the bot's latest reply in each channel and how many messages have arrived since, so a command can replace
+ * its previous reply without paging through the channel history. A reply stops being replaceable once {@code window}
+ * messages have arrived after it, and is then forgotten; at most {@code maxChannels} channels are tracked.
+ */
+final class ReplyTracker {
+    private final int window;
+    private final ConcurrentMap<Long, Reply> replies;
+
+    ReplyTracker(final int window, final long maxChannels) {
+        Preconditions.checkArgument(window > 0, "Window must be positive");
+        this.window = window;
+        this.replies = CacheBuilder.newBuilder()
+                .maximumSize(maxChannels)
+                .<Long, Reply>build()
+                .asMap();
+    }
+
+    /**
+     * Counts a message that arrived in the channel. Messages from bots are ignored, including the echo of the bot's own
+     * reply, which may arrive after {@link #onReply}.
+     */
+    void onMessage(final long channelId, final boolean fromBot) {
+        if (fromBot) {
+            return;
+        }
+        final Reply reply = replies.get(channelId);
+        if (reply != null && reply.messagesSince.incrementAndGet() >= window) {
+            replies.remove(channelId, reply);
+        }
+    }
+
+    /**
+     * Records a message the bot has just sent to the channel.
+     */
+    void onReply(final long channelId, final IMessage message) {
+        if (message != null) {
+            replies.put(channelId, new Reply(message));
+        }
+    }
+
+    /**
+     * Forgets the reply if it was the message deleted.
+     */
+    void onDelete(final long channelId, final long messageId) {
+        final Reply reply = replies.get(channelId);
+        if (reply != null && reply.message.getLongID() == messageId) {
+            replies.remove(channelId, reply);
+        }
+    }
+
+    /**
+     * @return the bot's latest reply in the channel, or null if there is none recent enough to replace
+     */
+    IMessage getReplaceable(final long channelId) {
+        final Reply reply = replies.get(channelId);
+        return reply == null ? null : reply.message;
+    }
+
+    private static final class Reply {
+        private final IMessage message;
+        private final AtomicInteger messagesSince = new AtomicInteger();
+
+        private Reply(final IMessage message) {
+            this.message = message;
+        }
+    }
+}
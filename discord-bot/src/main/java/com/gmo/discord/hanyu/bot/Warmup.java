@@ -0,0 +1,144 @@
+package com.gmo.discord.hanyu.bot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.ScriptLanguageDetector;
+import com.gmo.discord.hanyu.bot.api.entities.BackTranslation;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryTranslation;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.Example;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.hanyu.bot.command.ExampleCommand;
+import com.gmo.discord.hanyu.bot.command.LookupCommand;
+import com.gmo.discord.hanyu.bot.command.RecentMessages;
+import com.gmo.discord.hanyu.bot.command.TranslateCommand;
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+import com.gmo.discord.hanyu.bot.microsoft.AsyncMicrosoftTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.pinyin.PinyinEngine;
+import com.gmo.discord.support.command.CommandInfo;
+import com.gmo.discord.support.command.CommandParser;
+import com.gmo.discord.support.command.CommandRouter;
+import com.gmo.discord.support.command.ICommand;
+import com.gmo.discord.support.command.ParsedCommand;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Runs the bot's hot paths on synthetic messages before it logs in, so the first commands after a deploy don't pay
+ * for class loading and interpretation: the translator client's JSON encoding and decoding, then parsing, routing and
+ * executing each command. The commands here are separate instances backed by canned API responses and a local-only
+ * pinyin engine, so nothing is sent over the network and the bot's own metrics are untouched.
+ */
+final class Warmup {
+    private static final List<String> MESSAGES = ImmutableList.of(
+            "t hello there friend",
+            "t np 你好",
+            "lookup study",
+            "l 学习",
+            "l zyxwv",
+            "ex 学习",
+            "example thanks, 谢谢",
+            "just chatting");
+
+    private Warmup() {
+    }
+
+    static void run(final AsyncMicrosoftTranslatorTextApi microsoftApi,
+                    final CedictDictionary dictionary,
+                    final CommandParser parser,
+                    final String prefix,
+                    final int iterations) {
+        final AsyncTranslatorTextApi api = ScriptLanguageDetector.newBuilder()
+                .withDelegate(new CannedTranslatorTextApi())
+                .build();
+        final PinyinEngine transliterator = PinyinEngine.newBuilder().withDictionary(dictionary).build();
+        final CommandRouter router = CommandRouter.of(ImmutableList.of(
+                new TranslateCommand(api, transliterator, RecentMessages.newBuilder().build()),
+                new LookupCommand(api, dictionary, transliterator),
+                new ExampleCommand(api, transliterator, MoreExecutors.directExecutor())));
+
+        for (int i = 0; i < iterations; i++) {
+            try {
+                microsoftApi.warmUp(1);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (final String message : MESSAGES) {
+                final ParsedCommand parsed = parser.parse(prefix + message);
+                if (parsed == null) {
+                    continue;
+                }
+                final CommandInfo commandInfo = CommandInfo.newBuilder()
+                        .withParsedCommand(parsed)
+                        .build();
+                router.route(commandInfo).map(command -> command.executeAsync(commandInfo)).ifPresent(CompletableFuture::join);
+            }
+        }
+    }
+
+    /**
+     * Answers every call immediately with a small, well-formed response.
+     */
+    private static final class CannedTranslatorTextApi implements AsyncTranslatorTextApi {
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            final TranslationResponse.Builder response = TranslationResponse.newBuilder();
+            for (final String language : request.getDestinationLanguages()) {
+                response.addTranslation(Translation.newBuilder()
+                        .withText(language.equalsIgnoreCase("zh-Hans") ? "你好" : "hello")
+                        .withDestinationLanguage(language)
+                        .build());
+            }
+            return CompletableFuture.completedFuture(Collections.singletonList(response.build()));
+        }
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            return CompletableFuture.completedFuture(ScriptLanguageDetector.detectLocally(
+                    request.getText().get(0).getText()));
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            return CompletableFuture.completedFuture(DictionaryLookupResponse.newBuilder()
+                    .withNormalizedSource("zyxwv")
+                    .withDisplaySource("zyxwv")
+                    .withTranslations(Collections.singletonList(DictionaryTranslation.newBuilder()
+                            .withNormalizedTarget("学习")
+                            .withDisplayTarget("学习")
+                            .withPosTag("VERB")
+                            .withConfidence(0.5)
+                            .withPrefixWord("")
+                            .withBackTranslations(Collections.singletonList(BackTranslation.newBuilder()
+                                    .withNormalizedText("study")
+                                    .withDisplayText("study")
+                                    .build()))
+                            .build()))
+                    .build());
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            return CompletableFuture.completedFuture(ExampleResponse.newBuilder()
+                    .withExamples(Collections.singletonList(Example.newBuilder()
+                            .withSourcePrefix("我每天")
+                            .withSourceTerm("学习")
+                            .withSourceSuffix("。")
+                            .withTargetPrefix("I ")
+                            .withTargetTerm("study")
+                            .withTargetSuffix(" every day.")
+                            .build()))
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+
+/**
+ * A deferred call against a {@link TranslatorTextApi}.
+ */
+@FunctionalInterface
+interface ApiCall<T> {
+    T call() throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.gmo.discord.hanyu.bot.api;
+
+/**
+ * The operations exposed by {@link TranslatorTextApi}.
+ */
+public enum ApiMethod {
+    TRANSLATE,
+    DETECT,
+    LOOKUP,
+    EXAMPLES
+}
@@ -0,0 +1,73 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Helpers for moving between blocking {@link ApiCall}s and {@link CompletableFuture}s.
+ */
+public final class AsyncCalls {
+    private AsyncCalls() {
+    }
+
+    public static <T> CompletableFuture<T> failed(final Throwable t) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    /**
+     * @return the exception a future actually failed with, without {@link CompletionException} wrapping
+     */
+    public static Throwable unwrap(final Throwable t) {
+        Throwable cause = t;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Cancelling a dependent stage doesn't reach the stage it was derived from, so this passes the cancellation on,
+     * for example to the future that owns an HTTP exchange.
+     *
+     * @return the dependent stage
+     */
+    public static <T> CompletableFuture<T> cancelling(final CompletableFuture<T> dependent, final Future<?> source) {
+        dependent.whenComplete((value, error) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(false);
+            }
+        });
+        return dependent;
+    }
+
+    public static boolean isApiFailure(final Throwable t) {
+        return Throwables.getRootCause(t) instanceof IOException;
+    }
+
+    static <T> CompletableFuture<T> call(final ApiCall<T> call) {
+        try {
+            return CompletableFuture.completedFuture(call.call());
+        } catch (final IOException | RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    static <T> T join(final CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (final CompletionException | CancellationException e) {
+            final Throwable cause = unwrap(e);
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new RuntimeException(cause);
+        }
+    }
+}
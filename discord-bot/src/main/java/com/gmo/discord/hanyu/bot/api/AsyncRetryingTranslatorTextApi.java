@@ -0,0 +1,212 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.support.metrics.LatencyHistogram;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Asynchronous counterpart of {@link RetryingTranslatorTextApi}. Failures are classified and delayed by a
+ * {@link RetryPolicy}, and the next attempt is scheduled on a timer shared by all instances rather than sleeping a
+ * thread. The latency of every attempt is recorded per attempt number, so the cost of retries is visible separately
+ * from that of first attempts.
+ */
+public class AsyncRetryingTranslatorTextApi implements AsyncTranslatorTextApi {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRetryingTranslatorTextApi.class);
+    private static final ScheduledExecutorService SHARED_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("translator-retry-%d")
+                    .setDaemon(true)
+                    .build());
+
+    private final AsyncTranslatorTextApi delegate;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService scheduler;
+    private final LatencyHistogram[] attemptLatencies;
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder exhaustedCount = new LongAdder();
+    private final LongAdder nonRetryableCount = new LongAdder();
+
+    private AsyncRetryingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        retryPolicy = builder.retryPolicy;
+        scheduler = builder.scheduler;
+        attemptLatencies = new LatencyHistogram[retryPolicy.getMaxAttempts()];
+        for (int i = 0; i < attemptLatencies.length; i++) {
+            attemptLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        return retry(() -> delegate.translateAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        return retry(() -> delegate.detectAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return retry(() -> delegate.lookupAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return retry(() -> delegate.examplesAsync(request));
+    }
+
+    /**
+     * @return the most attempts made for one call, including the first
+     */
+    public int getMaxAttempts() {
+        return attemptLatencies.length;
+    }
+
+    /**
+     * @param attempt the attempt number, starting from 1
+     * @return latencies of that attempt, successful or not
+     */
+    public LatencyHistogram getAttemptLatency(final int attempt) {
+        Preconditions.checkElementIndex(attempt - 1, attemptLatencies.length, "Attempt");
+        return attemptLatencies[attempt - 1];
+    }
+
+    /**
+     * @return the number of attempts scheduled after a failure
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * @return the number of calls that failed with a transient error but ran out of attempts or retry budget
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
+    /**
+     * @return the number of calls that failed fast because the error was not worth retrying
+     */
+    public long getNonRetryableCount() {
+        return nonRetryableCount.sum();
+    }
+
+    private <T> CompletableFuture<T> retry(final Supplier<CompletableFuture<T>> call) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(call, 1, 0, result);
+        return result;
+    }
+
+    private <T> void attempt(final Supplier<CompletableFuture<T>> call, final int attempt, final long previousDelayMillis,
+            final CompletableFuture<T> result) {
+        final long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (final RuntimeException e) {
+            // Retries run on the scheduler, where a thrown exception would be lost and the result never completed
+            future = AsyncCalls.failed(e);
+        }
+        future.whenComplete((value, error) -> {
+            attemptLatencies[attempt - 1].recordNanos(System.nanoTime() - start);
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+
+            final long delayMillis = retryPolicy.nextDelayMillis(error, attempt, previousDelayMillis);
+            if (delayMillis != RetryPolicy.GIVE_UP && !result.isDone()) {
+                retryCount.increment();
+                LOGGER.debug("Attempt {} failed, retrying in {} ms", attempt, delayMillis);
+                scheduler.schedule(() -> attempt(call, attempt + 1, delayMillis, result), delayMillis, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            if (retryPolicy.isRetryable(error)) {
+                exhaustedCount.increment();
+            } else {
+                nonRetryableCount.increment();
+            }
+            result.completeExceptionally(AsyncCalls.unwrap(error));
+        });
+    }
+
+    public static final class Builder {
+        private AsyncTranslatorTextApi delegate;
+        private RetryPolicy retryPolicy;
+        private final RetryPolicy.Builder retryPolicyBuilder;
+        private ScheduledExecutorService scheduler;
+
+        private Builder() {
+            retryPolicyBuilder = RetryPolicy.newBuilder();
+        }
+
+        public Builder withDelegate(final AsyncTranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        /**
+         * Replaces the default policy entirely; {@link #withMaxAttempts} and {@link #withWait} are then ignored.
+         */
+        public Builder withRetryPolicy(final RetryPolicy val) {
+            retryPolicy = val;
+            return this;
+        }
+
+        public Builder withMaxAttempts(final int val) {
+            retryPolicyBuilder.withMaxAttempts(val);
+            return this;
+        }
+
+        /**
+         * Sets the base delay of the default policy's backoff.
+         */
+        public Builder withWait(final long duration, final TimeUnit unit) {
+            retryPolicyBuilder.withBaseDelay(duration, unit);
+            return this;
+        }
+
+        public Builder withScheduler(final ScheduledExecutorService val) {
+            scheduler = val;
+            return this;
+        }
+
+        public AsyncRetryingTranslatorTextApi build() {
+            requireNonNull(delegate, "Null delegate");
+            if (retryPolicy == null) {
+                retryPolicy = retryPolicyBuilder.build();
+            }
+            if (scheduler == null) {
+                scheduler = SHARED_SCHEDULER;
+            }
+
+            return new AsyncRetryingTranslatorTextApi(this);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+/**
+ * Non-blocking counterpart of {@link TranslatorTextApi}. Failures to reach the API complete the returned future
+ * exceptionally with an {@link java.io.IOException}.
+ */
+public interface AsyncTranslatorTextApi {
+    CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request);
+    CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request);
+    CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request);
+    CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request);
+
+    /**
+     * @return a {@link TranslatorTextApi} view of this API which blocks the caller until each call completes
+     */
+    default TranslatorTextApi blocking() {
+        return new BlockingTranslatorTextApi(this);
+    }
+
+    /**
+     * @return an {@link AsyncTranslatorTextApi} which runs each call against the blocking API on the given executor
+     */
+    static AsyncTranslatorTextApi fromBlocking(final TranslatorTextApi api, final Executor executor) {
+        return new ExecutorAsyncTranslatorTextApi(api, executor);
+    }
+}
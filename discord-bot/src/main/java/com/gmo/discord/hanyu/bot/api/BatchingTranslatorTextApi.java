@@ -0,0 +1,309 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequestPayload;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link AsyncTranslatorTextApi} decorator which gathers {@code translate} calls with the same source and destination
+ * languages over a short window and sends them upstream as a single multi-element request. The responses are handed
+ * back to each caller by index. A batch is sent early once it reaches the API's element or character limit. Other
+ * methods are passed straight through.
+ */
+public class BatchingTranslatorTextApi implements AsyncTranslatorTextApi {
+    private final AsyncTranslatorTextApi delegate;
+    private final long windowMicros;
+    private final int maxElements;
+    private final int maxCharacters;
+    private final ScheduledExecutorService scheduler;
+    private final Map<BatchKey, Batch> openBatches;
+    private final LongAdder batches;
+    private final LongAdder batchedRequests;
+
+    private BatchingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        windowMicros = builder.windowMicros;
+        maxElements = builder.maxElements;
+        maxCharacters = builder.maxCharacters;
+        scheduler = builder.scheduler;
+        openBatches = new HashMap<>();
+        batches = new LongAdder();
+        batchedRequests = new LongAdder();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        final int characters = characterCount(request);
+        if (request.getText().size() >= maxElements || characters >= maxCharacters) {
+            return delegate.translateAsync(request);
+        }
+
+        final BatchKey key = new BatchKey(request);
+        final CompletableFuture<List<TranslationResponse>> future = new CompletableFuture<>();
+        Batch full = null;
+        Batch scheduled = null;
+        synchronized (openBatches) {
+            Batch batch = openBatches.get(key);
+            if (batch != null && !batch.fits(request.getText().size(), characters)) {
+                openBatches.remove(key);
+                full = batch;
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(key);
+                openBatches.put(key, batch);
+                scheduled = batch;
+            }
+            batch.add(request, characters, future);
+        }
+
+        if (full != null) {
+            flush(full);
+        }
+        if (scheduled != null) {
+            final Batch batch = scheduled;
+            scheduler.schedule(() -> flush(batch), windowMicros, TimeUnit.MICROSECONDS);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        return delegate.detectAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return delegate.lookupAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return delegate.examplesAsync(request);
+    }
+
+    /**
+     * @return the number of upstream {@code translate} calls made for batched requests
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return the number of caller {@code translate} requests which went through a batch
+     */
+    public long getBatchedRequestCount() {
+        return batchedRequests.sum();
+    }
+
+    private void flush(final Batch batch) {
+        synchronized (openBatches) {
+            if (batch.flushed) {
+                return;
+            }
+            batch.flushed = true;
+            openBatches.remove(batch.key, batch);
+        }
+
+        batches.increment();
+        batchedRequests.add(batch.members.size());
+        if (batch.members.size() == 1) {
+            final Member member = batch.members.get(0);
+            translateUpstream(member.request).whenComplete((responses, error) -> {
+                if (error != null) {
+                    member.future.completeExceptionally(AsyncCalls.unwrap(error));
+                } else {
+                    member.future.complete(responses);
+                }
+            });
+            return;
+        }
+
+        final List<String> text = new ArrayList<>();
+        batch.members.forEach(m -> m.request.getText().forEach(t -> text.add(t.getText())));
+        final TranslationRequest.Builder combined = TranslationRequest.newBuilder()
+                .withText(text)
+                .withDestinationLanguages(batch.key.destinationLanguages);
+        batch.key.sourceLanguage.ifPresent(combined::withSourceLanguage);
+
+        translateUpstream(combined.build()).whenComplete((responses, error) -> {
+            if (error == null && responses.size() != text.size()) {
+                error = new IOException(String.format("Expected %d translations but received %d", text.size(), responses.size()));
+            }
+            int offset = 0;
+            for (final Member member : batch.members) {
+                final int elements = member.request.getText().size();
+                if (error != null) {
+                    member.future.completeExceptionally(AsyncCalls.unwrap(error));
+                } else {
+                    member.future.complete(ImmutableList.copyOf(responses.subList(offset, offset + elements)));
+                }
+                offset += elements;
+            }
+        });
+    }
+
+    /**
+     * Turns a delegate which throws into a failed future, so that every member of the batch is still completed.
+     */
+    private CompletableFuture<List<TranslationResponse>> translateUpstream(final TranslationRequest request) {
+        try {
+            return delegate.translateAsync(request);
+        } catch (final RuntimeException e) {
+            return AsyncCalls.failed(e);
+        }
+    }
+
+    private static int characterCount(final TranslationRequest request) {
+        return request.getText().stream()
+                .map(TranslationRequestPayload::getText)
+                .mapToInt(t -> t == null ? 0 : t.length())
+                .sum();
+    }
+
+    private static final class BatchKey {
+        private final List<String> destinationLanguages;
+        private final Optional<String> sourceLanguage;
+
+        private BatchKey(final TranslationRequest request) {
+            destinationLanguages = ImmutableList.copyOf(request.getDestinationLanguages());
+            sourceLanguage = request.getSourceLanguage();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            BatchKey that = (BatchKey) o;
+            return Objects.equals(destinationLanguages, that.destinationLanguages) &&
+                    Objects.equals(sourceLanguage, that.sourceLanguage);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(destinationLanguages, sourceLanguage);
+        }
+    }
+
+    private final class Batch {
+        private final BatchKey key;
+        private final List<Member> members;
+        private int elements;
+        private int characters;
+        private boolean flushed;
+
+        private Batch(final BatchKey key) {
+            this.key = key;
+            this.members = new ArrayList<>();
+        }
+
+        private boolean fits(final int moreElements, final int moreCharacters) {
+            return elements + moreElements <= maxElements && characters + moreCharacters <= maxCharacters;
+        }
+
+        private void add(final TranslationRequest request, final int requestCharacters, final CompletableFuture<List<TranslationResponse>> future) {
+            members.add(new Member(request, future));
+            elements += request.getText().size();
+            characters += requestCharacters;
+        }
+    }
+
+    private static final class Member {
+        private final TranslationRequest request;
+        private final CompletableFuture<List<TranslationResponse>> future;
+
+        private Member(final TranslationRequest request, final CompletableFuture<List<TranslationResponse>> future) {
+            this.request = request;
+            this.future = future;
+        }
+    }
+
+    public static final class Builder {
+        private AsyncTranslatorTextApi delegate;
+        private long windowMicros;
+        private int maxElements;
+        private int maxCharacters;
+        private ScheduledExecutorService scheduler;
+
+        private Builder() {
+            windowMicros = TimeUnit.MILLISECONDS.toMicros(10);
+            maxElements = 100;
+            maxCharacters = 5000;
+        }
+
+        public Builder withDelegate(final AsyncTranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        /**
+         * @param duration how long to hold the first request of a batch while waiting for others to join it
+         */
+        public Builder withWindow(final long duration, final TimeUnit unit) {
+            windowMicros = unit.toMicros(duration);
+            return this;
+        }
+
+        /**
+         * @param val maximum number of text elements per upstream request
+         */
+        public Builder withMaxElements(final int val) {
+            maxElements = val;
+            return this;
+        }
+
+        /**
+         * @param val maximum number of characters of text per upstream request
+         */
+        public Builder withMaxCharacters(final int val) {
+            maxCharacters = val;
+            return this;
+        }
+
+        public Builder withScheduler(final ScheduledExecutorService val) {
+            scheduler = val;
+            return this;
+        }
+
+        public BatchingTranslatorTextApi build() {
+            requireNonNull(delegate, "Null delegate");
+            Preconditions.checkArgument(windowMicros >= 0, "Window must not be negative");
+            Preconditions.checkArgument(maxElements > 0, "Max elements must be positive");
+            Preconditions.checkArgument(maxCharacters > 0, "Max characters must be positive");
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("translator-batch-%d")
+                        .setDaemon(true)
+                        .build());
+            }
+
+            return new BatchingTranslatorTextApi(this);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+/**
+ * {@link TranslatorTextApi} which waits on an {@link AsyncTranslatorTextApi}.
+ */
+final class BlockingTranslatorTextApi implements TranslatorTextApi {
+    private final AsyncTranslatorTextApi delegate;
+
+    BlockingTranslatorTextApi(final AsyncTranslatorTextApi delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Null delegate");
+    }
+
+    @Override
+    public List<TranslationResponse> translate(final TranslationRequest request) throws IOException {
+        return AsyncCalls.join(delegate.translateAsync(request));
+    }
+
+    @Override
+    public DetectionResponse detect(final TranslationRequest request) throws IOException {
+        return AsyncCalls.join(delegate.detectAsync(request));
+    }
+
+    @Override
+    public DictionaryLookupResponse lookup(final TranslationRequest request) throws IOException {
+        return AsyncCalls.join(delegate.lookupAsync(request));
+    }
+
+    @Override
+    public ExampleResponse examples(final ExampleRequest request) throws IOException {
+        return AsyncCalls.join(delegate.examplesAsync(request));
+    }
+}
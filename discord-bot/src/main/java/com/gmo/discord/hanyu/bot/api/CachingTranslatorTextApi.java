@@ -0,0 +1,248 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.gmo.discord.hanyu.bot.api.entities.BackTranslation;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryTranslation;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.Example;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * {@link TranslatorTextApi} decorator which caches successful responses in memory, keyed by the normalized request.
+ * Entries are weighed by the number of characters in the request and response, and admitted using a TinyLFU policy
+ * so that frequently looked up terms stay resident.
+ * <p>
+ * Serves both the blocking and the asynchronous API from the same cache. Cache hits on the asynchronous API complete
+ * immediately; misses compose on the asynchronous delegate.
+ */
+public class CachingTranslatorTextApi implements TranslatorTextApi, AsyncTranslatorTextApi {
+    private final TranslatorTextApi delegate;
+    private final AsyncTranslatorTextApi asyncDelegate;
+    private final TinyLfuCache<RequestKey, Object> cache;
+
+    private CachingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        asyncDelegate = builder.asyncDelegate;
+        cache = new TinyLfuCache<>(builder.maximumWeight,
+                builder.expireAfterWrite,
+                builder.expireAfterWriteUnit,
+                builder.ticker,
+                CachingTranslatorTextApi::weigh);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<TranslationResponse> translate(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.TRANSLATE, normalized), () -> ImmutableList.copyOf(delegate.translate(normalized)));
+    }
+
+    @Override
+    public DetectionResponse detect(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.DETECT, normalized), () -> delegate.detect(normalized));
+    }
+
+    @Override
+    public DictionaryLookupResponse lookup(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.LOOKUP, normalized), () -> delegate.lookup(normalized));
+    }
+
+    @Override
+    public ExampleResponse examples(final ExampleRequest request) throws IOException {
+        final ExampleRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(normalized), () -> delegate.examples(normalized));
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.TRANSLATE, normalized), () -> asyncDelegate.translateAsync(normalized)
+                .thenApply(ImmutableList::copyOf));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.DETECT, normalized), () -> asyncDelegate.detectAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.LOOKUP, normalized), () -> asyncDelegate.lookupAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        final ExampleRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(normalized), () -> asyncDelegate.examplesAsync(normalized));
+    }
+
+    /**
+     * @return hit, miss and eviction counts. Admission rejections are counted as evictions.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getWeightedSize() {
+        return cache.weightedSize();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(final RequestKey key, final ApiCall<T> call) throws IOException {
+        final Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        final T response = call.call();
+        if (response != null) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> getAsync(final RequestKey key, final Supplier<CompletableFuture<T>> call) {
+        final Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture((T) cached);
+        }
+        return call.get().thenApply(response -> {
+            if (response != null) {
+                cache.put(key, response);
+            }
+            return response;
+        });
+    }
+
+    private static int weigh(final RequestKey key, final Object response) {
+        return key.getCharacterCount() + responseCharacterCount(response);
+    }
+
+    static int responseCharacterCount(final Object response) {
+        int count = 0;
+        if (response instanceof List) {
+            for (final Object element : (List<?>) response) {
+                count += responseCharacterCount(element);
+            }
+        } else if (response instanceof TranslationResponse) {
+            for (final Translation t : ((TranslationResponse) response).getTranslations()) {
+                count += length(t.getText()) + t.getTransliteration().map(tl -> length(tl.getText())).orElse(0);
+            }
+        } else if (response instanceof DetectionResponse) {
+            count += length(((DetectionResponse) response).getLanguage());
+        } else if (response instanceof DictionaryLookupResponse) {
+            final DictionaryLookupResponse lookup = (DictionaryLookupResponse) response;
+            count += length(lookup.getNormalizedSource()) + length(lookup.getDisplaySource());
+            if (lookup.getTranslations() != null) {
+                for (final DictionaryTranslation t : lookup.getTranslations()) {
+                    count += length(t.getNormalizedTarget()) + length(t.getDisplayTarget());
+                    if (t.getBackTranslations() != null) {
+                        for (final BackTranslation bt : t.getBackTranslations()) {
+                            count += length(bt.getNormalizedText()) + length(bt.getDisplayText());
+                        }
+                    }
+                }
+            }
+        } else if (response instanceof ExampleResponse) {
+            final ExampleResponse examples = (ExampleResponse) response;
+            if (examples.getExamples() != null) {
+                for (final Example e : examples.getExamples()) {
+                    count += length(e.getSourceSentence()) + length(e.getTargetSentence());
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int length(final String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    public static final class Builder {
+        private TranslatorTextApi delegate;
+        private AsyncTranslatorTextApi asyncDelegate;
+        private long maximumWeight;
+        private long expireAfterWrite;
+        private TimeUnit expireAfterWriteUnit;
+        private Ticker ticker;
+
+        private Builder() {
+            maximumWeight = 2_000_000;
+            expireAfterWrite = 24;
+            expireAfterWriteUnit = TimeUnit.HOURS;
+            ticker = Ticker.systemTicker();
+        }
+
+        public Builder withDelegate(final TranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        public Builder withAsyncDelegate(final AsyncTranslatorTextApi val) {
+            asyncDelegate = val;
+            return this;
+        }
+
+        /**
+         * @param val maximum total weight of the cache, in characters of request and response text
+         */
+        public Builder withMaximumWeight(final long val) {
+            maximumWeight = val;
+            return this;
+        }
+
+        public Builder withExpireAfterWrite(final long duration, final TimeUnit unit) {
+            expireAfterWrite = duration;
+            expireAfterWriteUnit = unit;
+            return this;
+        }
+
+        public Builder withTicker(final Ticker val) {
+            ticker = val;
+            return this;
+        }
+
+        public CachingTranslatorTextApi build() {
+            Preconditions.checkArgument(delegate != null || asyncDelegate != null, "Null delegate");
+            if (delegate == null) {
+                delegate = asyncDelegate.blocking();
+            } else if (asyncDelegate == null) {
+                asyncDelegate = AsyncTranslatorTextApi.fromBlocking(delegate, MoreExecutors.directExecutor());
+            }
+            requireNonNull(expireAfterWriteUnit, "Null expiry unit");
+            requireNonNull(ticker, "Null ticker");
+            Preconditions.checkArgument(maximumWeight > 0, "Maximum weight must be positive");
+            Preconditions.checkArgument(expireAfterWrite > 0, "Expiry must be positive");
+
+            return new CachingTranslatorTextApi(this);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+
+/**
+ * {@link AsyncTranslatorTextApi} decorator which stops calling a struggling upstream.
+ * <p>
+ * The outcomes of the last {@link Builder#withWindowSize} calls are kept in a sliding window. Once it holds at least
+ * {@link Builder#withMinimumCalls} outcomes and either the failure rate or the rate of calls slower than
+ * {@link Builder#withSlowCallDuration} reaches its threshold, the circuit opens. While open, calls fail fast with a
+ * {@link CircuitOpenException}, or are answered from the last successful response to the same request if one is
+ * still held. After {@link Builder#withOpenDuration} the circuit becomes half-open and lets
+ * {@link Builder#withProbeCalls} probes through: if they all succeed it closes, and any failure opens it again.
+ * <p>
+ * Only transport failures, throttling and server errors count against the upstream; client errors such as a bad
+ * request, and calls held back by a local quota, count as successes.
+ */
+public class CircuitBreakingTranslatorTextApi implements AsyncTranslatorTextApi {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakingTranslatorTextApi.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final AsyncTranslatorTextApi delegate;
+    private final Ticker ticker;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int probeCalls;
+    private final TinyLfuCache<RequestKey, Object> staleResponses;
+
+    // Sliding window of outcomes: bit 0 is failure, bit 1 is slow
+    private final byte[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private int windowSlowCalls;
+
+    private State state;
+    private long generation;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder staleCount = new LongAdder();
+    private final LongAdder openCount = new LongAdder();
+
+    private CircuitBreakingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        ticker = builder.ticker;
+        minimumCalls = builder.minimumCalls;
+        failureRateThreshold = builder.failureRateThreshold;
+        slowCallRateThreshold = builder.slowCallRateThreshold;
+        slowCallNanos = builder.slowCallNanos;
+        openNanos = builder.openNanos;
+        probeCalls = builder.probeCalls;
+        staleResponses = builder.staleMaximumWeight > 0
+                ? new TinyLfuCache<>(builder.staleMaximumWeight,
+                        builder.staleExpiryNanos,
+                        TimeUnit.NANOSECONDS,
+                        ticker,
+                        (key, response) -> key.getCharacterCount() + CachingTranslatorTextApi.responseCharacterCount(response))
+                : null;
+        window = new byte[builder.windowSize];
+        state = State.CLOSED;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        return call(RequestKey.of(ApiMethod.TRANSLATE, request), () -> delegate.translateAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        return call(RequestKey.of(ApiMethod.DETECT, request), () -> delegate.detectAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return call(RequestKey.of(ApiMethod.LOOKUP, request), () -> delegate.lookupAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return call(RequestKey.of(request), () -> delegate.examplesAsync(request));
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && ticker.read() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return the number of calls refused while the circuit was not closed, including those answered with stale data
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return the number of refused calls answered from a previous response
+     */
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    /**
+     * @return how many times the circuit has opened
+     */
+    public long getOpenCount() {
+        return openCount.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> call(final RequestKey key, final Supplier<CompletableFuture<T>> call) {
+        final long permit = tryAcquire();
+        if (permit < 0) {
+            rejectedCount.increment();
+            final Object stale = staleResponses == null ? null : staleResponses.getIfPresent(key);
+            if (stale != null) {
+                staleCount.increment();
+                return CompletableFuture.completedFuture((T) stale);
+            }
+            return AsyncCalls.failed(new CircuitOpenException("Translator API circuit is open"));
+        }
+
+        final long start = ticker.read();
+        final CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (final RuntimeException e) {
+            onComplete(permit, false, false);
+            throw e;
+        }
+        return future.whenComplete((response, error) -> {
+            final boolean failure = error != null && countsAgainstUpstream(error);
+            onComplete(permit, failure, ticker.read() - start >= slowCallNanos);
+            if (error == null && response != null && staleResponses != null) {
+                staleResponses.put(key, response);
+            }
+        });
+    }
+
+    /**
+     * @return the generation the call was admitted in, or -1 if it was refused
+     */
+    private synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (ticker.read() - openedAt < openNanos) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= probeCalls) {
+                return -1;
+            }
+            probesStarted++;
+        }
+        return generation;
+    }
+
+    /**
+     * Outcomes of calls admitted under an earlier state are discarded, so a slow straggler from before the circuit
+     * opened can't close it again.
+     */
+    private synchronized void onComplete(final long permit, final boolean failure, final boolean slow) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failure || slow) {
+                LOGGER.warn("Translator API probe failed, reopening circuit");
+                open();
+            } else if (++probesSucceeded >= probeCalls) {
+                LOGGER.info("Translator API recovered, closing circuit");
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(failure, slow);
+            if (windowCount >= minimumCalls) {
+                final double failureRate = (double) windowFailures / windowCount;
+                final double slowCallRate = (double) windowSlowCalls / windowCount;
+                if (failureRate >= failureRateThreshold || slowCallRate >= slowCallRateThreshold) {
+                    LOGGER.warn("Opening translator API circuit: failure rate {}, slow call rate {} over {} calls",
+                            failureRate, slowCallRate, windowCount);
+                    open();
+                }
+            }
+        }
+    }
+
+    private void record(final boolean failure, final boolean slow) {
+        final byte outcome = (byte) ((failure ? 1 : 0) | (slow ? 2 : 0));
+        if (windowCount == window.length) {
+            final byte evicted = window[windowIndex];
+            windowFailures -= evicted & 1;
+            windowSlowCalls -= (evicted >> 1) & 1;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = outcome;
+        windowFailures += outcome & 1;
+        windowSlowCalls += (outcome >> 1) & 1;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = ticker.read();
+        openCount.increment();
+    }
+
+    private void transition(final State newState) {
+        state = newState;
+        generation++;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        windowSlowCalls = 0;
+    }
+
+    private static boolean countsAgainstUpstream(final Throwable error) {
+        final Throwable cause = Throwables.getRootCause(error);
+        if (cause instanceof TranslatorApiException) {
+            final int statusCode = ((TranslatorApiException) cause).getStatusCode();
+            return statusCode == 429 || statusCode == 408 || statusCode >= 500;
+        }
+        if (cause instanceof QuotaExceededException || cause instanceof CircuitOpenException) {
+            return false;
+        }
+        return AsyncCalls.isApiFailure(cause);
+    }
+
+    public static final class Builder {
+        private AsyncTranslatorTextApi delegate;
+        private Ticker ticker;
+        private int windowSize;
+        private int minimumCalls;
+        private double failureRateThreshold;
+        private double slowCallRateThreshold;
+        private long slowCallNanos;
+        private long openNanos;
+        private int probeCalls;
+        private long staleMaximumWeight;
+        private long staleExpiryNanos;
+
+        private Builder() {
+            ticker = Ticker.systemTicker();
+            windowSize = 50;
+            minimumCalls = 10;
+            failureRateThreshold = 0.5;
+            slowCallRateThreshold = 0.8;
+            slowCallNanos = TimeUnit.SECONDS.toNanos(3);
+            openNanos = TimeUnit.SECONDS.toNanos(15);
+            probeCalls = 3;
+            staleMaximumWeight = 500_000;
+            staleExpiryNanos = TimeUnit.DAYS.toNanos(7);
+        }
+
+        public Builder withDelegate(final AsyncTranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        public Builder withTicker(final Ticker val) {
+            ticker = val;
+            return this;
+        }
+
+        /**
+         * @param val number of most recent call outcomes the failure and slow call rates are computed over
+         */
+        public Builder withWindowSize(final int val) {
+            windowSize = val;
+            return this;
+        }
+
+        /**
+         * @param val number of outcomes required in the window before the circuit may open
+         */
+        public Builder withMinimumCalls(final int val) {
+            minimumCalls = val;
+            return this;
+        }
+
+        public Builder withFailureRateThreshold(final double val) {
+            failureRateThreshold = val;
+            return this;
+        }
+
+        public Builder withSlowCallRateThreshold(final double val) {
+            slowCallRateThreshold = val;
+            return this;
+        }
+
+        public Builder withSlowCallDuration(final long duration, final TimeUnit unit) {
+            slowCallNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration how long the circuit stays open before letting probes through
+         */
+        public Builder withOpenDuration(final long duration, final TimeUnit unit) {
+            openNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param val number of calls let through while half-open, all of which must succeed to close the circuit
+         */
+        public Builder withProbeCalls(final int val) {
+            probeCalls = val;
+            return this;
+        }
+
+        /**
+         * @param maximumWeight maximum total weight of responses kept to answer calls while open, in characters.
+         * 0 disables serving stale responses.
+         * @param expiry how old a response may be and still be served
+         */
+        public Builder withStaleResponses(final long maximumWeight, final long expiry, final TimeUnit unit) {
+            staleMaximumWeight = maximumWeight;
+            staleExpiryNanos = unit.toNanos(expiry);
+            return this;
+        }
+
+        public CircuitBreakingTranslatorTextApi build() {
+            requireNonNull(delegate, "Null delegate");
+            requireNonNull(ticker, "Null ticker");
+            Preconditions.checkArgument(windowSize > 0, "Window size must be positive");
+            Preconditions.checkArgument(minimumCalls > 0 && minimumCalls <= windowSize,
+                    "Minimum calls must be between 1 and the window size");
+            Preconditions.checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1,
+                    "Failure rate threshold must be in (0, 1]");
+            Preconditions.checkArgument(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1,
+                    "Slow call rate threshold must be in (0, 1]");
+            Preconditions.checkArgument(slowCallNanos > 0, "Slow call duration must be positive");
+            Preconditions.checkArgument(openNanos > 0, "Open duration must be positive");
+            Preconditions.checkArgument(probeCalls > 0, "At least one probe call is required");
+            Preconditions.checkArgument(staleMaximumWeight >= 0, "Stale response weight must not be negative");
+            Preconditions.checkArgument(staleMaximumWeight == 0 || staleExpiryNanos > 0, "Stale expiry must be positive");
+
+            return new CircuitBreakingTranslatorTextApi(this);
+        }
+    }
+}
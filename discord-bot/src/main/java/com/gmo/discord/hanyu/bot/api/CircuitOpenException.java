@@ -0,0 +1,12 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+
+/**
+ * A call was rejected without reaching the translator API because its circuit breaker is open.
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,205 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * {@link TranslatorTextApi} decorator which collapses concurrent identical calls into a single upstream request.
+ * Callers that arrive while a call for the same normalized request is in flight share its result or failure. Blocking
+ * and asynchronous callers coalesce with each other.
+ */
+public class CoalescingTranslatorTextApi implements TranslatorTextApi, AsyncTranslatorTextApi {
+    private final TranslatorTextApi delegate;
+    private final AsyncTranslatorTextApi asyncDelegate;
+    private final ConcurrentMap<RequestKey, CompletableFuture<Object>> inFlight;
+    private final LongAdder upstreamCalls;
+    private final LongAdder collapsedCalls;
+    private final LongAdder collapsedCharacters;
+
+    private CoalescingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        asyncDelegate = builder.asyncDelegate;
+        inFlight = new ConcurrentHashMap<>();
+        upstreamCalls = new LongAdder();
+        collapsedCalls = new LongAdder();
+        collapsedCharacters = new LongAdder();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<TranslationResponse> translate(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.TRANSLATE, normalized), () -> delegate.translate(normalized));
+    }
+
+    @Override
+    public DetectionResponse detect(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.DETECT, normalized), () -> delegate.detect(normalized));
+    }
+
+    @Override
+    public DictionaryLookupResponse lookup(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.LOOKUP, normalized), () -> delegate.lookup(normalized));
+    }
+
+    @Override
+    public ExampleResponse examples(final ExampleRequest request) throws IOException {
+        final ExampleRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(normalized), () -> delegate.examples(normalized));
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.TRANSLATE, normalized), () -> asyncDelegate.translateAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.DETECT, normalized), () -> asyncDelegate.detectAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.LOOKUP, normalized), () -> asyncDelegate.lookupAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        final ExampleRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(normalized), () -> asyncDelegate.examplesAsync(normalized));
+    }
+
+    /**
+     * @return the number of calls which were sent upstream
+     */
+    public long getUpstreamCount() {
+        return upstreamCalls.sum();
+    }
+
+    /**
+     * @return the number of calls which were served by another caller's in-flight request
+     */
+    public long getCollapsedCount() {
+        return collapsedCalls.sum();
+    }
+
+    /**
+     * @return the number of request characters which were not sent upstream thanks to coalescing
+     */
+    public long getCollapsedCharacters() {
+        return collapsedCharacters.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(final RequestKey key, final ApiCall<T> call) throws IOException {
+        final CompletableFuture<Object> leader = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            recordCollapsed(key);
+            return AsyncCalls.join((CompletableFuture<T>) existing.thenApply(Function.identity()));
+        }
+
+        upstreamCalls.increment();
+        try {
+            final T response = call.call();
+            leader.complete(response);
+            return response;
+        } catch (final IOException | RuntimeException e) {
+            leader.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, leader);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> getAsync(final RequestKey key, final Supplier<CompletableFuture<T>> call) {
+        final CompletableFuture<Object> leader = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            recordCollapsed(key);
+            // Hand out a dependent future so one caller cancelling does not affect the others
+            return (CompletableFuture<T>) existing.thenApply(Function.identity());
+        }
+
+        upstreamCalls.increment();
+        final CompletableFuture<T> upstream;
+        try {
+            upstream = call.get();
+        } catch (final RuntimeException e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+            return AsyncCalls.failed(e);
+        }
+        upstream.whenComplete((response, error) -> {
+            inFlight.remove(key, leader);
+            if (error != null) {
+                leader.completeExceptionally(AsyncCalls.unwrap(error));
+            } else {
+                leader.complete(response);
+            }
+        });
+        return (CompletableFuture<T>) leader.thenApply(Function.identity());
+    }
+
+    private void recordCollapsed(final RequestKey key) {
+        collapsedCalls.increment();
+        collapsedCharacters.add(key.getCharacterCount());
+    }
+
+    public static final class Builder {
+        private TranslatorTextApi delegate;
+        private AsyncTranslatorTextApi asyncDelegate;
+
+        private Builder() {
+        }
+
+        public Builder withDelegate(final TranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        public Builder withAsyncDelegate(final AsyncTranslatorTextApi val) {
+            asyncDelegate = val;
+            return this;
+        }
+
+        public CoalescingTranslatorTextApi build() {
+            Preconditions.checkArgument(delegate != null || asyncDelegate != null, "Null delegate");
+            if (delegate == null) {
+                delegate = asyncDelegate.blocking();
+            } else if (asyncDelegate == null) {
+                asyncDelegate = AsyncTranslatorTextApi.fromBlocking(delegate, MoreExecutors.directExecutor());
+            }
+
+            return new CoalescingTranslatorTextApi(this);
+        }
+    }
+}
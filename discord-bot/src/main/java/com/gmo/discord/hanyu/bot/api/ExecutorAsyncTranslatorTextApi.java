@@ -0,0 +1,59 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+/**
+ * {@link AsyncTranslatorTextApi} which runs a blocking {@link TranslatorTextApi} on an {@link Executor}.
+ */
+final class ExecutorAsyncTranslatorTextApi implements AsyncTranslatorTextApi {
+    private final TranslatorTextApi delegate;
+    private final Executor executor;
+
+    ExecutorAsyncTranslatorTextApi(final TranslatorTextApi delegate, final Executor executor) {
+        this.delegate = Objects.requireNonNull(delegate, "Null delegate");
+        this.executor = Objects.requireNonNull(executor, "Null executor");
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        return submit(() -> delegate.translate(request));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        return submit(() -> delegate.detect(request));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return submit(() -> delegate.lookup(request));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return submit(() -> delegate.examples(request));
+    }
+
+    private <T> CompletableFuture<T> submit(final ApiCall<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(call.call());
+            } catch (final IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
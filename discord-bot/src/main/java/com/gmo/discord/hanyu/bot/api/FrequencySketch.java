@@ -0,0 +1,65 @@
+package com.gmo.discord.hanyu.bot.api;
+
+/**
+ * A count-min sketch of 4-bit counters used to estimate how often a key has been requested recently. Counters are
+ * halved once the number of recorded increments reaches ten times the table width, so popularity ages out over time.
+ */
+final class FrequencySketch {
+    private static final int MAX_COUNT = 15;
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x97cb3127, 0xb1a2fd4b, 0x5c5a1d4f, 0x2f0bb3d1};
+
+    private final byte[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(final int expectedEntries) {
+        final int width = Integer.highestOneBit(Math.max(64, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+        table = new byte[width];
+        mask = width - 1;
+        sampleSize = 10 * width;
+    }
+
+    int frequency(final Object key) {
+        final int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table[indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    void increment(final Object key) {
+        final int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            final int index = indexOf(hash, i);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) (table[i] >>> 1);
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(final int hash, final int row) {
+        int h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 16;
+        return h & mask;
+    }
+
+    private static int spread(final int hashCode) {
+        final int h = hashCode * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
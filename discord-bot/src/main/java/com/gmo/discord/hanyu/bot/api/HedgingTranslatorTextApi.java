@@ -0,0 +1,313 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.support.metrics.LatencyHistogram;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link AsyncTranslatorTextApi} decorator which hedges slow {@code translate} and {@code lookup} calls. If a call
+ * hasn't completed within the recent {@link Builder#withQuantile quantile} of call latency, an identical call is sent,
+ * which the connection pool places on another connection, and whichever completes first wins while the other is
+ * cancelled.
+ * <p>
+ * The hedge delay is recomputed from a fresh histogram every {@link Builder#withWindow window}, so it follows the
+ * upstream as it speeds up or slows down. Hedges draw from a budget that each call tops up by
+ * {@link Builder#withMaxHedgeRatio}, so at most that fraction of calls is ever duplicated and quota use stays bounded.
+ */
+public class HedgingTranslatorTextApi implements AsyncTranslatorTextApi {
+    private static final ScheduledExecutorService SHARED_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("translator-hedge-%d")
+                    .setDaemon(true)
+                    .build());
+    private static final long CREDITS_PER_HEDGE = 1_000_000;
+
+    private final AsyncTranslatorTextApi delegate;
+    private final double quantile;
+    private final long minDelayNanos;
+    private final long windowNanos;
+    private final int minSamples;
+    private final long creditsPerCall;
+    private final long maxCredits;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong credits;
+    private volatile LatencyHistogram current = new LatencyHistogram();
+    private volatile long windowStart = System.nanoTime();
+    private volatile long hedgeDelayNanos = -1;
+
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    private final LongAdder suppressedCount = new LongAdder();
+
+    private HedgingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        quantile = builder.quantile;
+        minDelayNanos = builder.minDelayNanos;
+        windowNanos = builder.windowNanos;
+        minSamples = builder.minSamples;
+        creditsPerCall = (long) (builder.maxHedgeRatio * CREDITS_PER_HEDGE);
+        maxCredits = builder.maxBurst * CREDITS_PER_HEDGE;
+        scheduler = builder.scheduler;
+        credits = new AtomicLong(maxCredits);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        return hedge(() -> delegate.translateAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        return delegate.detectAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return hedge(() -> delegate.lookupAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return delegate.examplesAsync(request);
+    }
+
+    /**
+     * @return the number of duplicate calls sent
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * @return the number of hedged calls where the duplicate completed first
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /**
+     * @return the number of slow calls not hedged because the hedge budget was spent
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+
+    /**
+     * @return the current hedge delay in nanoseconds, or -1 while there isn't enough data to hedge
+     */
+    public long getHedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    private <T> CompletableFuture<T> hedge(final Supplier<CompletableFuture<T>> call) {
+        addCredits();
+        final long delay = hedgeDelayNanos;
+        final CompletableFuture<T> primary = timed(call);
+        if (delay < 0) {
+            return primary;
+        }
+
+        // Calls still running; the result only fails once every call sent has failed
+        final AtomicInteger pending = new AtomicInteger(1);
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timer = scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (!tryTakeCredit()) {
+                suppressedCount.increment();
+                return;
+            }
+            if (pending.getAndUpdate(p -> p == 0 ? 0 : p + 1) == 0) {
+                credits.addAndGet(CREDITS_PER_HEDGE);
+                return;
+            }
+            final CompletableFuture<T> hedge;
+            try {
+                hedge = timed(call);
+            } catch (final RuntimeException e) {
+                // Counts as a hedge that failed before it was sent
+                credits.addAndGet(CREDITS_PER_HEDGE);
+                if (pending.decrementAndGet() == 0) {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            hedgeCount.increment();
+            hedge.whenComplete((value, error) -> {
+                if (error == null) {
+                    if (result.complete(value)) {
+                        hedgeWinCount.increment();
+                        primary.cancel(true);
+                    }
+                } else if (pending.decrementAndGet() == 0) {
+                    result.completeExceptionally(AsyncCalls.unwrap(error));
+                }
+            });
+            result.whenComplete((value, error) -> hedge.cancel(true));
+        }, delay, TimeUnit.NANOSECONDS);
+
+        primary.whenComplete((value, error) -> {
+            timer.cancel(false);
+            if (error == null) {
+                result.complete(value);
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(AsyncCalls.unwrap(error));
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> timed(final Supplier<CompletableFuture<T>> call) {
+        final long start = System.nanoTime();
+        final CompletableFuture<T> future = call.get();
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                record(System.nanoTime() - start);
+            }
+        });
+        return future;
+    }
+
+    private void record(final long nanos) {
+        final long now = System.nanoTime();
+        final LatencyHistogram histogram = current;
+        if (now - windowStart >= windowNanos) {
+            synchronized (this) {
+                if (current == histogram) {
+                    if (histogram.getCount() >= minSamples) {
+                        hedgeDelayNanos = Math.max(minDelayNanos, histogram.getValueAtQuantile(quantile));
+                    }
+                    current = new LatencyHistogram();
+                    windowStart = now;
+                }
+            }
+        }
+        current.recordNanos(nanos);
+    }
+
+    private void addCredits() {
+        long available;
+        do {
+            available = credits.get();
+            if (available >= maxCredits) {
+                return;
+            }
+        } while (!credits.compareAndSet(available, Math.min(maxCredits, available + creditsPerCall)));
+    }
+
+    private boolean tryTakeCredit() {
+        long available;
+        do {
+            available = credits.get();
+            if (available < CREDITS_PER_HEDGE) {
+                return false;
+            }
+        } while (!credits.compareAndSet(available, available - CREDITS_PER_HEDGE));
+        return true;
+    }
+
+    public static final class Builder {
+        private AsyncTranslatorTextApi delegate;
+        private double quantile;
+        private long minDelayNanos;
+        private long windowNanos;
+        private int minSamples;
+        private double maxHedgeRatio;
+        private long maxBurst;
+        private ScheduledExecutorService scheduler;
+
+        private Builder() {
+            quantile = 0.95;
+            minDelayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+            windowNanos = TimeUnit.SECONDS.toNanos(60);
+            minSamples = 20;
+            maxHedgeRatio = 0.05;
+            maxBurst = 5;
+        }
+
+        public Builder withDelegate(final AsyncTranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        /**
+         * @param val the latency quantile after which a call is hedged, e.g. 0.95
+         */
+        public Builder withQuantile(final double val) {
+            quantile = val;
+            return this;
+        }
+
+        /**
+         * @param duration the shortest hedge delay, however fast recent calls were
+         */
+        public Builder withMinDelay(final long duration, final TimeUnit unit) {
+            minDelayNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration how often the hedge delay is recomputed from the latencies seen since
+         * @param samples the fewest latencies a window needs to update the delay
+         */
+        public Builder withWindow(final long duration, final TimeUnit unit, final int samples) {
+            windowNanos = unit.toNanos(duration);
+            minSamples = samples;
+            return this;
+        }
+
+        /**
+         * @param ratio the largest fraction of calls that may be hedged
+         * @param burst how many hedges may be sent back to back when calls have been fast for a while
+         */
+        public Builder withMaxHedgeRatio(final double ratio, final long burst) {
+            maxHedgeRatio = ratio;
+            maxBurst = burst;
+            return this;
+        }
+
+        public Builder withScheduler(final ScheduledExecutorService val) {
+            scheduler = val;
+            return this;
+        }
+
+        public HedgingTranslatorTextApi build() {
+            requireNonNull(delegate, "Null delegate");
+            Preconditions.checkArgument(quantile > 0 && quantile < 1, "Quantile must be in (0, 1)");
+            Preconditions.checkArgument(minDelayNanos > 0, "Minimum delay must be positive");
+            Preconditions.checkArgument(windowNanos > 0 && minSamples > 0, "Window must be positive");
+            Preconditions.checkArgument(maxHedgeRatio > 0 && maxHedgeRatio <= 1, "Hedge ratio must be in (0, 1]");
+            Preconditions.checkArgument(maxBurst > 0, "Burst must be positive");
+            if (scheduler == null) {
+                scheduler = SHARED_SCHEDULER;
+            }
+
+            return new HedgingTranslatorTextApi(this);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.support.metrics.LatencyHistogram;
+import com.gmo.discord.support.metrics.MetricsRegistry;
+
+/**
+ * {@link AsyncTranslatorTextApi} decorator which records how long each call takes in a {@link MetricsRegistry}, as
+ * {@value #METRIC} labelled with the layer, the method and the outcome. The outcome is {@code ok}, the status code of
+ * a {@link TranslatorApiException}, or the simple name of any other exception.
+ */
+public class InstrumentedTranslatorTextApi implements AsyncTranslatorTextApi {
+    public static final String METRIC = "translator_request_seconds";
+    private static final String HELP = "Translator API call latency by layer, method and outcome";
+    private static final String OK = "ok";
+
+    private final AsyncTranslatorTextApi delegate;
+    private final MetricsRegistry registry;
+    private final String layer;
+    private final Map<ApiMethod, LatencyHistogram> successLatencies = new EnumMap<>(ApiMethod.class);
+
+    private InstrumentedTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        registry = builder.registry;
+        layer = builder.layer;
+        for (final ApiMethod method : ApiMethod.values()) {
+            successLatencies.put(method, histogram(method, OK));
+        }
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        return call(ApiMethod.TRANSLATE, () -> delegate.translateAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        return call(ApiMethod.DETECT, () -> delegate.detectAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return call(ApiMethod.LOOKUP, () -> delegate.lookupAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return call(ApiMethod.EXAMPLES, () -> delegate.examplesAsync(request));
+    }
+
+    private <T> CompletableFuture<T> call(final ApiMethod method, final Supplier<CompletableFuture<T>> call) {
+        final long start = System.nanoTime();
+        final CompletableFuture<T> future = call.get();
+        // The delegate's future is returned as is, so cancelling it still reaches the delegate
+        future.whenComplete((value, error) -> {
+            final long elapsed = System.nanoTime() - start;
+            if (error == null) {
+                successLatencies.get(method).recordNanos(elapsed);
+            } else {
+                histogram(method, outcome(AsyncCalls.unwrap(error))).recordNanos(elapsed);
+            }
+        });
+        return future;
+    }
+
+    private LatencyHistogram histogram(final ApiMethod method, final String outcome) {
+        return registry.histogram(METRIC, HELP,
+                "layer", layer,
+                "method", method.name().toLowerCase(Locale.ROOT),
+                "outcome", outcome);
+    }
+
+    private static String outcome(final Throwable error) {
+        if (error instanceof TranslatorApiException) {
+            return Integer.toString(((TranslatorApiException) error).getStatusCode());
+        }
+        return error.getClass().getSimpleName();
+    }
+
+    public static final class Builder {
+        private AsyncTranslatorTextApi delegate;
+        private MetricsRegistry registry;
+        private String layer;
+
+        private Builder() {
+            layer = "client";
+        }
+
+        public Builder withDelegate(final AsyncTranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        public Builder withRegistry(final MetricsRegistry val) {
+            registry = val;
+            return this;
+        }
+
+        /**
+         * @param val distinguishes several instrumented points in one decorator stack, e.g. "client" and "upstream"
+         */
+        public Builder withLayer(final String val) {
+            layer = val;
+            return this;
+        }
+
+        public InstrumentedTranslatorTextApi build() {
+            requireNonNull(delegate, "Null delegate");
+            requireNonNull(registry, "Null registry");
+            requireNonNull(layer, "Null layer");
+
+            return new InstrumentedTranslatorTextApi(this);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequestPayload;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.hanyu.bot.store.MappedSegmentStore;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * {@link TranslatorTextApi} decorator which persists successful responses to a {@link MappedSegmentStore}, so the
+ * cache is already warm after a restart. Intended to sit behind the in-memory {@link CachingTranslatorTextApi}.
+ * Like that cache, it serves both the blocking and the asynchronous API.
+ */
+public class PersistentCachingTranslatorTextApi implements TranslatorTextApi, AsyncTranslatorTextApi, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentCachingTranslatorTextApi.class);
+
+    // Entities are written from their fields and read back through their builders, the same way API responses are.
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .addMixIn(Translation.class, TranslationMixin.class)
+            .addMixIn(TranslationResponse.class, TranslationResponseMixin.class);
+    private static final ObjectReader TRANSLATION_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<TranslationResponse>>() {});
+    private static final ObjectReader DETECTION_RESPONSE_READER = OBJECT_MAPPER.readerFor(DetectionResponse.class);
+    private static final ObjectReader DICTIONARY_LOOKUP_RESPONSE_READER = OBJECT_MAPPER.readerFor(DictionaryLookupResponse.class);
+    private static final ObjectReader DICTIONARY_EXAMPLE_RESPONSE_READER = OBJECT_MAPPER.readerFor(ExampleResponse.class);
+
+    private final TranslatorTextApi delegate;
+    private final AsyncTranslatorTextApi asyncDelegate;
+    private final MappedSegmentStore store;
+
+    private PersistentCachingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        asyncDelegate = builder.asyncDelegate;
+        store = builder.store;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<TranslationResponse> translate(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.TRANSLATE, normalized), TRANSLATION_RESPONSE_READER, () -> delegate.translate(normalized));
+    }
+
+    @Override
+    public DetectionResponse detect(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.DETECT, normalized), DETECTION_RESPONSE_READER, () -> delegate.detect(normalized));
+    }
+
+    @Override
+    public DictionaryLookupResponse lookup(final TranslationRequest request) throws IOException {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(ApiMethod.LOOKUP, normalized), DICTIONARY_LOOKUP_RESPONSE_READER, () -> delegate.lookup(normalized));
+    }
+
+    @Override
+    public ExampleResponse examples(final ExampleRequest request) throws IOException {
+        final ExampleRequest normalized = RequestNormalizer.normalize(request);
+        return get(RequestKey.of(normalized), DICTIONARY_EXAMPLE_RESPONSE_READER, () -> delegate.examples(normalized));
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.TRANSLATE, normalized), TRANSLATION_RESPONSE_READER, () -> asyncDelegate.translateAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.DETECT, normalized), DETECTION_RESPONSE_READER, () -> asyncDelegate.detectAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        final TranslationRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(ApiMethod.LOOKUP, normalized), DICTIONARY_LOOKUP_RESPONSE_READER, () -> asyncDelegate.lookupAsync(normalized));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        final ExampleRequest normalized = RequestNormalizer.normalize(request);
+        return getAsync(RequestKey.of(normalized), DICTIONARY_EXAMPLE_RESPONSE_READER, () -> asyncDelegate.examplesAsync(normalized));
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private <T> T get(final RequestKey key, final ObjectReader reader, final ApiCall<T> call) throws IOException {
+        final String storeKey = storeKey(key);
+        final T stored = read(key, storeKey, reader);
+        if (stored != null) {
+            return stored;
+        }
+
+        final T response = call.call();
+        write(key, storeKey, response);
+        return response;
+    }
+
+    private <T> CompletableFuture<T> getAsync(final RequestKey key, final ObjectReader reader, final Supplier<CompletableFuture<T>> call) {
+        final String storeKey;
+        try {
+            storeKey = storeKey(key);
+        } catch (final IOException e) {
+            return AsyncCalls.failed(e);
+        }
+        final T stored = read(key, storeKey, reader);
+        if (stored != null) {
+            return CompletableFuture.completedFuture(stored);
+        }
+        return call.get().thenApply(response -> {
+            write(key, storeKey, response);
+            return response;
+        });
+    }
+
+    /**
+     * Spells out every field of the request, languages included; the entities themselves hide their languages from
+     * JSON, since the API takes those as query parameters.
+     */
+    private static String storeKey(final RequestKey key) throws IOException {
+        final Object request = key.getRequest();
+        final List<Object> fields;
+        if (request instanceof TranslationRequest) {
+            final TranslationRequest translationRequest = (TranslationRequest) request;
+            fields = Arrays.asList(
+                    translationRequest.getSourceLanguage().orElse(null),
+                    translationRequest.getDestinationLanguages(),
+                    translationRequest.getText().stream()
+                            .map(TranslationRequestPayload::getText)
+                            .collect(Collectors.toList()));
+        } else {
+            final ExampleRequest exampleRequest = (ExampleRequest) request;
+            fields = Arrays.asList(
+                    exampleRequest.getSourceLanguage(),
+                    exampleRequest.getDestinationLanguage(),
+                    exampleRequest.getSourceText(),
+                    exampleRequest.getDestinationTranslation());
+        }
+        return key.getMethod() + ":" + OBJECT_MAPPER.writeValueAsString(fields);
+    }
+
+    private <T> T read(final RequestKey key, final String storeKey, final ObjectReader reader) {
+        final Optional<byte[]> stored = store.get(storeKey);
+        if (stored.isPresent()) {
+            try {
+                return reader.readValue(stored.get());
+            } catch (final IOException e) {
+                LOGGER.warn("Discarding unreadable persisted entry for {}", key, e);
+            }
+        }
+        return null;
+    }
+
+    private void write(final RequestKey key, final String storeKey, final Object response) {
+        if (response != null) {
+            try {
+                store.put(storeKey, OBJECT_MAPPER.writeValueAsBytes(response));
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to persist entry for {}", key, e);
+            }
+        }
+    }
+
+    private abstract static class TranslationMixin {
+        @JsonProperty("to")
+        private String destinationLanguage;
+    }
+
+    private abstract static class TranslationResponseMixin {
+        @JsonIgnore
+        private TranslationRequest request;
+    }
+
+    public static final class Builder {
+        private TranslatorTextApi delegate;
+        private AsyncTranslatorTextApi asyncDelegate;
+        private MappedSegmentStore store;
+
+        private Builder() {
+        }
+
+        public Builder withDelegate(final TranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        public Builder withAsyncDelegate(final AsyncTranslatorTextApi val) {
+            asyncDelegate = val;
+            return this;
+        }
+
+        public Builder withStore(final MappedSegmentStore val) {
+            store = val;
+            return this;
+        }
+
+        public PersistentCachingTranslatorTextApi build() {
+            Preconditions.checkArgument(delegate != null || asyncDelegate != null, "Null delegate");
+            requireNonNull(store, "Null store");
+            if (delegate == null) {
+                delegate = asyncDelegate.blocking();
+            } else if (asyncDelegate == null) {
+                asyncDelegate = AsyncTranslatorTextApi.fromBlocking(delegate, MoreExecutors.directExecutor());
+            }
+
+            return new PersistentCachingTranslatorTextApi(this);
+        }
+    }
+}
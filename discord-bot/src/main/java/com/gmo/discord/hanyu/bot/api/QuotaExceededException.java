@@ -0,0 +1,22 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+
+/**
+ * A call was rejected locally because it would exceed the character quota for the translator API.
+ */
+public class QuotaExceededException extends IOException {
+    private final long retryAfterMillis;
+
+    public QuotaExceededException(final String message, final long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return how long until the call would fit within the quota
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
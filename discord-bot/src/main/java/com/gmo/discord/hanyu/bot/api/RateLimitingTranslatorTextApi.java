@@ -0,0 +1,197 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link AsyncTranslatorTextApi} decorator which keeps calls within the translator's character quota. Each call takes
+ * as many tokens from a {@link TokenBucket} as it has characters of text. If the bucket is short, the call is delayed
+ * on a timer for up to {@link Builder#withMaxWait}; beyond that it fails with a {@link QuotaExceededException}
+ * without reaching the API.
+ */
+public class RateLimitingTranslatorTextApi implements AsyncTranslatorTextApi {
+    private final AsyncTranslatorTextApi delegate;
+    private final TokenBucket bucket;
+    private final long maxWaitNanos;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder delayedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private RateLimitingTranslatorTextApi(final Builder builder) {
+        delegate = builder.delegate;
+        bucket = new TokenBucket(builder.capacity, builder.refillCharacters, builder.refillPeriod,
+                builder.refillPeriodUnit, builder.ticker);
+        maxWaitNanos = builder.maxWaitNanos;
+        scheduler = builder.scheduler;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        return call(RequestKey.of(ApiMethod.TRANSLATE, request), () -> delegate.translateAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        return call(RequestKey.of(ApiMethod.DETECT, request), () -> delegate.detectAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return call(RequestKey.of(ApiMethod.LOOKUP, request), () -> delegate.lookupAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return call(RequestKey.of(request), () -> delegate.examplesAsync(request));
+    }
+
+    /**
+     * @return the number of calls held back until the quota allowed them
+     */
+    public long getDelayedCount() {
+        return delayedCount.sum();
+    }
+
+    /**
+     * @return the number of calls rejected because the quota would not allow them in time
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private <T> CompletableFuture<T> call(final RequestKey key, final Supplier<CompletableFuture<T>> call) {
+        final int characters = Math.max(1, key.getCharacterCount());
+        final long waitNanos = bucket.reserve(characters, maxWaitNanos);
+        if (waitNanos < 0) {
+            rejectedCount.increment();
+            final long retryAfterMillis = TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilAvailable(characters));
+            return AsyncCalls.failed(new QuotaExceededException(String.format(
+                    "Translation quota exhausted, try again in %d s", Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis))),
+                    retryAfterMillis));
+        }
+        if (waitNanos == 0) {
+            return call.get();
+        }
+
+        delayedCount.increment();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final ScheduledFuture<?> delayed = scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                final CompletableFuture<T> future = call.get();
+                AsyncCalls.cancelling(result, future);
+                future.whenComplete((value, error) -> {
+                    if (error == null) {
+                        result.complete(value);
+                    } else {
+                        result.completeExceptionally(AsyncCalls.unwrap(error));
+                    }
+                });
+            } catch (final RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, waitNanos, TimeUnit.NANOSECONDS);
+        // A caller which gives up, such as a hedge that lost, also stops the call it was waiting for
+        return AsyncCalls.cancelling(result, delayed);
+    }
+
+    public static final class Builder {
+        private AsyncTranslatorTextApi delegate;
+        private long capacity;
+        private long refillCharacters;
+        private long refillPeriod;
+        private TimeUnit refillPeriodUnit;
+        private long maxWaitNanos;
+        private Ticker ticker;
+        private ScheduledExecutorService scheduler;
+
+        private Builder() {
+            capacity = 50_000;
+            refillCharacters = 2_000_000;
+            refillPeriod = 1;
+            refillPeriodUnit = TimeUnit.HOURS;
+            maxWaitNanos = TimeUnit.SECONDS.toNanos(2);
+            ticker = Ticker.systemTicker();
+        }
+
+        public Builder withDelegate(final AsyncTranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        /**
+         * @param val the most characters that may be sent in a burst
+         */
+        public Builder withCapacity(final long val) {
+            capacity = val;
+            return this;
+        }
+
+        /**
+         * @param characters characters of quota regained every period, e.g. the hourly quota of the subscription
+         */
+        public Builder withRefill(final long characters, final long period, final TimeUnit unit) {
+            refillCharacters = characters;
+            refillPeriod = period;
+            refillPeriodUnit = unit;
+            return this;
+        }
+
+        /**
+         * @param duration how long a call may be held back waiting for quota before it is rejected
+         */
+        public Builder withMaxWait(final long duration, final TimeUnit unit) {
+            maxWaitNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder withTicker(final Ticker val) {
+            ticker = val;
+            return this;
+        }
+
+        public Builder withScheduler(final ScheduledExecutorService val) {
+            scheduler = val;
+            return this;
+        }
+
+        public RateLimitingTranslatorTextApi build() {
+            requireNonNull(delegate, "Null delegate");
+            requireNonNull(refillPeriodUnit, "Null refill period unit");
+            requireNonNull(ticker, "Null ticker");
+            Preconditions.checkArgument(maxWaitNanos >= 0, "Max wait must not be negative");
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("translator-quota-%d")
+                        .setDaemon(true)
+                        .build());
+            }
+
+            return new RateLimitingTranslatorTextApi(this);
+        }
+    }
+}
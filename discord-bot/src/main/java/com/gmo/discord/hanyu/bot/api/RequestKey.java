@@ -0,0 +1,75 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.util.Objects;
+
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Identifies a single {@link TranslatorTextApi} call by its method and normalized request.
+ */
+final class RequestKey {
+    private final ApiMethod method;
+    private final Object request;
+
+    private RequestKey(final ApiMethod method, final Object request) {
+        this.method = Objects.requireNonNull(method, "Null method");
+        this.request = Objects.requireNonNull(request, "Null request");
+    }
+
+    static RequestKey of(final ApiMethod method, final TranslationRequest request) {
+        return new RequestKey(method, request);
+    }
+
+    static RequestKey of(final ExampleRequest request) {
+        return new RequestKey(ApiMethod.EXAMPLES, request);
+    }
+
+    ApiMethod getMethod() {
+        return method;
+    }
+
+    Object getRequest() {
+        return request;
+    }
+
+    /**
+     * @return the number of characters of text carried by the request, which is what Microsoft bills for
+     */
+    int getCharacterCount() {
+        if (request instanceof TranslationRequest) {
+            return ((TranslationRequest) request).getText().stream()
+                    .mapToInt(t -> t.getText() == null ? 0 : t.getText().length())
+                    .sum();
+        }
+        final ExampleRequest exampleRequest = (ExampleRequest) request;
+        return length(exampleRequest.getSourceText()) + length(exampleRequest.getDestinationTranslation());
+    }
+
+    private static int length(final String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RequestKey that = (RequestKey) o;
+        return method == that.method &&
+                Objects.equals(request, that.request);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(method, request);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("method", method)
+                .add("request", request)
+                .toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.text.Normalizer;
+import java.util.stream.Collectors;
+
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequestPayload;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+
+/**
+ * Normalizes request text so that requests which differ only by Unicode representation or whitespace compare equal.
+ * Text is NFKC-normalized (folding full-width latin and compatibility forms), trimmed, and runs of whitespace are
+ * collapsed to a single space.
+ */
+public final class RequestNormalizer {
+    private RequestNormalizer() {
+    }
+
+    public static String normalize(final String text) {
+        if (text == null) {
+            return null;
+        }
+        final String nfkc = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        final StringBuilder sb = new StringBuilder(nfkc.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < nfkc.length(); i++) {
+            final char c = nfkc.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static TranslationRequest normalize(final TranslationRequest request) {
+        final TranslationRequest.Builder builder = TranslationRequest.newBuilder()
+                .withText(request.getText().stream()
+                        .map(TranslationRequestPayload::getText)
+                        .map(RequestNormalizer::normalize)
+                        .collect(Collectors.toList()))
+                .withDestinationLanguages(request.getDestinationLanguages());
+        request.getSourceLanguage().ifPresent(builder::withSourceLanguage);
+        return builder.build();
+    }
+
+    public static ExampleRequest normalize(final ExampleRequest request) {
+        return ExampleRequest.newBuilder()
+                .withSourceLanguage(request.getSourceLanguage())
+                .withDestinationLanguage(request.getDestinationLanguage())
+                .withSourceText(normalize(request.getSourceText()))
+                .withDestinationTranslation(normalize(request.getDestinationTranslation()))
+                .build();
+    }
+}
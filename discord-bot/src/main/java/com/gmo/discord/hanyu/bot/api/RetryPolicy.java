@@ -0,0 +1,136 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * Decides whether a failed translator call should be retried and how long to wait first.
+ * <p>
+ * Throttling (429), request timeouts (408), server errors (5xx) and transport failures are retried; any other status
+ * is the caller's fault and fails fast, as do calls rejected locally by a quota or an open circuit. A
+ * {@code Retry-After} header is honoured as long as it is within {@link Builder#withMaxRetryAfter}; otherwise the call
+ * gives up rather than hold the user for longer. Without one, the delay uses decorrelated jitter:
+ * {@code min(maxDelay, random(baseDelay, previousDelay * 3))}, which spreads retries from concurrent callers apart
+ * instead of having them hit the API in lock-step.
+ */
+public final class RetryPolicy {
+    /**
+     * Returned by {@link #nextDelayMillis} when the call should not be retried.
+     */
+    public static final long GIVE_UP = -1;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxRetryAfterMillis;
+
+    private RetryPolicy(final Builder builder) {
+        maxAttempts = builder.maxAttempts;
+        baseDelayMillis = builder.baseDelayMillis;
+        maxDelayMillis = builder.maxDelayMillis;
+        maxRetryAfterMillis = builder.maxRetryAfterMillis;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return true if the failure is transient and any requested {@code Retry-After} is acceptable, regardless of how
+     * many attempts have been made
+     */
+    public boolean isRetryable(final Throwable error) {
+        final Throwable cause = Throwables.getRootCause(error);
+        if (cause instanceof TranslatorApiException) {
+            final TranslatorApiException apiException = (TranslatorApiException) cause;
+            final int statusCode = apiException.getStatusCode();
+            return (statusCode == 429 || statusCode == 408 || statusCode >= 500)
+                    && apiException.getRetryAfterMillis().orElse(0) <= maxRetryAfterMillis;
+        }
+        return cause instanceof IOException
+                && !(cause instanceof QuotaExceededException)
+                && !(cause instanceof CircuitOpenException);
+    }
+
+    /**
+     * @param error the failure of the attempt that just completed
+     * @param attempt the number of that attempt, starting from 1
+     * @param previousDelayMillis the delay before that attempt, or 0 if it was the first
+     * @return how long to wait before the next attempt, or {@link #GIVE_UP}
+     */
+    public long nextDelayMillis(final Throwable error, final int attempt, final long previousDelayMillis) {
+        if (attempt >= maxAttempts || !isRetryable(error)) {
+            return GIVE_UP;
+        }
+
+        final Throwable cause = Throwables.getRootCause(error);
+        if (cause instanceof TranslatorApiException) {
+            final OptionalLong retryAfter = ((TranslatorApiException) cause).getRetryAfterMillis();
+            if (retryAfter.isPresent()) {
+                return retryAfter.getAsLong();
+            }
+        }
+
+        final long previous = Math.max(baseDelayMillis, previousDelayMillis);
+        final long upper = Math.min(maxDelayMillis, previous * 3);
+        if (upper <= baseDelayMillis) {
+            return upper;
+        }
+        return ThreadLocalRandom.current().nextLong(baseDelayMillis, upper + 1);
+    }
+
+    public static final class Builder {
+        private int maxAttempts;
+        private long baseDelayMillis;
+        private long maxDelayMillis;
+        private long maxRetryAfterMillis;
+
+        private Builder() {
+            maxAttempts = 3;
+            baseDelayMillis = 100;
+            maxDelayMillis = 2000;
+            maxRetryAfterMillis = 5000;
+        }
+
+        public Builder withMaxAttempts(final int val) {
+            maxAttempts = val;
+            return this;
+        }
+
+        public Builder withBaseDelay(final long duration, final TimeUnit unit) {
+            baseDelayMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder withMaxDelay(final long duration, final TimeUnit unit) {
+            maxDelayMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * The longest {@code Retry-After} the policy will wait out. Longer requests fail the call immediately.
+         */
+        public Builder withMaxRetryAfter(final long duration, final TimeUnit unit) {
+            maxRetryAfterMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public RetryPolicy build() {
+            Preconditions.checkArgument(maxAttempts > 0, "At least one attempt is required");
+            Preconditions.checkArgument(baseDelayMillis >= 0, "Base delay must not be negative");
+            Preconditions.checkArgument(maxDelayMillis >= baseDelayMillis, "Max delay must be at least the base delay");
+            Preconditions.checkArgument(maxRetryAfterMillis >= 0, "Max Retry-After must not be negative");
+
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -5,7 +5,6 @@ import static java.util.Objects.requireNonNull;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import com.github.rholder.retry.BlockStrategies;
 import com.github.rholder.retry.BlockStrategy;
@@ -14,7 +13,6 @@ import com.github.rholder.retry.Retryer;
 import com.github.rholder.retry.RetryerBuilder;
 import com.github.rholder.retry.StopStrategies;
 import com.github.rholder.retry.StopStrategy;
-import com.github.rholder.retry.WaitStrategies;
 import com.github.rholder.retry.WaitStrategy;
 import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
 import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
@@ -91,20 +89,35 @@ public class RetryingTranslatorTextApi implements TranslatorTextApi {
                 .withStopStrategy(builder.stopStrategy)
                 .withWaitStrategy(builder.waitStrategy)
                 .withBlockStrategy(builder.blockStrategy)
-                .retryIfExceptionOfType(IOException.class)
+                .retryIfException(builder.retryPolicy::isRetryable)
                 .build();
     }
 
+    /**
+     * The policy's backoff expects the previous delay, which guava-retrying doesn't expose; the time elapsed since the
+     * first attempt is used instead, which grows at the same rate.
+     */
+    private static WaitStrategy policyWait(final RetryPolicy retryPolicy) {
+        return failedAttempt -> {
+            if (!failedAttempt.hasException()) {
+                return 0;
+            }
+            final long delay = retryPolicy.nextDelayMillis(failedAttempt.getExceptionCause(),
+                    (int) failedAttempt.getAttemptNumber(), failedAttempt.getDelaySinceFirstAttempt());
+            return Math.max(0, delay);
+        };
+    }
+
 
     public static final class Builder {
         private TranslatorTextApi delegate;
+        private RetryPolicy retryPolicy;
         private StopStrategy stopStrategy;
         private WaitStrategy waitStrategy;
         private BlockStrategy blockStrategy;
 
         private Builder() {
-            stopStrategy = StopStrategies.stopAfterAttempt(2);
-            waitStrategy = WaitStrategies.fixedWait(1000, TimeUnit.MILLISECONDS);
+            withRetryPolicy(RetryPolicy.newBuilder().build());
             blockStrategy = BlockStrategies.threadSleepStrategy();
         }
 
@@ -113,6 +126,16 @@ public class RetryingTranslatorTextApi implements TranslatorTextApi {
             return this;
         }
 
+        /**
+         * Sets which failures are retried, and replaces the stop and wait strategies with ones following the policy.
+         */
+        public Builder withRetryPolicy(final RetryPolicy val) {
+            retryPolicy = requireNonNull(val, "Null retry policy");
+            stopStrategy = StopStrategies.stopAfterAttempt(val.getMaxAttempts());
+            waitStrategy = policyWait(val);
+            return this;
+        }
+
         public Builder withStopStrategy(final StopStrategy val) {
             stopStrategy = val;
             return this;
@@ -0,0 +1,205 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequestPayload;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link AsyncTranslatorTextApi} decorator which answers {@code detect} locally from the Unicode scripts of the
+ * input. Han text is {@code zh-Hans} unless it contains characters only used in traditional Chinese, kana makes it
+ * {@code ja} and hangul {@code ko}. Plain ASCII Latin text is reported as {@code en}, the only Latin script language
+ * the commands translate from. Input with no letters, accented Latin or too even a mix of scripts is passed to the
+ * delegate. Other methods are passed straight through.
+ */
+public class ScriptLanguageDetector implements AsyncTranslatorTextApi {
+    /**
+     * A Han character carries far more meaning than a Latin letter, so count it for more when scripts are mixed.
+     */
+    private static final int HAN_WEIGHT = 3;
+    private static final String TRADITIONAL_ONLY = "來個們傳傷僅價億優兒內兩區問嗎國學實寫對幾廣張強彈彎後從愛應"
+            + "時書會東業樣檢歡歲殺氣漢灣為無熱爲爺獨現產畫當療發盡監種積穩窮紅紙級組結絡給統經綠網緊線編練縣總績續義習"
+            + "聖聞聯職聽腦臉與興舊華萬藝蘇蘭處號衛裝裡複見親覺觀計訊討記設許訴詞試詩話該認語誠說誰課調談請論講謝證識讀"
+            + "變讓貓貝負財責貴買費貼資賣賽贏趕跡踐車輕輛輸轉辦農這連進運過達遠遲選還邊鄉醫針鋼錢錯鐘鐵長門閃閉開間閱關"
+            + "陰陸陽隊階際隨險隻雖雙雜雞離難雲電頁順須領頭題顏願類顯風飛飯飲餓館馬駕驗體髮鬥鬧魚鳥麗麥麵麼黃點齊齒龍";
+    private static final BitSet TRADITIONAL = new BitSet();
+
+    static {
+        TRADITIONAL_ONLY.codePoints().forEach(TRADITIONAL::set);
+    }
+
+    private final AsyncTranslatorTextApi delegate;
+    private final double minimumConfidence;
+    private final LongAdder localDetections;
+    private final LongAdder remoteDetections;
+
+    private ScriptLanguageDetector(final Builder builder) {
+        delegate = builder.delegate;
+        minimumConfidence = builder.minimumConfidence;
+        localDetections = new LongAdder();
+        remoteDetections = new LongAdder();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Classifies text by script alone.
+     *
+     * @return the most likely language with a confidence score between 0 and 1, where 0 means there was nothing to go
+     * on
+     */
+    public static DetectionResponse detectLocally(final CharSequence text) {
+        int han = 0;
+        int traditional = 0;
+        int kana = 0;
+        int hangul = 0;
+        int asciiLatin = 0;
+        int otherLatin = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); ) {
+            final int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            switch (Character.UnicodeScript.of(codePoint)) {
+                case HAN:
+                    han++;
+                    if (TRADITIONAL.get(codePoint)) {
+                        traditional++;
+                    }
+                    break;
+                case HIRAGANA:
+                case KATAKANA:
+                    kana++;
+                    break;
+                case HANGUL:
+                    hangul++;
+                    break;
+                case LATIN:
+                    if (codePoint < 0x80) {
+                        asciiLatin++;
+                    } else {
+                        otherLatin++;
+                    }
+                    break;
+                case COMMON:
+                case INHERITED:
+                    break;
+                default:
+                    other++;
+                    break;
+            }
+        }
+
+        final int total = han * HAN_WEIGHT + kana * HAN_WEIGHT + hangul * HAN_WEIGHT + asciiLatin + otherLatin + other;
+        if (total == 0) {
+            return detection("", 0);
+        }
+        if (kana > 0) {
+            return detection("ja", (double) (han + kana) * HAN_WEIGHT / total);
+        }
+        if (hangul > 0) {
+            return detection("ko", (double) (han + hangul) * HAN_WEIGHT / total);
+        }
+        if (han > 0 && han * HAN_WEIGHT >= asciiLatin + otherLatin + other) {
+            return detection(traditional > 0 ? "zh-Hant" : "zh-Hans", (double) han * HAN_WEIGHT / total);
+        }
+        if (otherLatin == 0 && asciiLatin > 0) {
+            return detection("en", (double) asciiLatin / total);
+        }
+        return detection("", 0);
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        final StringBuilder text = new StringBuilder();
+        for (final TranslationRequestPayload payload : request.getText()) {
+            text.append(payload.getText()).append(' ');
+        }
+
+        final DetectionResponse local = detectLocally(text);
+        if (local.getScore() >= minimumConfidence) {
+            localDetections.increment();
+            return CompletableFuture.completedFuture(local);
+        }
+        remoteDetections.increment();
+        return delegate.detectAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        return delegate.translateAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        return delegate.lookupAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        return delegate.examplesAsync(request);
+    }
+
+    /**
+     * @return the number of detections answered locally
+     */
+    public long getLocalDetectionCount() {
+        return localDetections.sum();
+    }
+
+    /**
+     * @return the number of detections passed to the delegate
+     */
+    public long getRemoteDetectionCount() {
+        return remoteDetections.sum();
+    }
+
+    private static DetectionResponse detection(final String language, final double score) {
+        return DetectionResponse.newBuilder()
+                .withLanguage(language)
+                .withScore(score)
+                .withIsTranslationSupported(!language.isEmpty())
+                .withIsTransliterationSupported(language.startsWith("zh") || language.equals("ja") || language.equals("ko"))
+                .build();
+    }
+
+    public static final class Builder {
+        private AsyncTranslatorTextApi delegate;
+        private double minimumConfidence;
+
+        private Builder() {
+            minimumConfidence = 0.8;
+        }
+
+        public Builder withDelegate(final AsyncTranslatorTextApi val) {
+            delegate = val;
+            return this;
+        }
+
+        /**
+         * @param val local detections scoring below this are passed to the delegate instead
+         */
+        public Builder withMinimumConfidence(final double val) {
+            minimumConfidence = val;
+            return this;
+        }
+
+        public ScriptLanguageDetector build() {
+            requireNonNull(delegate, "Null delegate");
+            Preconditions.checkArgument(minimumConfidence > 0 && minimumConfidence <= 1, "Minimum confidence must be in (0, 1]");
+            return new ScriptLanguageDetector(this);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntBiFunction;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheStats;
+
+/**
+ * A weight-bounded LRU cache guarded by a TinyLFU admission policy. When inserting a new entry would exceed the
+ * maximum weight, the entry is only admitted if it has been requested more often than the least-recently-used
+ * resident it would displace. This keeps one-off requests from flushing the hot working set. Entries also expire a
+ * fixed time after they were written.
+ */
+final class TinyLfuCache<K, V> {
+    private final long maximumWeight;
+    private final long expireAfterWriteNanos;
+    private final Ticker ticker;
+    private final ToIntBiFunction<K, V> weigher;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<K, Node<V>> entries;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private long weightedSize;
+
+    TinyLfuCache(final long maximumWeight,
+                 final long expireAfterWrite,
+                 final TimeUnit unit,
+                 final Ticker ticker,
+                 final ToIntBiFunction<K, V> weigher) {
+        Preconditions.checkArgument(maximumWeight > 0, "Maximum weight must be positive");
+        Preconditions.checkArgument(expireAfterWrite > 0, "Expiry must be positive");
+        this.maximumWeight = maximumWeight;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.ticker = ticker;
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maximumWeight / 32));
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    synchronized V getIfPresent(final K key) {
+        sketch.increment(key);
+        final Node<V> node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(node, ticker.read())) {
+            entries.remove(key);
+            weightedSize -= node.weight;
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    /**
+     * @return true if the entry was admitted into the cache
+     */
+    synchronized boolean put(final K key, final V value) {
+        final int weight = weigher.applyAsInt(key, value);
+        final long now = ticker.read();
+        final Node<V> existing = entries.remove(key);
+        if (existing != null) {
+            weightedSize -= existing.weight;
+        } else if (weight > maximumWeight || !admit(key, weight, now)) {
+            evictions.increment();
+            return false;
+        }
+
+        entries.put(key, new Node<>(value, weight, now));
+        weightedSize += weight;
+        evictToFit(now);
+        return true;
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+        weightedSize = 0;
+    }
+
+    synchronized long weightedSize() {
+        return weightedSize;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), 0, 0, 0, evictions.sum());
+    }
+
+    /**
+     * Compares the candidate against the first live eviction victim. Expired residents are always evictable.
+     */
+    private boolean admit(final K candidate, final int weight, final long now) {
+        if (weightedSize + weight <= maximumWeight) {
+            return true;
+        }
+        for (final Map.Entry<K, Node<V>> victim : entries.entrySet()) {
+            if (!isExpired(victim.getValue(), now)) {
+                return sketch.frequency(candidate) > sketch.frequency(victim.getKey());
+            }
+        }
+        return true;
+    }
+
+    private void evictToFit(final long now) {
+        final Iterator<Node<V>> iterator = entries.values().iterator();
+        while (weightedSize > maximumWeight && iterator.hasNext()) {
+            final Node<V> node = iterator.next();
+            iterator.remove();
+            weightedSize -= node.weight;
+            evictions.increment();
+        }
+        // Opportunistically drop expired entries from the cold end of the access order
+        while (iterator.hasNext()) {
+            final Node<V> node = iterator.next();
+            if (!isExpired(node, now)) {
+                break;
+            }
+            iterator.remove();
+            weightedSize -= node.weight;
+            evictions.increment();
+        }
+    }
+
+    private boolean isExpired(final Node<V> node, final long now) {
+        return now - node.writeTime >= expireAfterWriteNanos;
+    }
+
+    private static final class Node<V> {
+        private final V value;
+        private final int weight;
+        private final long writeTime;
+
+        private Node(final V value, final int weight, final long writeTime) {
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+}
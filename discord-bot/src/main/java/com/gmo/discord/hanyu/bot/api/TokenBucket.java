@@ -0,0 +1,74 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm: the only state is the time at which the
+ * bucket would next be full, updated with a single compare-and-set. Holds up to {@code capacity} tokens and refills
+ * {@code refillTokens} every {@code refillPeriod}.
+ */
+public final class TokenBucket {
+    private final Ticker ticker;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(final long capacity, final long refillTokens, final long refillPeriod, final TimeUnit unit,
+            final Ticker ticker) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+        Preconditions.checkArgument(refillTokens > 0 && refillPeriod > 0, "Refill rate must be positive");
+        this.ticker = ticker;
+        this.nanosPerToken = Math.max(1, unit.toNanos(refillPeriod) / refillTokens);
+        this.burstNanos = capacity * nanosPerToken;
+        this.fullAt = new AtomicLong(ticker.read());
+    }
+
+    /**
+     * Takes the tokens if they are available now.
+     */
+    public boolean tryAcquire(final long tokens) {
+        return reserve(tokens, 0) == 0;
+    }
+
+    /**
+     * Takes the tokens, possibly borrowing against future refills if they will be available within
+     * {@code maxWaitNanos}. The caller must then wait the returned time before using them.
+     *
+     * @return nanoseconds until the reserved tokens are available, or -1 if they can't be reserved in time, in which
+     * case nothing is taken
+     */
+    public long reserve(final long tokens, final long maxWaitNanos) {
+        final long cost = tokens * nanosPerToken;
+        while (true) {
+            final long now = ticker.read();
+            final long current = fullAt.get();
+            final long next = Math.max(current, now) + cost;
+            final long wait = next - now - burstNanos;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    /**
+     * @return nanoseconds until the given number of tokens will be available, 0 if they are available now
+     */
+    public long nanosUntilAvailable(final long tokens) {
+        final long now = ticker.read();
+        return Math.max(0, Math.max(fullAt.get(), now) + tokens * nanosPerToken - now - burstNanos);
+    }
+
+    /**
+     * @return true if no tokens have been taken since the bucket last refilled completely
+     */
+    public boolean isFull() {
+        return fullAt.get() <= ticker.read();
+    }
+}
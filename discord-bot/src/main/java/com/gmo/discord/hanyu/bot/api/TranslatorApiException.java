@@ -0,0 +1,32 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+
+/**
+ * The translator API answered with an unsuccessful HTTP status.
+ */
+public class TranslatorApiException extends IOException {
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    /**
+     * @param retryAfterMillis how long the server asked us to wait before retrying, or a negative value if it didn't
+     */
+    public TranslatorApiException(final int statusCode, final String reasonPhrase, final long retryAfterMillis) {
+        super(String.format("Failed status code %d: %s", statusCode, reasonPhrase));
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the delay requested by the server's {@code Retry-After} header, if it sent one
+     */
+    public OptionalLong getRetryAfterMillis() {
+        return retryAfterMillis < 0 ? OptionalLong.empty() : OptionalLong.of(retryAfterMillis);
+    }
+}
@@ -0,0 +1,29 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import org.slf4j.Logger;
+
+import com.gmo.discord.hanyu.bot.api.AsyncCalls;
+import com.gmo.discord.hanyu.bot.api.QuotaExceededException;
+import com.gmo.discord.support.message.DiscordMessage;
+
+/**
+ * Turns a translator API failure into the reply shown to the user.
+ */
+final class ApiFailures {
+    private ApiFailures() {
+    }
+
+    static Iterable<DiscordMessage> reply(final Logger logger, final Throwable e) {
+        final Throwable cause = AsyncCalls.unwrap(e);
+        if (cause instanceof QuotaExceededException) {
+            logger.info("Rejected by translator quota: {}", cause.getMessage());
+            return DiscordMessage.newBuilder()
+                    .withText(cause.getMessage())
+                    .build().singleton();
+        }
+        logger.error("Exception reaching ms translator api", e);
+        return DiscordMessage.newBuilder()
+                .withText("Failure to reach MS API")
+                .build().singleton();
+    }
+}
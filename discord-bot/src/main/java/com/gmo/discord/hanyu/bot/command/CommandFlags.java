@@ -0,0 +1,19 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Flags understood by the hanyu commands, extracted from the message once by the command parser.
+ */
+public final class CommandFlags {
+    /**
+     * Leave pinyin out of the reply.
+     */
+    public static final String NO_PINYIN = "no-pinyin";
+    public static final Set<String> NO_PINYIN_ALIASES = ImmutableSet.of("peenless", "pl", "no-pinyin", "np");
+
+    private CommandFlags() {
+    }
+}
@@ -1,30 +1,33 @@
 package com.gmo.discord.hanyu.bot.command;
 
-import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.gmo.discord.hanyu.bot.api.TranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.AsyncCalls;
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.ScriptLanguageDetector;
 import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
-import com.gmo.discord.hanyu.bot.api.entities.Translation;
 import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
-import com.gmo.discord.hanyu.bot.api.entities.Transliteration;
 import com.gmo.discord.hanyu.bot.api.entities.example.Example;
 import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
 import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.hanyu.bot.pinyin.Transliterator;
 import com.gmo.discord.support.command.CommandInfo;
 import com.gmo.discord.support.command.ICommand;
 import com.gmo.discord.support.message.DiscordMessage;
+import com.gmo.discord.support.metrics.LatencyHistogram;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
@@ -33,20 +36,39 @@ import com.google.common.collect.ImmutableSet;
 /**
  * @author tedelen
  */
-public class ExampleCommand implements ICommand {
+public class ExampleCommand implements ICommand, TranslatorCost {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExampleCommand.class);
     private static final int MAX_EXAMPLES = 3;
     private static final Splitter SPLITTER = Splitter.on(",");
     private static final Set<String> ALIASES = ImmutableSet.of("example", "examples", "e", "ex");
-    private static final Set<String> PEENLESS_ALIASES = ImmutableSet.of("peenless", "pl", "no-pinyin", "np");
     private static final Set<String> HELP_ALIASES = ImmutableSet.of("help", "h");
 
     private static final int MAX_LENGTH = 200;
+    // Detection, translation, and the examples request which carries both the text and its translation, then the
+    // examples are transliterated
+    private static final int CALLS_WITH_PINYIN = 5;
 
-    private final TranslatorTextApi translateApi;
+    private final AsyncTranslatorTextApi translateApi;
+    private final Transliterator transliterator;
+    private final Executor executor;
+    private final LatencyHistogram latency = new LatencyHistogram();
 
-    public ExampleCommand(final TranslatorTextApi translateApi) {
+    public ExampleCommand(final AsyncTranslatorTextApi translateApi, final Transliterator transliterator) {
+        this(translateApi, transliterator, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the steps that follow each API response, keeping them off the HTTP client's threads
+     */
+    public ExampleCommand(final AsyncTranslatorTextApi translateApi, final Transliterator transliterator, final Executor executor) {
         this.translateApi = Objects.requireNonNull(translateApi, "Null translate API");
+        this.transliterator = Objects.requireNonNull(transliterator, "Null transliterator");
+        this.executor = Objects.requireNonNull(executor, "Null executor");
+    }
+
+    @Override
+    public Set<String> getAliases() {
+        return ALIASES;
     }
 
     @Override
@@ -56,112 +78,157 @@ public class ExampleCommand implements ICommand {
 
     @Override
     public Iterable<DiscordMessage> execute(final CommandInfo commandInfo) {
+        return executeAsync(commandInfo).join();
+    }
+
+    @Override
+    public CompletableFuture<Iterable<DiscordMessage>> executeAsync(final CommandInfo commandInfo) {
         if (!canHandle(commandInfo)) {
             throw new IllegalArgumentException("Invalid command, must call canHandle first");
         }
 
         String textToTranslate = Joiner.on(" ").join(commandInfo.getArgs());
-        final boolean peenless = Arrays.stream(commandInfo.getArgs()).anyMatch(PEENLESS_ALIASES::contains);
-        textToTranslate = textToTranslate.replaceAll(String.join(" |", PEENLESS_ALIASES), "");
+        final boolean peenless = commandInfo.hasFlag(CommandFlags.NO_PINYIN);
 
         if (HELP_ALIASES.stream().anyMatch(textToTranslate::startsWith)) {
-            return help().singleton();
+            return CompletableFuture.completedFuture(help().singleton());
         }
 
         if (textToTranslate.length() > MAX_LENGTH) {
-            return DiscordMessage.newBuilder()
+            return CompletableFuture.completedFuture(DiscordMessage.newBuilder()
                     .withText(String.format("Message of length %d exceeds max length %d", textToTranslate.length(), MAX_LENGTH))
-                    .build().singleton();
+                    .build().singleton());
         }
 
         final List<String> parts = SPLITTER.splitToList(textToTranslate).stream().map(String::trim).collect(Collectors.toList());
         if (parts.size() == 0 || parts.size() > 2) {
-            return help().singleton();
+            return CompletableFuture.completedFuture(help().singleton());
         }
 
-        final String textOrTranslation = parts.get(0);
-        final TranslationRequest detectionRequest = TranslationRequest.newBuilder()
-                .addText(textOrTranslation)
-                .build();
-        try {
-            final DetectionResponse response = translateApi.detect(detectionRequest);
-            final boolean firstChinese = response.getLanguage().equalsIgnoreCase("zh-Hans");
-            String chinese = firstChinese ? parts.get(0) : parts.size() == 2 ? parts.get(1) : "";
-            String english = !firstChinese ? parts.get(0) : parts.size() == 2 ? parts.get(1) : "";
-            if (firstChinese && parts.size() == 1) {
-                english = translateApi.translate(TranslationRequest.newBuilder()
-                        .withSourceLanguage("zh-Hans")
-                        .addDestinationLanguage("en")
-                        .addText(parts.get(0))
-                        .build()).stream()
-                        .findFirst()
-                        .map(t -> t.getTranslations().get(0).getText())
-                        .orElse("");
-            } else if (parts.size() == 1) {
-                chinese = translateApi.translate(TranslationRequest.newBuilder()
-                        .withSourceLanguage("en")
-                        .addDestinationLanguage("zh-Hans")
-                        .addText(parts.get(0))
-                        .build()).stream()
+        // The calls form a graph: detection and a speculative translation of the first part in the direction the
+        // script suggests run together, the examples need both parts, and pinyin needs the examples
+        final long start = System.nanoTime();
+        final String first = parts.get(0);
+        final boolean guessChinese = ScriptLanguageDetector.detectLocally(first).getLanguage().equalsIgnoreCase("zh-Hans");
+        final CompletableFuture<DetectionResponse> detection = translateApi.detectAsync(TranslationRequest.newBuilder()
+                .addText(first)
+                .build());
+        final CompletableFuture<String> speculativeTranslation = parts.size() == 1
+                ? translate(first, guessChinese)
+                : CompletableFuture.completedFuture("");
+        detection.whenComplete((response, error) -> {
+            if (error != null) {
+                speculativeTranslation.cancel(true);
+            }
+        });
+
+        final CompletableFuture<Iterable<DiscordMessage>> result = detection
+                .thenComposeAsync(response -> {
+                    final boolean firstChinese = response.getLanguage().equalsIgnoreCase("zh-Hans");
+                    if (parts.size() == 2) {
+                        return examples(first, firstChinese ? first : parts.get(1), firstChinese ? parts.get(1) : first, peenless);
+                    }
+                    final CompletableFuture<String> translation;
+                    if (firstChinese == guessChinese) {
+                        translation = speculativeTranslation;
+                    } else {
+                        speculativeTranslation.cancel(true);
+                        translation = translate(first, firstChinese);
+                    }
+                    return translation.thenComposeAsync(translated -> firstChinese
+                            ? examples(first, first, translated, peenless)
+                            : examples(first, translated, first, peenless), executor);
+                }, executor)
+                .exceptionally(e -> {
+                    if (!AsyncCalls.isApiFailure(e)) {
+                        throw new CompletionException(AsyncCalls.unwrap(e));
+                    }
+                    return ApiFailures.reply(LOGGER, e);
+                });
+        result.whenComplete((messages, error) -> latency.recordNanos(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * @return end to end latency of commands that reached the translator API
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public int estimateCharacters(final CommandInfo commandInfo) {
+        final String text = Joiner.on(" ").join(commandInfo.getArgs());
+        if (HELP_ALIASES.stream().anyMatch(text::startsWith) || text.length() > MAX_LENGTH) {
+            return 0;
+        }
+        return text.length() * (commandInfo.hasFlag(CommandFlags.NO_PINYIN) ? CALLS_WITH_PINYIN - 1 : CALLS_WITH_PINYIN);
+    }
+
+    private CompletableFuture<String> translate(final String text, final boolean fromChinese) {
+        return fromChinese ? translate(text, "zh-Hans", "en") : translate(text, "en", "zh-Hans");
+    }
+
+    private CompletableFuture<String> translate(final String text, final String from, final String to) {
+        return translateApi.translateAsync(TranslationRequest.newBuilder()
+                .withSourceLanguage(from)
+                .addDestinationLanguage(to)
+                .addText(text)
+                .build())
+                .thenApply(responses -> responses.stream()
                         .findFirst()
                         .map(t -> t.getTranslations().get(0).getText())
-                        .orElse("");
-            }
+                        .orElse(""));
+    }
 
-            if (Strings.isNullOrEmpty(chinese) || Strings.isNullOrEmpty(english)) {
-                return DiscordMessage.newBuilder()
-                        .withText(String.format("Could not find translation for `%s`", parts.get(0)))
-                        .build().singleton();
-            }
+    private CompletableFuture<Iterable<DiscordMessage>> examples(final String original,
+                                                                 final String chinese,
+                                                                 final String english,
+                                                                 final boolean peenless) {
+        if (Strings.isNullOrEmpty(chinese) || Strings.isNullOrEmpty(english)) {
+            return CompletableFuture.completedFuture(DiscordMessage.newBuilder()
+                    .withText(String.format("Could not find translation for `%s`", original))
+                    .build().singleton());
+        }
 
-            final ExampleRequest exampleRequest = ExampleRequest.newBuilder()
-                    .withSourceLanguage("en")
-                    .withDestinationLanguage("zh-Hans")
-                    .withSourceText(english)
-                    .withDestinationTranslation(chinese)
-                    .build();
-            final ExampleResponse examples = translateApi.examples(exampleRequest);
+        final ExampleRequest exampleRequest = ExampleRequest.newBuilder()
+                .withSourceLanguage("en")
+                .withDestinationLanguage("zh-Hans")
+                .withSourceText(english)
+                .withDestinationTranslation(chinese)
+                .build();
+        return translateApi.examplesAsync(exampleRequest).thenComposeAsync(examples -> {
             if (examples.getExamples().size() == 0) {
-                return DiscordMessage.newBuilder()
+                return CompletableFuture.completedFuture(DiscordMessage.newBuilder()
                         .withText(String.format("I couldn\'t find any examples for `%s`, `%s`", chinese, english))
-                        .build().singleton();
+                        .build().singleton());
             }
 
             final Map<String, Example> chineseToExamples = examples.getExamples().stream()
                     .limit(MAX_EXAMPLES)
                     .collect(Collectors.toMap(Example::getTargetSentence, Function.identity()));
-            final Map<String, String> chineseToPinyin = new HashMap<>();
-            if (!peenless) {
-                final TranslationRequest pinyinRequest = TranslationRequest.newBuilder()
-                        .withSourceLanguage("zh-Hans")
-                        .addDestinationLanguage("zh-Latn")
-                        .withText(chineseToExamples.keySet())
-                        .build();
-                chineseToPinyin.putAll(translateApi.translate(pinyinRequest)
-                        .stream()
-                        .map(r -> r.getTranslations().stream().filter(t -> t.getTransliteration().filter(tl -> tl.getScript().equals("Latn")).isPresent()).findFirst().orElse(null))
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toMap(Translation::getText, t -> t.getTransliteration().map(Transliteration::getText).orElse(""))));
+            if (peenless) {
+                return CompletableFuture.completedFuture(format(chineseToExamples, Collections.emptyMap()));
             }
 
-            final List<String> translations = chineseToExamples.entrySet().stream()
-                    .map(e -> String.format("%s%s\n%s\n",
-                            chineseToPinyin.containsKey(e.getKey())
-                                    ? chineseToPinyin.get(e.getKey()) + "\n"
-                                    : "",
-                            e.getKey(),
-                            e.getValue().getSourceSentence()))
-                    .collect(Collectors.toList());
-
-            return DiscordMessage.newBuilder()
-                    .withText(String.format("```\n%s```", Joiner.on("\n").join(translations)))
-                    .build().singleton();
-        } catch (final IOException e) {
-            LOGGER.error("Exception reaching ms translator api", e);
-            return DiscordMessage.newBuilder()
-                    .withText("Failure to reach MS API")
-                    .build().singleton();
-        }
+            return transliterator.transliterate(chineseToExamples.keySet())
+                    .thenApplyAsync(pinyin -> format(chineseToExamples, pinyin), executor);
+        }, executor);
+    }
+
+    private Iterable<DiscordMessage> format(final Map<String, Example> chineseToExamples, final Map<String, String> chineseToPinyin) {
+        final List<String> translations = chineseToExamples.entrySet().stream()
+                .map(e -> String.format("%s%s\n%s\n",
+                        chineseToPinyin.containsKey(e.getKey())
+                                ? chineseToPinyin.get(e.getKey()) + "\n"
+                                : "",
+                        e.getKey(),
+                        e.getValue().getSourceSentence()))
+                .collect(Collectors.toList());
+
+        return DiscordMessage.newBuilder()
+                .withText(String.format("```\n%s```", Joiner.on("\n").join(translations)))
+                .build().singleton();
     }
 
     @Override
@@ -1,26 +1,30 @@
 package com.gmo.discord.hanyu.bot.command;
 
-import java.io.IOException;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.gmo.discord.hanyu.bot.api.TranslatorTextApi;
-import com.gmo.discord.hanyu.bot.api.entities.BackTranslation;
+import com.gmo.discord.hanyu.bot.api.AsyncCalls;
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.ScriptLanguageDetector;
 import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.BackTranslation;
 import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
 import com.gmo.discord.hanyu.bot.api.entities.DictionaryTranslation;
-import com.gmo.discord.hanyu.bot.api.entities.Translation;
 import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
-import com.gmo.discord.hanyu.bot.api.entities.Transliteration;
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+import com.gmo.discord.hanyu.bot.dictionary.DictionaryEntry;
+import com.gmo.discord.hanyu.bot.pinyin.Transliterator;
 import com.gmo.discord.support.command.CommandInfo;
 import com.gmo.discord.support.command.ICommand;
 import com.gmo.discord.support.message.DiscordMessage;
@@ -28,22 +32,50 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableSet;
 
 /**
- * {@link ICommand} which looks up an english or chinese term in a Chinese-English dictionary.
+ * {@link ICommand} which looks up an english or chinese term in a Chinese-English dictionary. Terms found in the local
+ * {@link CedictDictionary} are answered directly; anything else goes to the translator API, where the lookup is
+ * started alongside language detection in the direction the text's script suggests.
  *
  * @author tedelen
  */
-public class LookupCommand implements ICommand {
+public class LookupCommand implements ICommand, TranslatorCost {
     private static final Logger LOGGER = LoggerFactory.getLogger(TranslateCommand.class);
     private static final Set<String> ALIASES = ImmutableSet.of("lookup", "l");
-    private static final Set<String> PEENLESS_ALIASES = ImmutableSet.of("peenless", "pl", "no-pinyin", "np");
     private static final Set<String> HELP_ALIASES = ImmutableSet.of("help", "h");
 
     private static final int MAX_LENGTH = 200;
+    private static final int MAX_LOCAL_RESULTS = 8;
+    // Detection, the speculative lookup and a second one if it guessed wrong, then the results are transliterated
+    private static final int CALLS_WITH_PINYIN = 4;
+
+    private final AsyncTranslatorTextApi translateApi;
+    private final CedictDictionary dictionary;
+    private final Transliterator transliterator;
+    private final boolean speculative;
+    private final LongAdder speculativeHits = new LongAdder();
+    private final LongAdder speculativeMisses = new LongAdder();
+
+    public LookupCommand(final AsyncTranslatorTextApi translateApi, final CedictDictionary dictionary, final Transliterator transliterator) {
+        this(translateApi, dictionary, transliterator, true);
+    }
 
-    private final TranslatorTextApi translateApi;
-
-    public LookupCommand(final TranslatorTextApi translateApi) {
+    /**
+     * @param speculative whether to start the lookup alongside language detection, in the direction suggested by the
+     * script of the text, instead of waiting for detection to finish
+     */
+    public LookupCommand(final AsyncTranslatorTextApi translateApi,
+                         final CedictDictionary dictionary,
+                         final Transliterator transliterator,
+                         final boolean speculative) {
         this.translateApi = Objects.requireNonNull(translateApi, "Null translate API");
+        this.dictionary = Objects.requireNonNull(dictionary, "Null dictionary");
+        this.transliterator = Objects.requireNonNull(transliterator, "Null transliterator");
+        this.speculative = speculative;
+    }
+
+    @Override
+    public Set<String> getAliases() {
+        return ALIASES;
     }
 
     @Override
@@ -53,66 +85,127 @@ public class LookupCommand implements ICommand {
 
     @Override
     public Iterable<DiscordMessage> execute(final CommandInfo commandInfo) {
+        return executeAsync(commandInfo).join();
+    }
+
+    @Override
+    public CompletableFuture<Iterable<DiscordMessage>> executeAsync(final CommandInfo commandInfo) {
         if (!canHandle(commandInfo)) {
             throw new IllegalArgumentException("Invalid command, must call canHandle first");
         }
 
         String textToTranslate = Joiner.on(" ").join(commandInfo.getArgs());
-
-        final boolean peenless = Arrays.stream(commandInfo.getArgs()).anyMatch(PEENLESS_ALIASES::contains);
-        textToTranslate = textToTranslate.replaceAll(String.join(" |", PEENLESS_ALIASES), "");
+        final boolean peenless = commandInfo.hasFlag(CommandFlags.NO_PINYIN);
 
         if (HELP_ALIASES.stream().anyMatch(textToTranslate::equalsIgnoreCase)) {
-            return help().singleton();
+            return CompletableFuture.completedFuture(help().singleton());
         }
 
         if (textToTranslate.length() > MAX_LENGTH) {
-            return DiscordMessage.newBuilder()
+            return CompletableFuture.completedFuture(DiscordMessage.newBuilder()
                     .withText(String.format("Message of length %d exceeds max length %d", textToTranslate.length(), MAX_LENGTH))
-                    .build().singleton();
+                    .build().singleton());
+        }
+
+        final String text = textToTranslate.trim();
+        final List<DictionaryEntry> localEntries = lookupLocally(text);
+        if (!localEntries.isEmpty()) {
+            return CompletableFuture.completedFuture(format(localEntries, peenless));
         }
 
-        final TranslationRequest.Builder requestBuilder = TranslationRequest.newBuilder()
-                .addText(textToTranslate);
-        final Map<String, String> chineseToPinyinMap = new HashMap<>();
-        final DictionaryLookupResponse response;
-        try {
-            final DetectionResponse detectionResponse = translateApi.detect(requestBuilder.build());
-            response = translateApi.lookup(requestBuilder
-                    .withSourceLanguage(detectionResponse.getLanguage().equalsIgnoreCase("zh-Hans")
-                            ? "zh-Hans"
-                            : "en")
-                    .addDestinationLanguage(detectionResponse.getLanguage().equalsIgnoreCase("zh-Hans")
-                            ? "en"
-                            : "zh-Hans")
-                    .build());
-            if (!peenless && detectionResponse.getLanguage().equalsIgnoreCase("en")) {
-                final TranslationRequest pinyinRequest = TranslationRequest.newBuilder()
-                        .withSourceLanguage("zh-Hans")
-                        .addDestinationLanguage("zh-Latn")
-                        .withText(response.getTranslations().stream()
-                                .map(DictionaryTranslation::getNormalizedTarget)
-                                .collect(Collectors.toList()))
-                        .build();
-                if (!pinyinRequest.getText().isEmpty()) {
-                    chineseToPinyinMap.putAll(translateApi.translate(pinyinRequest)
-                            .stream()
-                            .map(r -> r.getTranslations().stream().filter(t -> t.getTransliteration().filter(tl -> tl.getScript().equals("Latn")).isPresent()).findFirst().orElse(null))
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toMap(Translation::getText, t -> t.getTransliteration().map(Transliteration::getText).orElse(""))));
-                } else {
-                    return DiscordMessage.newBuilder()
-                            .withText(String.format("I couldn\'t find a dictionary entry for `%s`", textToTranslate))
-                            .build().singleton();
+        // Speculatively start the lookup in the direction the script suggests while detection runs, and only
+        // look up again if detection disagrees
+        final boolean guessChinese = speculative
+                && ScriptLanguageDetector.detectLocally(text).getLanguage().equalsIgnoreCase("zh-Hans");
+        final CompletableFuture<DetectionResponse> detection = translateApi.detectAsync(TranslationRequest.newBuilder()
+                .addText(text)
+                .build());
+        final CompletableFuture<DictionaryLookupResponse> speculativeLookup = speculative ? lookup(text, guessChinese) : null;
+        if (speculativeLookup != null) {
+            detection.whenComplete((response, error) -> {
+                if (error != null) {
+                    speculativeLookup.cancel(true);
                 }
-            }
-        } catch (final IOException e) {
-            LOGGER.error("Exception reaching ms translator api", e);
-            return DiscordMessage.newBuilder()
-                    .withText("Failure to reach MS API")
-                    .build().singleton();
+            });
         }
 
+        return detection
+                .thenCompose(detectionResponse -> {
+                    final boolean chinese = detectionResponse.getLanguage().equalsIgnoreCase("zh-Hans");
+                    final CompletableFuture<DictionaryLookupResponse> lookup;
+                    if (speculativeLookup == null) {
+                        lookup = lookup(text, chinese);
+                    } else if (chinese == guessChinese) {
+                        speculativeHits.increment();
+                        lookup = speculativeLookup;
+                    } else {
+                        speculativeMisses.increment();
+                        speculativeLookup.cancel(true);
+                        lookup = lookup(text, chinese);
+                    }
+                    return lookup.thenCompose(response -> {
+                        if (!peenless && detectionResponse.getLanguage().equalsIgnoreCase("en")) {
+                            final List<String> targets = response.getTranslations().stream()
+                                    .map(DictionaryTranslation::getNormalizedTarget)
+                                    .collect(Collectors.toList());
+                            if (targets.isEmpty()) {
+                                return CompletableFuture.completedFuture(DiscordMessage.newBuilder()
+                                        .withText(String.format("I couldn\'t find a dictionary entry for `%s`", text))
+                                        .build().singleton());
+                            }
+                            return transliterator.transliterate(targets)
+                                    .thenApply(pinyin -> format(response, pinyin));
+                        }
+                        return CompletableFuture.completedFuture(format(response, Collections.emptyMap()));
+                    });
+                })
+                .exceptionally(e -> {
+                    if (!AsyncCalls.isApiFailure(e)) {
+                        throw new CompletionException(AsyncCalls.unwrap(e));
+                    }
+                    return ApiFailures.reply(LOGGER, e);
+                });
+    }
+
+    @Override
+    public int estimateCharacters(final CommandInfo commandInfo) {
+        final String text = Joiner.on(" ").join(commandInfo.getArgs());
+        if (HELP_ALIASES.stream().anyMatch(text::equalsIgnoreCase) || text.length() > MAX_LENGTH
+                || !lookupLocally(text.trim()).isEmpty()) {
+            return 0;
+        }
+        return text.trim().length() * (commandInfo.hasFlag(CommandFlags.NO_PINYIN) ? CALLS_WITH_PINYIN - 1 : CALLS_WITH_PINYIN);
+    }
+
+    /**
+     * @return how many speculative lookups were in the direction detection chose
+     */
+    public long getSpeculativeHitCount() {
+        return speculativeHits.sum();
+    }
+
+    /**
+     * @return how many speculative lookups were discarded because detection disagreed
+     */
+    public long getSpeculativeMissCount() {
+        return speculativeMisses.sum();
+    }
+
+    private List<DictionaryEntry> lookupLocally(final String text) {
+        return text.codePoints().anyMatch(cp -> Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN)
+                ? dictionary.lookupHeadword(text)
+                : dictionary.lookupEnglishGloss(text, MAX_LOCAL_RESULTS);
+    }
+
+    private CompletableFuture<DictionaryLookupResponse> lookup(final String text, final boolean fromChinese) {
+        return translateApi.lookupAsync(TranslationRequest.newBuilder()
+                .addText(text)
+                .withSourceLanguage(fromChinese ? "zh-Hans" : "en")
+                .addDestinationLanguage(fromChinese ? "en" : "zh-Hans")
+                .build());
+    }
+
+    private Iterable<DiscordMessage> format(final DictionaryLookupResponse response, final Map<String, String> chineseToPinyinMap) {
         final List<String> translations = response.getTranslations()
                 .stream()
                 .sorted(Comparator.comparingDouble(DictionaryTranslation::getConfidence).reversed())
@@ -131,6 +224,19 @@ public class LookupCommand implements ICommand {
                 .build().singleton();
     }
 
+    private Iterable<DiscordMessage> format(final List<DictionaryEntry> entries, final boolean peenless) {
+        final List<String> lines = entries.stream()
+                .map(e -> String.format("%s%s%s\n\t%s", e.getSimplified(),
+                        e.getTraditional().equals(e.getSimplified()) ? "" : " [" + e.getTraditional() + "]",
+                        peenless ? "" : " " + e.getToneMarkedPinyin(),
+                        String.join("; ", e.getDefinitions())))
+                .collect(Collectors.toList());
+
+        return DiscordMessage.newBuilder()
+                .withText(String.format("```\n%s```", Joiner.on("\n").join(lines)))
+                .build().singleton();
+    }
+
     @Override
     public DiscordMessage help() {
         return DiscordMessage.newBuilder()
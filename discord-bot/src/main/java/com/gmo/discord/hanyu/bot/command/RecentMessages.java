@@ -0,0 +1,158 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * The last few messages seen in each channel, so {@link TranslateCommand} can find the message to translate without
+ * fetching the channel history. Each channel keeps a fixed-size ring of message contents, oldest overwritten first.
+ * Channels are evicted once idle, and the least recently used ones are evicted when the total number of characters
+ * held exceeds the cap.
+ */
+public final class RecentMessages {
+    // Rough per-message overhead in characters, so channels full of short messages still count against the cap
+    private static final int MESSAGE_OVERHEAD = 16;
+
+    private final int depth;
+    private final ConcurrentMap<Long, Ring> rings;
+
+    private RecentMessages(final Builder builder) {
+        depth = builder.depth;
+        rings = CacheBuilder.newBuilder()
+                .ticker(builder.ticker)
+                .expireAfterAccess(builder.idleNanos, TimeUnit.NANOSECONDS)
+                .maximumWeight(builder.maxCharacters)
+                .<Long, Ring>weigher((channelId, ring) -> ring.weight())
+                .build()
+                .asMap();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Records a message which isn't a command. Messages with no text, such as bare attachments, are ignored.
+     */
+    public void add(final long channelId, final String content, final boolean fromBot) {
+        if (content.isEmpty()) {
+            return;
+        }
+        // Replacing the value makes the cache weigh the ring again
+        rings.compute(channelId, (id, ring) -> {
+            final Ring target = ring == null ? new Ring(depth) : ring;
+            target.add(content, fromBot);
+            return target;
+        });
+    }
+
+    /**
+     * @return the newest message in the channel not sent by a bot
+     */
+    public Optional<String> getLastHumanMessage(final long channelId) {
+        final Ring ring = rings.get(channelId);
+        return ring == null ? Optional.empty() : Optional.ofNullable(ring.lastHumanMessage());
+    }
+
+    public long getChannelCount() {
+        return rings.size();
+    }
+
+    private static final class Ring {
+        private final String[] contents;
+        private final boolean[] fromBot;
+        private int next;
+        private int size;
+        private int characters;
+
+        private Ring(final int depth) {
+            contents = new String[depth];
+            fromBot = new boolean[depth];
+        }
+
+        private synchronized void add(final String content, final boolean bot) {
+            if (size == contents.length) {
+                characters -= contents[next].length();
+            } else {
+                size++;
+            }
+            contents[next] = content;
+            fromBot[next] = bot;
+            characters += content.length();
+            next = (next + 1) % contents.length;
+        }
+
+        private synchronized String lastHumanMessage() {
+            for (int i = 1; i <= size; i++) {
+                final int index = (next - i + contents.length) % contents.length;
+                if (!fromBot[index]) {
+                    return contents[index];
+                }
+            }
+            return null;
+        }
+
+        private synchronized int weight() {
+            return characters + size * MESSAGE_OVERHEAD;
+        }
+    }
+
+    public static final class Builder {
+        private int depth;
+        private long maxCharacters;
+        private long idleNanos;
+        private Ticker ticker;
+
+        private Builder() {
+            depth = 20;
+            maxCharacters = 5_000_000;
+            idleNanos = TimeUnit.HOURS.toNanos(1);
+            ticker = Ticker.systemTicker();
+        }
+
+        /**
+         * @param val number of messages remembered per channel
+         */
+        public Builder withDepth(final int val) {
+            depth = val;
+            return this;
+        }
+
+        /**
+         * @param val total characters held across all channels before the least recently used are evicted
+         */
+        public Builder withMaxCharacters(final long val) {
+            maxCharacters = val;
+            return this;
+        }
+
+        /**
+         * @param duration time without messages after which a channel is forgotten
+         */
+        public Builder withIdleTimeout(final long duration, final TimeUnit unit) {
+            idleNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder withTicker(final Ticker val) {
+            ticker = val;
+            return this;
+        }
+
+        public RecentMessages build() {
+            Preconditions.checkArgument(depth > 0, "Depth must be positive");
+            Preconditions.checkArgument(maxCharacters > 0, "Max characters must be positive");
+            Preconditions.checkArgument(idleNanos > 0, "Idle timeout must be positive");
+            requireNonNull(ticker, "Null ticker");
+
+            return new RecentMessages(this);
+        }
+    }
+}
@@ -1,49 +1,63 @@
 package com.gmo.discord.hanyu.bot.command;
 
 
-import java.io.IOException;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.gmo.discord.hanyu.bot.api.TranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.AsyncCalls;
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
 import com.gmo.discord.hanyu.bot.api.entities.Translation;
 import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
 import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
 import com.gmo.discord.hanyu.bot.api.entities.Transliteration;
+import com.gmo.discord.hanyu.bot.pinyin.Transliterator;
 import com.gmo.discord.support.command.CommandInfo;
 import com.gmo.discord.support.command.ICommand;
 import com.gmo.discord.support.message.DiscordMessage;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import sx.blah.discord.handle.obj.IMessage;
 
 /**
  * {@link ICommand} which translates a detected language into Mandarin, pinyin, and English.
  *
  * @author tedelen
  */
-public class TranslateCommand implements ICommand {
+public class TranslateCommand implements ICommand, TranslatorCost {
     private static final Logger LOGGER = LoggerFactory.getLogger(TranslateCommand.class);
     private static final Set<String> ALIASES = ImmutableSet.of("translate", "t", "tranny");
-    private static final Set<String> PEENLESS_ALIASES = ImmutableSet.of("peenless", "pl", "no-pinyin", "np");
     private static final Set<String> HELP_ALIASES = ImmutableSet.of("help", "h");
 
     private static final int MAX_LENGTH = 200;
-
-    private final TranslatorTextApi translateApi;
-
-    public TranslateCommand(final TranslatorTextApi translateApi) {
+    // Translated into two languages, then the Chinese is transliterated
+    private static final int CALLS_WITH_PINYIN = 3;
+
+    private final AsyncTranslatorTextApi translateApi;
+    private final Transliterator transliterator;
+    private final RecentMessages recentMessages;
+
+    /**
+     * @param recentMessages where an argumentless command finds the message to translate; the caller feeds it
+     */
+    public TranslateCommand(final AsyncTranslatorTextApi translateApi, final Transliterator transliterator,
+                            final RecentMessages recentMessages) {
         this.translateApi = Objects.requireNonNull(translateApi, "Null translate API");
+        this.transliterator = Objects.requireNonNull(transliterator, "Null transliterator");
+        this.recentMessages = Objects.requireNonNull(recentMessages, "Null recent messages");
+    }
+
+    @Override
+    public Set<String> getAliases() {
+        return ALIASES;
     }
 
     @Override
@@ -53,67 +67,95 @@ public class TranslateCommand implements ICommand {
 
     @Override
     public Iterable<DiscordMessage> execute(final CommandInfo commandInfo) {
+        return executeAsync(commandInfo).join();
+    }
+
+    @Override
+    public CompletableFuture<Iterable<DiscordMessage>> executeAsync(final CommandInfo commandInfo) {
         if (!canHandle(commandInfo)) {
             throw new IllegalArgumentException("Invalid command, must call canHandle first");
         }
 
         String textToTranslate = Joiner.on(" ").join(commandInfo.getArgs());
-
-        final boolean peenless = Arrays.stream(commandInfo.getArgs()).anyMatch(PEENLESS_ALIASES::contains);
-        textToTranslate = textToTranslate.replaceAll(String.join(" |", PEENLESS_ALIASES), "");
+        final boolean peenless = commandInfo.hasFlag(CommandFlags.NO_PINYIN);
 
         if (HELP_ALIASES.stream().anyMatch(textToTranslate::equalsIgnoreCase)) {
-            return help().singleton();
+            return CompletableFuture.completedFuture(help().singleton());
         }
 
         if (textToTranslate.trim().isEmpty()) {
-            textToTranslate = commandInfo.getChannel().getMessageHistory(20).stream()
-                    .filter(m -> !m.getAuthor().isBot()
-                                    && m != commandInfo.getMessage()
-                                    && !m.getContent().startsWith(commandInfo.getMessage().getContent().trim().substring(0, 1)))
-                    .max(Comparator.comparingLong(t -> t.getTimestamp().toEpochSecond(ZoneOffset.UTC)))
-                    .map(IMessage::getContent)
-                    .orElse(textToTranslate.trim());
+            textToTranslate = lastMessage(commandInfo);
 
             if (Strings.isNullOrEmpty(textToTranslate)) {
-                return DiscordMessage.newBuilder()
+                return CompletableFuture.completedFuture(DiscordMessage.newBuilder()
                         .withText("Could not find a recent message to translate. Bot messages and commands are ignored.")
-                        .build().singleton();
+                        .build().singleton());
             }
         }
 
         if (textToTranslate.length() > MAX_LENGTH) {
-            return DiscordMessage.newBuilder()
+            return CompletableFuture.completedFuture(DiscordMessage.newBuilder()
                     .withText(String.format("Message of length %d exceeds max length %d", textToTranslate.length(), MAX_LENGTH))
-                    .build().singleton();
-        }
-
-        final TranslationRequest.Builder requestBuilder = TranslationRequest.newBuilder()
-                .addText(textToTranslate);
-
-        if (!peenless) {
-            requestBuilder.addDestinationLanguage("zh-Latn");
+                    .build().singleton());
         }
 
-        final TranslationRequest request = requestBuilder
+        final TranslationRequest request = TranslationRequest.newBuilder()
+                .addText(textToTranslate)
                 .addDestinationLanguage("zh-Hans")
                 .addDestinationLanguage("en")
                 .build();
-        final TranslationResponse translate;
-        try {
-            translate = Iterables.getOnlyElement(translateApi.translate(request));
-        } catch (final IOException e) {
-            LOGGER.error("Exception reaching ms translator api", e);
-            return DiscordMessage.newBuilder()
-                    .withText("Failure to reach MS API")
-                    .build().singleton();
-        }
+        return translateApi.translateAsync(request)
+                .thenCompose(responses -> {
+                    final TranslationResponse translate = Iterables.getOnlyElement(responses);
+                    final List<String> translations = new ArrayList<>();
+                    for (final Translation t : translate.getTranslations()) {
+                        translations.add(t.getTransliteration().map(Transliteration::getText).orElse(t.getText()));
+                    }
+                    final String chinese = translate.getTranslations().stream()
+                            .filter(t -> t.getDestinationLanguage().equalsIgnoreCase("zh-Hans"))
+                            .map(Translation::getText)
+                            .findFirst()
+                            .orElse(null);
+                    if (peenless || chinese == null) {
+                        return CompletableFuture.completedFuture(format(translations));
+                    }
+
+                    return transliterator.transliterate(ImmutableList.of(chinese))
+                            .thenApply(pinyin -> {
+                                if (pinyin.containsKey(chinese)) {
+                                    translations.add(0, pinyin.get(chinese));
+                                }
+                                return format(translations);
+                            });
+                })
+                .exceptionally(e -> {
+                    if (!AsyncCalls.isApiFailure(e)) {
+                        throw new CompletionException(AsyncCalls.unwrap(e));
+                    }
+                    return ApiFailures.reply(LOGGER, e);
+                });
+    }
 
-        final List<String> translations = new ArrayList<>();
-        for (final Translation t : translate.getTranslations()) {
-            translations.add(t.getTransliteration().map(Transliteration::getText).orElse(t.getText()));
+    @Override
+    public int estimateCharacters(final CommandInfo commandInfo) {
+        String text = Joiner.on(" ").join(commandInfo.getArgs());
+        if (HELP_ALIASES.stream().anyMatch(text::equalsIgnoreCase)) {
+            return 0;
         }
+        if (text.trim().isEmpty()) {
+            text = lastMessage(commandInfo);
+        }
+        if (text.length() > MAX_LENGTH) {
+            return 0;
+        }
+        return text.length() * (commandInfo.hasFlag(CommandFlags.NO_PINYIN) ? CALLS_WITH_PINYIN - 1 : CALLS_WITH_PINYIN);
+    }
+
+    private String lastMessage(final CommandInfo commandInfo) {
+        return recentMessages.getLastHumanMessage(commandInfo.getChannel().getLongID()).orElse("");
+    }
 
+    private Iterable<DiscordMessage> format(final List<String> translations) {
         return DiscordMessage.newBuilder()
                 .withText(String.format("```\n%s```", Joiner.on("\n").join(translations)))
                 .build().singleton();
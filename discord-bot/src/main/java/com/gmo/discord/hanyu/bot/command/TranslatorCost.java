@@ -0,0 +1,15 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import com.gmo.discord.support.command.CommandInfo;
+
+/**
+ * A command which can say up front how much of the translator quota it will use, so a guild's budget can be charged
+ * before the command runs.
+ */
+public interface TranslatorCost {
+    /**
+     * @return an upper bound on the characters the command will send to the translator API: its text times the
+     * number of calls, and destination languages, that carry it; 0 if it won't call the API at all
+     */
+    int estimateCharacters(CommandInfo commandInfo);
+}
@@ -0,0 +1,307 @@
+package com.gmo.discord.hanyu.bot.dictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+
+/**
+ * In-memory index over a CC-CEDICT format dictionary. Headwords, both simplified and traditional, are held in a
+ * {@link HeadwordTrie}; English glosses are tokenized into an inverted index of entry ids.
+ */
+public final class CedictDictionary {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CedictDictionary.class);
+    private static final String DEFAULT_RESOURCE = "cedict_ts.u8";
+    private static final int NO_GLOSS_MATCH = 128;
+    private static final Set<String> STOP_WORDS = ImmutableSet.of("a", "an", "the", "to", "of", "sb", "sth", "cl", "etc");
+
+    private final List<DictionaryEntry> entries;
+    private final HeadwordTrie headwords;
+    private final Map<String, int[]> glossIndex;
+
+    private CedictDictionary(final List<DictionaryEntry> entries, final HeadwordTrie headwords, final Map<String, int[]> glossIndex) {
+        this.entries = entries;
+        this.headwords = headwords;
+        this.glossIndex = glossIndex;
+    }
+
+    /**
+     * Loads the dictionary bundled on the classpath.
+     */
+    public static CedictDictionary fromResource() throws IOException {
+        try (final InputStream in = Resources.getResource(DEFAULT_RESOURCE).openStream()) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Loads a dictionary file, which may be gzipped if its name ends in {@code .gz}.
+     */
+    public static CedictDictionary fromFile(final Path path) throws IOException {
+        try (final InputStream in = Files.newInputStream(path)) {
+            return load(path.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in) : in);
+        }
+    }
+
+    public static CedictDictionary load(final InputStream in) throws IOException {
+        final long start = System.nanoTime();
+        final List<DictionaryEntry> entries = new ArrayList<>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            final DictionaryEntry entry = parse(line);
+            if (entry == null) {
+                LOGGER.warn("Skipping malformed dictionary line {}: {}", lineNumber, line);
+            } else {
+                entries.add(entry);
+            }
+        }
+
+        final HeadwordTrie.Builder trieBuilder = HeadwordTrie.newBuilder();
+        final Map<String, List<Integer>> postings = new HashMap<>();
+        for (int id = 0; id < entries.size(); id++) {
+            final DictionaryEntry entry = entries.get(id);
+            trieBuilder.put(entry.getSimplified(), id);
+            if (!entry.getTraditional().equals(entry.getSimplified())) {
+                trieBuilder.put(entry.getTraditional(), id);
+            }
+            for (final String token : glossTokens(entry)) {
+                postings.computeIfAbsent(token, k -> new ArrayList<>(2)).add(id);
+            }
+        }
+        final Map<String, int[]> glossIndex = new HashMap<>(postings.size() * 4 / 3 + 1);
+        postings.forEach((token, ids) -> glossIndex.put(token, ids.stream().mapToInt(Integer::intValue).toArray()));
+
+        final HeadwordTrie trie = trieBuilder.build();
+        LOGGER.info("Loaded {} dictionary entries ({} trie nodes, {} gloss terms) in {} ms", entries.size(),
+                trie.nodeCount(), glossIndex.size(), (System.nanoTime() - start) / 1_000_000);
+        return new CedictDictionary(ImmutableList.copyOf(entries), trie, glossIndex);
+    }
+
+    /**
+     * @return entries whose simplified or traditional headword is exactly {@code headword}, in file order
+     */
+    public List<DictionaryEntry> lookupHeadword(final String headword) {
+        final int[] ids = headwords.get(headword);
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+        final Set<DictionaryEntry> results = new LinkedHashSet<>();
+        for (final int id : ids) {
+            results.add(entries.get(id));
+        }
+        return ImmutableList.copyOf(results);
+    }
+
+    /**
+     * Finds entries with a gloss containing every word of {@code english}. Entries with a gloss equal to the query
+     * rank first, then those with a gloss starting with it, then the rest; shorter headwords win remaining ties.
+     *
+     * @return at most {@code limit} entries
+     */
+    public List<DictionaryEntry> lookupEnglish(final String english, final int limit) {
+        return lookupEnglish(english, limit, false);
+    }
+
+    /**
+     * As {@link #lookupEnglish(String, int)}, but finds nothing unless some entry has a gloss equal to, or starting
+     * with, the query. Entries which only mention its words somewhere in a gloss are a poor answer on their own.
+     *
+     * @return at most {@code limit} entries
+     */
+    public List<DictionaryEntry> lookupEnglishGloss(final String english, final int limit) {
+        return lookupEnglish(english, limit, true);
+    }
+
+    private List<DictionaryEntry> lookupEnglish(final String english, final int limit, final boolean requireGlossMatch) {
+        final String query = normalizeGloss(english);
+        final List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int[] ids = null;
+        for (final String token : tokens) {
+            final int[] postings = glossIndex.get(token);
+            if (postings == null) {
+                return Collections.emptyList();
+            }
+            ids = ids == null ? postings : intersect(ids, postings);
+            if (ids.length == 0) {
+                return Collections.emptyList();
+            }
+        }
+
+        final List<DictionaryEntry> results = Arrays.stream(ids)
+                .mapToObj(entries::get)
+                .sorted(Comparator.<DictionaryEntry>comparingInt(e -> glossRank(e, query))
+                        .thenComparingInt(e -> e.getSimplified().length()))
+                .limit(limit)
+                .collect(Collectors.toList());
+        if (requireGlossMatch && !results.isEmpty() && glossRank(results.get(0), query) >= NO_GLOSS_MATCH) {
+            return Collections.emptyList();
+        }
+        return results;
+    }
+
+    /**
+     * @return length in chars of the longest headword starting at {@code start} in {@code text}, or 0 if none does
+     */
+    public int longestHeadword(final CharSequence text, final int start) {
+        return headwords.longestMatch(text, start);
+    }
+
+    /**
+     * @return all entries in file order
+     */
+    public List<DictionaryEntry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Parses {@code Traditional Simplified [pin1 yin1] /gloss/gloss/}.
+     */
+    static DictionaryEntry parse(final String line) {
+        final int firstSpace = line.indexOf(' ');
+        final int secondSpace = firstSpace < 0 ? -1 : line.indexOf(' ', firstSpace + 1);
+        final int pinyinStart = secondSpace < 0 ? -1 : line.indexOf('[', secondSpace);
+        final int pinyinEnd = pinyinStart < 0 ? -1 : line.indexOf(']', pinyinStart);
+        final int glossStart = pinyinEnd < 0 ? -1 : line.indexOf('/', pinyinEnd);
+        final int glossEnd = line.lastIndexOf('/');
+        if (glossStart < 0 || glossEnd <= glossStart) {
+            return null;
+        }
+
+        final List<String> definitions = new ArrayList<>();
+        int start = glossStart + 1;
+        for (int i = start; i <= glossEnd; i++) {
+            if (line.charAt(i) == '/') {
+                if (i > start) {
+                    definitions.add(line.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return new DictionaryEntry(line.substring(0, firstSpace), line.substring(firstSpace + 1, secondSpace),
+                line.substring(pinyinStart + 1, pinyinEnd), definitions);
+    }
+
+    private static Set<String> glossTokens(final DictionaryEntry entry) {
+        final Set<String> tokens = new LinkedHashSet<>();
+        for (final String definition : entry.getDefinitions()) {
+            if (!definition.startsWith("CL:")) {
+                tokens.addAll(tokenize(normalizeGloss(definition)));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Exact matches beat prefix matches, which beat the rest ({@link #NO_GLOSS_MATCH}); within a class an earlier
+     * (more primary) gloss wins.
+     */
+    private static int glossRank(final DictionaryEntry entry, final String query) {
+        int rank = Integer.MAX_VALUE;
+        final List<String> definitions = entry.getDefinitions();
+        for (int i = 0; i < definitions.size(); i++) {
+            final String gloss = normalizeGloss(definitions.get(i));
+            final int position = Math.min(i, 63);
+            if (gloss.equals(query)) {
+                rank = Math.min(rank, position);
+            } else if (gloss.startsWith(query)) {
+                rank = Math.min(rank, 64 + position);
+            }
+        }
+        return rank == Integer.MAX_VALUE ? NO_GLOSS_MATCH : rank;
+    }
+
+    /**
+     * Lower cases and drops parenthesized notes and a leading infinitive "to".
+     */
+    private static String normalizeGloss(final String gloss) {
+        final StringBuilder sb = new StringBuilder(gloss.length());
+        int depth = 0;
+        for (int i = 0; i < gloss.length(); i++) {
+            final char c = gloss.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        String normalized = sb.toString().trim();
+        if (normalized.startsWith("to ")) {
+            normalized = normalized.substring(3).trim();
+        }
+        return normalized;
+    }
+
+    private static List<String> tokenize(final String text) {
+        final List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            final boolean wordChar = i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '\'');
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                final String token = text.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static int[] intersect(final int[] a, final int[] b) {
+        final int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
@@ -0,0 +1,72 @@
+package com.gmo.discord.hanyu.bot.dictionary;
+
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A single CC-CEDICT entry. Pinyin is kept in the file's numbered form, e.g. {@code ni3 hao3}.
+ */
+public final class DictionaryEntry {
+    private final String traditional;
+    private final String simplified;
+    private final String pinyin;
+    private final List<String> definitions;
+
+    DictionaryEntry(final String traditional, final String simplified, final String pinyin, final List<String> definitions) {
+        this.traditional = traditional;
+        this.simplified = simplified;
+        this.pinyin = pinyin;
+        this.definitions = ImmutableList.copyOf(definitions);
+    }
+
+    public String getTraditional() {
+        return traditional;
+    }
+
+    public String getSimplified() {
+        return simplified;
+    }
+
+    public String getPinyin() {
+        return pinyin;
+    }
+
+    /**
+     * @return the pinyin with tone marks, e.g. {@code nǐ hǎo}
+     */
+    public String getToneMarkedPinyin() {
+        return Pinyin.toToneMarks(pinyin);
+    }
+
+    public List<String> getDefinitions() {
+        return definitions;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DictionaryEntry that = (DictionaryEntry) o;
+        return Objects.equals(traditional, that.traditional) &&
+                Objects.equals(simplified, that.simplified) &&
+                Objects.equals(pinyin, that.pinyin) &&
+                Objects.equals(definitions, that.definitions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(traditional, simplified, pinyin, definitions);
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryEntry{" +
+                "traditional='" + traditional + '\'' +
+                ", simplified='" + simplified + '\'' +
+                ", pinyin='" + pinyin + '\'' +
+                ", definitions=" + definitions +
+                '}';
+    }
+}
@@ -0,0 +1,147 @@
+package com.gmo.discord.hanyu.bot.dictionary;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie over headwords, keyed by code point and flattened into parallel primitive arrays. The edges of a
+ * node are contiguous and sorted, so a transition is a binary search. Each node maps to the ids of the entries whose
+ * headword ends there.
+ */
+final class HeadwordTrie {
+    private static final int[] NO_VALUES = new int[0];
+
+    private final int[] firstEdge;
+    private final int[] edgeCodePoints;
+    private final int[] edgeTargets;
+    private final int[][] values;
+
+    private HeadwordTrie(final int[] firstEdge, final int[] edgeCodePoints, final int[] edgeTargets, final int[][] values) {
+        this.firstEdge = firstEdge;
+        this.edgeCodePoints = edgeCodePoints;
+        this.edgeTargets = edgeTargets;
+        this.values = values;
+    }
+
+    static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return ids stored for exactly this key, or an empty array
+     */
+    int[] get(final CharSequence key) {
+        int node = 0;
+        for (int i = 0; i < key.length() && node >= 0; ) {
+            final int codePoint = Character.codePointAt(key, i);
+            node = child(node, codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return node < 0 || values[node] == null ? NO_VALUES : values[node];
+    }
+
+    /**
+     * @return length in chars of the longest key which starts at {@code start} in {@code text}, or 0 if none does
+     */
+    int longestMatch(final CharSequence text, final int start) {
+        int node = 0;
+        int longest = 0;
+        for (int i = start; i < text.length(); ) {
+            final int codePoint = Character.codePointAt(text, i);
+            node = child(node, codePoint);
+            if (node < 0) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+            if (values[node] != null) {
+                longest = i - start;
+            }
+        }
+        return longest;
+    }
+
+    int nodeCount() {
+        return values.length;
+    }
+
+    private int child(final int node, final int codePoint) {
+        int low = firstEdge[node];
+        int high = firstEdge[node + 1] - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midCodePoint = edgeCodePoints[mid];
+            if (midCodePoint < codePoint) {
+                low = mid + 1;
+            } else if (midCodePoint > codePoint) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    static final class Builder {
+        private final Node root = new Node();
+        private int nodes = 1;
+
+        private Builder() { }
+
+        Builder put(final CharSequence key, final int value) {
+            Node node = root;
+            for (int i = 0; i < key.length(); ) {
+                final int codePoint = Character.codePointAt(key, i);
+                Node next = node.children.get(codePoint);
+                if (next == null) {
+                    next = new Node();
+                    node.children.put(codePoint, next);
+                    nodes++;
+                }
+                node = next;
+                i += Character.charCount(codePoint);
+            }
+            node.values.add(value);
+            return this;
+        }
+
+        /**
+         * Numbers nodes breadth first so that each node's children, and therefore its edges, are contiguous.
+         */
+        HeadwordTrie build() {
+            final int[] firstEdge = new int[nodes + 1];
+            final int[] edgeCodePoints = new int[nodes - 1];
+            final int[] edgeTargets = new int[nodes - 1];
+            final int[][] values = new int[nodes][];
+
+            final Deque<Node> queue = new ArrayDeque<>();
+            queue.add(root);
+            int id = 0;
+            int nextId = 1;
+            while (!queue.isEmpty()) {
+                final Node node = queue.poll();
+                firstEdge[id] = nextId - 1;
+                if (!node.values.isEmpty()) {
+                    values[id] = node.values.stream().mapToInt(Integer::intValue).toArray();
+                }
+                for (final Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                    edgeCodePoints[nextId - 1] = child.getKey();
+                    edgeTargets[nextId - 1] = nextId;
+                    queue.add(child.getValue());
+                    nextId++;
+                }
+                id++;
+            }
+            firstEdge[nodes] = nodes - 1;
+            return new HeadwordTrie(firstEdge, edgeCodePoints, edgeTargets, values);
+        }
+    }
+
+    private static final class Node {
+        private final TreeMap<Integer, Node> children = new TreeMap<>();
+        private final List<Integer> values = new ArrayList<>(1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.gmo.discord.hanyu.bot.dictionary;
+
+/**
+ * Converts CC-CEDICT numbered pinyin ({@code lu:4 cha2}) to tone-marked pinyin ({@code lǜ chá}).
+ */
+public final class Pinyin {
+    private static final String[] TONED_A = {"a", "ā", "á", "ǎ", "à"};
+    private static final String[] TONED_E = {"e", "ē", "é", "ě", "è"};
+    private static final String[] TONED_I = {"i", "ī", "í", "ǐ", "ì"};
+    private static final String[] TONED_O = {"o", "ō", "ó", "ǒ", "ò"};
+    private static final String[] TONED_U = {"u", "ū", "ú", "ǔ", "ù"};
+    private static final String[] TONED_V = {"ü", "ǖ", "ǘ", "ǚ", "ǜ"};
+
+    private Pinyin() { }
+
+    /**
+     * @param numbered space separated syllables, each optionally ending in a tone number 1-5
+     */
+    public static String toToneMarks(final String numbered) {
+        final StringBuilder sb = new StringBuilder(numbered.length());
+        int start = 0;
+        for (int i = 0; i <= numbered.length(); i++) {
+            if (i == numbered.length() || numbered.charAt(i) == ' ') {
+                appendSyllable(sb, numbered, start, i);
+                if (i < numbered.length()) {
+                    sb.append(' ');
+                }
+                start = i + 1;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends a single numbered syllable, e.g. {@code Zhong1}, with its tone mark.
+     */
+    static void appendSyllable(final StringBuilder sb, final CharSequence text, final int start, final int end) {
+        if (start >= end) {
+            return;
+        }
+        final char last = text.charAt(end - 1);
+        final int tone = last >= '1' && last <= '5' ? last - '0' : 0;
+        final int syllableEnd = tone == 0 ? end : end - 1;
+        final int markAt = tone == 0 || tone == 5 ? -1 : markPosition(text, start, syllableEnd);
+
+        for (int i = start; i < syllableEnd; i++) {
+            final char c = text.charAt(i);
+            final boolean umlaut = (c == 'u' || c == 'U') && i + 1 < syllableEnd && text.charAt(i + 1) == ':';
+            final String vowel = toned(Character.toLowerCase(c), umlaut, i == markAt ? tone : 0);
+            if (vowel == null) {
+                sb.append(c);
+            } else {
+                sb.append(Character.isUpperCase(c) ? vowel.toUpperCase() : vowel);
+            }
+            if (umlaut) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Standard placement: a or e take the mark, then the o of ou, otherwise the last vowel.
+     */
+    private static int markPosition(final CharSequence text, final int start, final int end) {
+        int lastVowel = -1;
+        for (int i = start; i < end; i++) {
+            final char c = Character.toLowerCase(text.charAt(i));
+            if (c == 'a' || c == 'e') {
+                return i;
+            }
+            if (c == 'o' && i + 1 < end && Character.toLowerCase(text.charAt(i + 1)) == 'u') {
+                return i;
+            }
+            if (c == 'i' || c == 'o' || c == 'u' || c == 'v') {
+                lastVowel = i;
+            }
+        }
+        return lastVowel;
+    }
+
+    private static String toned(final char c, final boolean umlaut, final int tone) {
+        final int index = tone >= 1 && tone <= 4 ? tone : 0;
+        switch (c) {
+            case 'a': return TONED_A[index];
+            case 'e': return TONED_E[index];
+            case 'i': return TONED_I[index];
+            case 'o': return TONED_O[index];
+            case 'u': return umlaut ? TONED_V[index] : TONED_U[index];
+            case 'v': return TONED_V[index];
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.DETECTION_RESPONSE_READER;
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.DICTIONARY_EXAMPLE_RESPONSE_READER;
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.DICTIONARY_LOOKUP_RESPONSE_READER;
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.TRANSLATION_RESPONSE_READER;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.gmo.discord.hanyu.bot.api.AsyncCalls;
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.collect.Iterables;
+
+/**
+ * {@link AsyncTranslatorTextApi} backed by a non-blocking {@link HttpAsyncClient}. Responses are decoded and futures
+ * completed on the callback executor, never on the client's I/O threads. Unless a client is supplied, the builder
+ * creates and starts a pooled keep-alive client which this instance owns and releases on {@link #close()}. Calls which
+ * miss their deadline fail with an {@link InterruptedIOException} and are cancelled.
+ */
+public class AsyncMicrosoftTranslatorTextApi implements AsyncTranslatorTextApi, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncMicrosoftTranslatorTextApi.class);
+
+    private final HttpAsyncClient httpClient;
+    private final PoolingNHttpClientConnectionManager connectionManager;
+    private final ScheduledFuture<?> evictor;
+    private final long callTimeoutMillis;
+    private final Executor callbackExecutor;
+    private final MicrosoftApiRequests requests;
+
+    private AsyncMicrosoftTranslatorTextApi(final Builder builder) {
+        if (builder.httpClient != null) {
+            httpClient = builder.httpClient;
+            connectionManager = null;
+            evictor = null;
+        } else {
+            connectionManager = newConnectionManager(builder.transport);
+            final CloseableHttpAsyncClient pooledClient = HttpAsyncClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(builder.transport.requestConfig())
+                    .setKeepAliveStrategy(builder.transport.keepAliveStrategy())
+                    .build();
+            pooledClient.start();
+            httpClient = pooledClient;
+            final long idleTimeoutMillis = builder.transport.idleTimeoutMillis;
+            evictor = builder.transport.scheduleEviction(() -> {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            });
+        }
+        callTimeoutMillis = builder.transport.callTimeoutMillis;
+        callbackExecutor = builder.callbackExecutor;
+        requests = new MicrosoftApiRequests(builder.apiHost, builder.apiKeySupplier);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+        try {
+            return execute(requests.translate(request), TRANSLATION_RESPONSE_READER);
+        } catch (final IOException e) {
+            return AsyncCalls.failed(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+        try {
+            final CompletableFuture<List<DetectionResponse>> call = execute(requests.detect(request), DETECTION_RESPONSE_READER);
+            return AsyncCalls.cancelling(call.thenApply(Iterables::getOnlyElement), call);
+        } catch (final IOException e) {
+            return AsyncCalls.failed(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+        try {
+            final CompletableFuture<List<DictionaryLookupResponse>> call = execute(requests.lookup(request), DICTIONARY_LOOKUP_RESPONSE_READER);
+            return AsyncCalls.cancelling(call.thenApply(Iterables::getOnlyElement), call);
+        } catch (final IOException e) {
+            return AsyncCalls.failed(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+        try {
+            final CompletableFuture<List<ExampleResponse>> call = execute(requests.examples(request), DICTIONARY_EXAMPLE_RESPONSE_READER);
+            return AsyncCalls.cancelling(call.thenApply(Iterables::getOnlyElement), call);
+        } catch (final IOException e) {
+            return AsyncCalls.failed(e);
+        }
+    }
+
+    /**
+     * Encodes and decodes each kind of call the given number of times, without sending anything, so the first real
+     * calls after startup don't pay for class loading and interpretation.
+     */
+    public void warmUp(final int iterations) throws IOException {
+        for (int i = 0; i < iterations; i++) {
+            requests.warmUp();
+        }
+    }
+
+    /**
+     * @return statistics for the owned connection pool, or empty if the HTTP client was supplied by the caller
+     */
+    public Optional<PoolStats> getPoolStats() {
+        return Optional.ofNullable(connectionManager).map(PoolingNHttpClientConnectionManager::getTotalStats);
+    }
+
+    @Override
+    public void close() {
+        if (connectionManager == null) {
+            return;
+        }
+        evictor.cancel(false);
+        try {
+            ((CloseableHttpAsyncClient) httpClient).close();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to close HTTP client", e);
+        }
+    }
+
+    private static PoolingNHttpClientConnectionManager newConnectionManager(final HttpTransport transport) {
+        final IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout((int) transport.connectTimeoutMillis)
+                .setSoTimeout((int) transport.socketTimeoutMillis)
+                .setSoKeepAlive(true)
+                .build();
+        final PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+        } catch (final IOReactorException e) {
+            throw new IllegalStateException("Could not create I/O reactor", e);
+        }
+        connectionManager.setMaxTotal(transport.maxConnections);
+        connectionManager.setDefaultMaxPerRoute(transport.maxConnectionsPerRoute);
+        return connectionManager;
+    }
+
+    private <T> CompletableFuture<T> execute(final HttpPost postRequest, final ObjectReader reader) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Future<HttpResponse> call = httpClient.execute(postRequest, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(final HttpResponse response) {
+                callbackExecutor.execute(() -> {
+                    try {
+                        future.complete(MicrosoftApiRequests.readResponse(response, reader));
+                    } catch (final IOException | RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            }
+
+            @Override
+            public void failed(final Exception e) {
+                callbackExecutor.execute(() -> future.completeExceptionally(e instanceof IOException ? e : new IOException(e)));
+            }
+
+            @Override
+            public void cancelled() {
+                callbackExecutor.execute(() -> future.cancel(false));
+            }
+        });
+        // Dependents run on the thread that completes the future, so the shared timer only hands the timeout over
+        final ScheduledFuture<?> deadline = HttpTransport.scheduleDeadline(() -> callbackExecutor.execute(() -> future.completeExceptionally(
+                new InterruptedIOException(String.format("Call timed out after %d ms", callTimeoutMillis)))), callTimeoutMillis);
+        future.whenComplete((r, t) -> {
+            deadline.cancel(false);
+            if (!call.isDone()) {
+                call.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    public static final class Builder {
+        private HttpAsyncClient httpClient;
+        private Executor callbackExecutor;
+        private String apiHost;
+        private Supplier<String> apiKeySupplier;
+        private final HttpTransport transport;
+
+        private Builder() {
+            transport = new HttpTransport();
+            callbackExecutor = ForkJoinPool.commonPool();
+            apiHost = MicrosoftApiRequests.API_HOST;
+            apiKeySupplier = () -> System.getenv("MS_TRANSLATOR_KEY");
+        }
+
+        /**
+         * @param httpClient a started client to use instead of the pooled transport; its lifecycle stays with the
+         *                   caller and the connection settings below are ignored apart from the call timeout
+         */
+        public Builder withHttpClient(final HttpAsyncClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public Builder withCallbackExecutor(final Executor callbackExecutor) {
+            this.callbackExecutor = callbackExecutor;
+            return this;
+        }
+
+        public Builder withApiHost(final String apiHost) {
+            this.apiHost = apiHost;
+            return this;
+        }
+
+        public Builder withApiKeySupplier(final Supplier<String> apiKeySupplier) {
+            this.apiKeySupplier = apiKeySupplier;
+            return this;
+        }
+
+        public Builder withMaxConnections(final int maxConnections) {
+            transport.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder withMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+            transport.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        public Builder withConnectTimeout(final long duration, final TimeUnit unit) {
+            transport.connectTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder withSocketTimeout(final long duration, final TimeUnit unit) {
+            transport.socketTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * @param duration overall deadline for a call, including waiting for a pooled connection
+         */
+        public Builder withCallTimeout(final long duration, final TimeUnit unit) {
+            transport.callTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * @param duration how long a pooled connection may sit unused before it is closed
+         */
+        public Builder withIdleTimeout(final long duration, final TimeUnit unit) {
+            transport.idleTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public AsyncMicrosoftTranslatorTextApi build() {
+            transport.validate();
+            return new AsyncMicrosoftTranslatorTextApi(this);
+        }
+    }
+}
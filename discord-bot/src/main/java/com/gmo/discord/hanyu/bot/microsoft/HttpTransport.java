@@ -0,0 +1,72 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Connection pool and timeout settings for the pooled transport which the blocking and asynchronous clients build
+ * when no HTTP client is supplied. Also owns the timer used for call deadlines and idle connection eviction.
+ */
+final class HttpTransport {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("translator-http-timer-%d")
+            .setDaemon(true)
+            .build());
+
+    int maxConnections = 64;
+    int maxConnectionsPerRoute = 32;
+    long connectTimeoutMillis = TimeUnit.SECONDS.toMillis(2);
+    long socketTimeoutMillis = TimeUnit.SECONDS.toMillis(5);
+    long callTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+    long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+    void validate() {
+        Preconditions.checkArgument(maxConnections > 0, "Max connections must be positive");
+        Preconditions.checkArgument(maxConnectionsPerRoute > 0 && maxConnectionsPerRoute <= maxConnections,
+                "Max connections per route must be positive and at most max connections");
+        Preconditions.checkArgument(connectTimeoutMillis > 0, "Connect timeout must be positive");
+        Preconditions.checkArgument(socketTimeoutMillis > 0, "Socket timeout must be positive");
+        Preconditions.checkArgument(callTimeoutMillis > 0, "Call timeout must be positive");
+        Preconditions.checkArgument(idleTimeoutMillis > 0, "Idle timeout must be positive");
+    }
+
+    /**
+     * Waiting for a pooled connection counts against the call deadline, so a saturated pool fails calls rather than
+     * queueing them indefinitely.
+     */
+    RequestConfig requestConfig() {
+        return RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeoutMillis)
+                .setSocketTimeout((int) socketTimeoutMillis)
+                .setConnectionRequestTimeout((int) callTimeoutMillis)
+                .build();
+    }
+
+    /**
+     * Keeps connections alive for as long as the server allows, but never longer than the idle timeout.
+     */
+    ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, idleTimeoutMillis) : idleTimeoutMillis;
+        };
+    }
+
+    ScheduledFuture<?> scheduleEviction(final Runnable evictor) {
+        final long period = Math.max(1000, idleTimeoutMillis / 2);
+        return TIMER.scheduleWithFixedDelay(evictor, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    static ScheduledFuture<?> scheduleDeadline(final Runnable onExpiry, final long timeoutMillis) {
+        return TIMER.schedule(onExpiry, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
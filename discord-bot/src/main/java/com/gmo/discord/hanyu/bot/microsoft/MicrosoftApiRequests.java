@@ -0,0 +1,303 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.ParseException;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gmo.discord.hanyu.bot.api.TranslatorApiException;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequestPayload;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Builds HTTP requests for, and reads responses from, the Microsoft Translator Text API v3. Shared by the blocking
+ * and asynchronous clients.
+ *
+ * @author tedelen
+ */
+final class MicrosoftApiRequests {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MicrosoftApiRequests.class);
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    static final ObjectReader TRANSLATION_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<TranslationResponse>>() {});
+    static final ObjectReader DETECTION_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<DetectionResponse>>() {});
+    static final ObjectReader DICTIONARY_LOOKUP_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<DictionaryLookupResponse>>() {});
+    static final ObjectReader DICTIONARY_EXAMPLE_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<ExampleResponse>>() {});
+    static final String API_HOST = "https://api.cognitive.microsofttranslator.com";
+    private static final String API_TRANSLATE_PATH = "/translate?api-version=3.0";
+    private static final String API_DICTIONARY_LOOKUP_PATH = "/dictionary/lookup?api-version=3.0";
+    private static final String API_DICTIONARY_EXAMPLE_PATH = "/dictionary/examples?api-version=3.0";
+    private static final String API_DETECT_PATH = "/detect?api-version=3.0";
+    private static final String API_TO_PARAM = "to";
+    private static final String API_FROM_PARAM = "from";
+    private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
+
+    private static final ObjectWriter TEXT_WRITER = OBJECT_MAPPER.writerFor(new TypeReference<List<TranslationRequestPayload>>() {});
+    private static final ObjectWriter EXAMPLE_WRITER = OBJECT_MAPPER.writerFor(new TypeReference<List<ExampleRequest>>() {});
+    private static final Header CONTENT_TYPE_HEADER = new BasicHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+    private static final int MAX_CACHED_URIS = 64;
+    private static final byte[] WARMUP_TRANSLATION = ("[{\"detectedLanguage\":{\"language\":\"zh-Hans\",\"score\":1.0},"
+            + "\"translations\":[{\"text\":\"study\",\"to\":\"en\"}]}]").getBytes(UTF8_CHARSET);
+    private static final byte[] WARMUP_DETECTION = ("[{\"language\":\"zh-Hans\",\"score\":1.0,"
+            + "\"isTranslationSupported\":true,\"isTransliterationSupported\":true}]").getBytes(UTF8_CHARSET);
+    private static final byte[] WARMUP_LOOKUP = ("[{\"normalizedSource\":\"学习\",\"displaySource\":\"学习\","
+            + "\"translations\":[{\"normalizedTarget\":\"study\",\"displayTarget\":\"study\",\"posTag\":\"VERB\","
+            + "\"confidence\":0.5,\"prefixWord\":\"\",\"backTranslations\":[{\"normalizedText\":\"学习\","
+            + "\"displayText\":\"学习\",\"numExamples\":15,\"frequencyCount\":3962}]}]}]").getBytes(UTF8_CHARSET);
+    private static final byte[] WARMUP_EXAMPLES = ("[{\"normalizedSource\":\"学习\",\"normalizedTarget\":\"study\","
+            + "\"examples\":[{\"sourcePrefix\":\"我每天\",\"sourceTerm\":\"学习\",\"sourceSuffix\":\"。\","
+            + "\"targetPrefix\":\"I \",\"targetTerm\":\"study\",\"targetSuffix\":\" every day.\"}]}]")
+            .getBytes(UTF8_CHARSET);
+
+    private final String apiHost;
+    private final Supplier<String> apiKeySupplier;
+    private final URI detectUri;
+    private final ConcurrentMap<UriKey, URI> uris = new ConcurrentHashMap<>();
+
+    MicrosoftApiRequests(final String apiHost, final Supplier<String> apiKeySupplier) {
+        this.apiHost = apiHost;
+        this.apiKeySupplier = apiKeySupplier;
+        this.detectUri = URI.create(apiHost + API_DETECT_PATH);
+    }
+
+    HttpPost translate(final TranslationRequest request) throws IOException {
+        return createPost(uri(API_TRANSLATE_PATH, request.getDestinationLanguages(), null), TEXT_WRITER, request.getText());
+    }
+
+    HttpPost detect(final TranslationRequest request) throws IOException {
+        return createPost(detectUri, TEXT_WRITER, request.getText());
+    }
+
+    HttpPost lookup(final TranslationRequest request) throws IOException {
+        final String from = request.getSourceLanguage().orElseThrow(() -> new RuntimeException("Source language required"));
+        return createPost(uri(API_DICTIONARY_LOOKUP_PATH, request.getDestinationLanguages(), from), TEXT_WRITER, request.getText());
+    }
+
+    HttpPost examples(final ExampleRequest request) throws IOException {
+        return createPost(uri(API_DICTIONARY_EXAMPLE_PATH, ImmutableList.of(request.getDestinationLanguage()), request.getSourceLanguage()),
+                EXAMPLE_WRITER, ImmutableList.of(request));
+    }
+
+    /**
+     * Encodes a request for, and decodes a canned response to, each API method without touching the network, so the
+     * JSON serializers and readers are loaded and compiled before the first real call.
+     */
+    void warmUp() throws IOException {
+        final TranslationRequest request = TranslationRequest.newBuilder()
+                .addText("学习")
+                .withSourceLanguage("zh-Hans")
+                .addDestinationLanguage("en")
+                .build();
+        EntityUtils.consume(translate(request).getEntity());
+        EntityUtils.consume(detect(request).getEntity());
+        EntityUtils.consume(lookup(request).getEntity());
+        EntityUtils.consume(examples(ExampleRequest.newBuilder()
+                .withSourceText("学习")
+                .withDestinationTranslation("study")
+                .withSourceLanguage("zh-Hans")
+                .withDestinationLanguage("en")
+                .build()).getEntity());
+
+        readResponse(warmUpResponse(WARMUP_TRANSLATION), TRANSLATION_RESPONSE_READER);
+        readResponse(warmUpResponse(WARMUP_DETECTION), DETECTION_RESPONSE_READER);
+        readResponse(warmUpResponse(WARMUP_LOOKUP), DICTIONARY_LOOKUP_RESPONSE_READER);
+        readResponse(warmUpResponse(WARMUP_EXAMPLES), DICTIONARY_EXAMPLE_RESPONSE_READER);
+    }
+
+    private static HttpResponse warmUpResponse(final byte[] body) {
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    /**
+     * Reads a successful response with the given reader, or throws an {@link IOException} describing the failure. The
+     * body is parsed straight from the entity stream rather than buffered into a {@link String} first, and the entity
+     * is always consumed so the underlying connection can be reused.
+     */
+    static <T> T readResponse(final HttpResponse response, final ObjectReader reader) throws IOException {
+        final HttpEntity entity = response.getEntity();
+        try {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != 200) {
+                LOGGER.error("Failed status code {}: {}", statusCode, response.getStatusLine().getReasonPhrase());
+                throw new TranslatorApiException(statusCode, response.getStatusLine().getReasonPhrase(), retryAfterMillis(response));
+            }
+            if (entity == null) {
+                throw new IOException("Empty response body");
+            }
+            return readEntity(entity, reader);
+        } finally {
+            EntityUtils.consumeQuietly(entity);
+        }
+    }
+
+    /**
+     * JSON is UTF-8 unless the response explicitly declares otherwise. In the UTF-8 case Jackson decodes the raw bytes
+     * itself, which avoids both the intermediate character buffer and any dependency on the platform charset.
+     */
+    private static <T> T readEntity(final HttpEntity entity, final ObjectReader reader) throws IOException {
+        final Charset charset = declaredCharset(entity);
+        try (final InputStream content = entity.getContent()) {
+            if (charset == null || UTF8_CHARSET.equals(charset)) {
+                return reader.readValue(content);
+            }
+            return reader.readValue(new InputStreamReader(content, charset));
+        }
+    }
+
+    /**
+     * Parses the {@code Retry-After} header, which is either a number of seconds or an HTTP date.
+     *
+     * @return the requested delay, or -1 if there is no usable header
+     */
+    static long retryAfterMillis(final HttpResponse response) {
+        final Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null || header.getValue() == null) {
+            return -1;
+        }
+
+        final String value = header.getValue().trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (final NumberFormatException e) {
+            final Date date = DateUtils.parseDate(value);
+            if (date == null) {
+                LOGGER.warn("Ignoring unparseable Retry-After header {}", value);
+                return -1;
+            }
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    private static Charset declaredCharset(final HttpEntity entity) {
+        try {
+            final ContentType contentType = ContentType.get(entity);
+            return contentType == null ? null : contentType.getCharset();
+        } catch (final ParseException | UnsupportedCharsetException e) {
+            LOGGER.warn("Ignoring unusable response content type {}", entity.getContentType(), e);
+            return null;
+        }
+    }
+
+    /**
+     * The bot only ever uses a handful of path and language combinations, so each URI is built once and reused.
+     * Unexpected combinations beyond {@value #MAX_CACHED_URIS} are built per call rather than growing the cache.
+     */
+    private URI uri(final String path, final List<String> to, final String from) {
+        final UriKey key = new UriKey(path, to, from);
+        final URI cached = uris.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final StringBuilder uri = new StringBuilder(apiHost).append(path);
+        to.forEach(lang -> uri.append('&').append(API_TO_PARAM).append('=').append(encode(lang)));
+        if (from != null) {
+            uri.append('&').append(API_FROM_PARAM).append('=').append(encode(from));
+        }
+        final URI built = URI.create(uri.toString());
+        if (uris.size() < MAX_CACHED_URIS) {
+            uris.putIfAbsent(key, built);
+        }
+        return built;
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, UTF8_CHARSET.name());
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The body is encoded by Jackson straight to UTF-8 bytes, with no intermediate {@link String}, and handed to the
+     * client as is: the blocking client writes the array to the socket stream and the asynchronous client wraps it in a
+     * {@link java.nio.ByteBuffer} instead of pulling it through an {@link InputStream}.
+     */
+    private HttpPost createPost(final URI uri, final ObjectWriter writer, final Object body) throws IOException {
+        final HttpPost postRequest = new HttpPost(uri);
+        postRequest.setHeader(CONTENT_TYPE_HEADER);
+        postRequest.setHeader("Ocp-Apim-Subscription-Key", apiKeySupplier.get());
+        postRequest.setHeader("X-ClientTraceId", traceId());
+        postRequest.setEntity(new NByteArrayEntity(writer.writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+        return postRequest;
+    }
+
+    /**
+     * @return a random version 4 UUID, as the API expects, drawn from {@link ThreadLocalRandom} rather than the shared
+     * {@link java.security.SecureRandom} behind {@link UUID#randomUUID()}; trace ids only need to be unique, not secret
+     */
+    static String traceId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long most = (random.nextLong() & ~0xF000L) | 0x4000L;
+        final long least = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+        return new UUID(most, least).toString();
+    }
+
+    private static final class UriKey {
+        private final String path;
+        private final List<String> to;
+        private final String from;
+
+        private UriKey(final String path, final List<String> to, final String from) {
+            this.path = path;
+            this.to = to;
+            this.from = from;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final UriKey that = (UriKey) o;
+            return path.equals(that.path) && to.equals(that.to) && Objects.equals(from, that.from);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, to, from);
+        }
+    }
+}
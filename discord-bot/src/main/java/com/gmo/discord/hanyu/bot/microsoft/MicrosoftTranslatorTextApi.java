@@ -1,65 +1,76 @@
 package com.gmo.discord.hanyu.bot.microsoft;
 
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.DETECTION_RESPONSE_READER;
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.DICTIONARY_EXAMPLE_RESPONSE_READER;
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.DICTIONARY_LOOKUP_RESPONSE_READER;
+import static com.gmo.discord.hanyu.bot.microsoft.MicrosoftApiRequests.TRANSLATION_RESPONSE_READER;
+
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.charset.Charset;
+import java.io.InterruptedIOException;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
-import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.gmo.discord.hanyu.bot.api.TranslatorTextApi;
 import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
 import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
 import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
 import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
-import com.gmo.discord.hanyu.bot.api.TranslatorTextApi;
 import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
 import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.io.CharStreams;
 
 /**
+ * Unless an {@link HttpClient} is supplied, the builder creates a pooled keep-alive client which this instance owns
+ * and releases on {@link #close()}. Every call is aborted once its deadline passes.
+ *
  * @author tedelen
  */
-public class MicrosoftTranslatorTextApi implements TranslatorTextApi {
+public class MicrosoftTranslatorTextApi implements TranslatorTextApi, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(MicrosoftTranslatorTextApi.class);
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private static final ObjectReader TRANSLATION_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<TranslationResponse>>() {});
-    private static final ObjectReader DETECTION_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<DetectionResponse>>() {});
-    private static final ObjectReader DICTIONARY_LOOKUP_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<DictionaryLookupResponse>>() {});
-    private static final ObjectReader DICTIONARY_EXAMPLE_RESPONSE_READER = OBJECT_MAPPER.readerFor(new TypeReference<List<ExampleResponse>>() {});
-    private static final String API_HOST = "https://api.cognitive.microsofttranslator.com";
-    private static final String API_TRANSLATE_PATH = "/translate?api-version=3.0";
-    private static final String API_DICTIONARY_LOOKUP_PATH = "/dictionary/lookup?api-version=3.0";
-    private static final String API_DICTIONARY_EXAMPLE_PATH = "/dictionary/examples?api-version=3.0";
-    private static final String API_DETECT_PATH = "/detect?api-version=3.0";
-    private static final String API_TO_PARAM = "to";
-    private static final String API_FROM_PARAM = "from";
-    private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
-
     private final HttpClient httpClient;
-    private final String apiHost;
-    private final Supplier<String> apiKeySupplier;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final ScheduledFuture<?> evictor;
+    private final long callTimeoutMillis;
+    private final MicrosoftApiRequests requests;
 
     private MicrosoftTranslatorTextApi(final Builder builder) {
-        httpClient = builder.httpClient;
-        apiHost = builder.apiHost;
-        apiKeySupplier = builder.apiKeySupplier;
+        if (builder.httpClient != null) {
+            httpClient = builder.httpClient;
+            connectionManager = null;
+            evictor = null;
+        } else {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(builder.transport.maxConnections);
+            connectionManager.setDefaultMaxPerRoute(builder.transport.maxConnectionsPerRoute);
+            connectionManager.setValidateAfterInactivity((int) Math.min(Integer.MAX_VALUE, builder.transport.idleTimeoutMillis / 2));
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(builder.transport.requestConfig())
+                    .setKeepAliveStrategy(builder.transport.keepAliveStrategy())
+                    .build();
+            final long idleTimeoutMillis = builder.transport.idleTimeoutMillis;
+            evictor = builder.transport.scheduleEviction(() -> {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            });
+        }
+        callTimeoutMillis = builder.transport.callTimeoutMillis;
+        requests = new MicrosoftApiRequests(builder.apiHost, builder.apiKeySupplier);
     }
 
     public static Builder newBuilder() {
@@ -68,126 +79,77 @@ public class MicrosoftTranslatorTextApi implements TranslatorTextApi {
 
     @Override
     public List<TranslationResponse> translate(final TranslationRequest request) throws IOException {
-        final UUID clientTraceId = UUID.randomUUID();
-        final URI uri;
-        try {
-            final URIBuilder uriBuilder = new URIBuilder(apiHost + API_TRANSLATE_PATH);
-            request.getDestinationLanguages().forEach(lang -> uriBuilder.addParameter(API_TO_PARAM, lang));
-            uri = uriBuilder.build();
-        } catch (final URISyntaxException e) {
-            throw new RuntimeException("Invalid URI", e);
-        }
-        final HttpPost postRequest = createPostWithHeaders(uri, clientTraceId);
-        final String content = OBJECT_MAPPER.writeValueAsString(request.getText());
-        postRequest.setEntity(new StringEntity(content, UTF8_CHARSET));
-
-        final HttpResponse response = httpClient.execute(postRequest);
-        if (response.getStatusLine().getStatusCode() == 200) {
-            try (final Reader reader = new InputStreamReader(response.getEntity().getContent())) {
-                final String responseJson = CharStreams.toString(reader);
-                return TRANSLATION_RESPONSE_READER.readValue(responseJson);
-            }
-        } else {
-            LOGGER.error("Failed status code {}: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
-            throw new IOException(String.format("Failed status code %d: %s", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
-        }
+        return execute(requests.translate(request), TRANSLATION_RESPONSE_READER);
     }
 
     @Override
     public DetectionResponse detect(final TranslationRequest request) throws IOException {
-        final UUID clientTraceId = UUID.randomUUID();
-        final URI uri;
-        try {
-            uri = new URIBuilder(apiHost + API_DETECT_PATH).build();
-        } catch (final URISyntaxException e) {
-            throw new RuntimeException("Invalid URI", e);
-        }
-        final HttpPost postRequest = createPostWithHeaders(uri, clientTraceId);
-        final String content = OBJECT_MAPPER.writeValueAsString(request.getText());
-        postRequest.setEntity(new StringEntity(content, UTF8_CHARSET));
-        final HttpResponse response = httpClient.execute(postRequest);
-        if (response.getStatusLine().getStatusCode() == 200) {
-            try (final Reader reader = new InputStreamReader(response.getEntity().getContent())) {
-                final String responseJson = CharStreams.toString(reader);
-                return Iterables.getOnlyElement(DETECTION_RESPONSE_READER.readValue(responseJson));
-            }
-        } else {
-            LOGGER.error("Failed status code {}: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
-            throw new IOException(String.format("Failed status code %d: %s", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
-        }
+        final List<DetectionResponse> responses = execute(requests.detect(request), DETECTION_RESPONSE_READER);
+        return Iterables.getOnlyElement(responses);
     }
 
     @Override
     public DictionaryLookupResponse lookup(final TranslationRequest request) throws IOException {
-        final URI uri;
-        try {
-            final URIBuilder uriBuilder = new URIBuilder(apiHost + API_DICTIONARY_LOOKUP_PATH);
-            request.getDestinationLanguages().forEach(lang -> uriBuilder.addParameter(API_TO_PARAM, lang));
-            uriBuilder.addParameter(API_FROM_PARAM, request.getSourceLanguage().orElseThrow(() -> new RuntimeException("Source language required")));
-            uri = uriBuilder.build();
-        } catch (final URISyntaxException e) {
-            throw new RuntimeException("Invalid URI", e);
-        }
-        final HttpPost postRequest = createPostWithHeaders(uri, UUID.randomUUID());
-        final String content = OBJECT_MAPPER.writeValueAsString(request.getText());
-        postRequest.setEntity(new StringEntity(content, UTF8_CHARSET));
-        final HttpResponse response = httpClient.execute(postRequest);
-        if (response.getStatusLine().getStatusCode() == 200) {
-            try (final Reader reader = new InputStreamReader(response.getEntity().getContent())) {
-                final String responseJson = CharStreams.toString(reader);
-                return Iterables.getOnlyElement(DICTIONARY_LOOKUP_RESPONSE_READER.readValue(responseJson));
-            }
-        } else {
-            LOGGER.error("Failed status code {}: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
-            throw new IOException(String.format("Failed status code %d: %s", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
-        }
+        final List<DictionaryLookupResponse> responses = execute(requests.lookup(request), DICTIONARY_LOOKUP_RESPONSE_READER);
+        return Iterables.getOnlyElement(responses);
     }
 
     @Override
     public ExampleResponse examples(final ExampleRequest request) throws IOException {
-        final URI uri;
+        final List<ExampleResponse> responses = execute(requests.examples(request), DICTIONARY_EXAMPLE_RESPONSE_READER);
+        return Iterables.getOnlyElement(responses);
+    }
+
+    /**
+     * @return statistics for the owned connection pool, or empty if the HTTP client was supplied by the caller
+     */
+    public Optional<PoolStats> getPoolStats() {
+        return Optional.ofNullable(connectionManager).map(PoolingHttpClientConnectionManager::getTotalStats);
+    }
+
+    @Override
+    public void close() {
+        if (connectionManager == null) {
+            return;
+        }
+        evictor.cancel(false);
         try {
-            final URIBuilder uriBuilder = new URIBuilder(apiHost + API_DICTIONARY_EXAMPLE_PATH);
-            uriBuilder.addParameter(API_TO_PARAM, request.getDestinationLanguage());
-            uriBuilder.addParameter(API_FROM_PARAM, request.getSourceLanguage());
-            uri = uriBuilder.build();
-        } catch (final URISyntaxException e) {
-            throw new RuntimeException("Invalid URI", e);
+            ((CloseableHttpClient) httpClient).close();
+        } catch (final IOException e) {
+            LOGGER.warn("Failed to close HTTP client", e);
         }
+    }
 
-        final HttpPost postRequest = createPostWithHeaders(uri, UUID.randomUUID());
-        final String content = OBJECT_MAPPER.writeValueAsString(ImmutableList.of(request));
-        postRequest.setEntity(new StringEntity(content, UTF8_CHARSET));
-        final HttpResponse response = httpClient.execute(postRequest);
-        if (response.getStatusLine().getStatusCode() == 200) {
-            try (final Reader reader = new InputStreamReader(response.getEntity().getContent())) {
-                final String responseJson = CharStreams.toString(reader);
-                return Iterables.getOnlyElement(DICTIONARY_EXAMPLE_RESPONSE_READER.readValue(responseJson));
+    private <T> T execute(final HttpPost postRequest, final ObjectReader reader) throws IOException {
+        final ScheduledFuture<?> deadline = HttpTransport.scheduleDeadline(postRequest::abort, callTimeoutMillis);
+        try {
+            return MicrosoftApiRequests.readResponse(httpClient.execute(postRequest), reader);
+        } catch (final IOException e) {
+            if (deadline.isDone()) {
+                throw new InterruptedIOException(String.format("Call timed out after %d ms", callTimeoutMillis));
             }
-        } else {
-            LOGGER.error("Failed status code {}: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
-            throw new IOException(String.format("Failed status code %d: %s", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
+            throw e;
+        } finally {
+            deadline.cancel(false);
         }
     }
 
-    private HttpPost createPostWithHeaders(final URI uri, final UUID clientTraceId) {
-        final HttpPost postRequest = new HttpPost(uri);
-        postRequest.setHeader("Content-Type", "application/json");
-        postRequest.setHeader("Ocp-Apim-Subscription-Key", apiKeySupplier.get());
-        postRequest.setHeader("X-ClientTraceId", clientTraceId.toString());
-        return postRequest;
-    }
-
     public static final class Builder {
         private HttpClient httpClient;
         private String apiHost;
         private Supplier<String> apiKeySupplier;
+        private final HttpTransport transport;
 
         private Builder() {
-            apiHost = API_HOST;
+            apiHost = MicrosoftApiRequests.API_HOST;
             apiKeySupplier = () -> System.getenv("MS_TRANSLATOR_KEY");
+            transport = new HttpTransport();
         }
 
+        /**
+         * @param httpClient a client to use instead of the pooled transport; its lifecycle stays with the caller and
+         *                   the connection settings below are ignored apart from the call timeout
+         */
         public Builder withHttpClient(final HttpClient httpClient) {
             this.httpClient = httpClient;
             return this;
@@ -203,7 +165,44 @@ public class MicrosoftTranslatorTextApi implements TranslatorTextApi {
             return this;
         }
 
+        public Builder withMaxConnections(final int maxConnections) {
+            transport.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder withMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+            transport.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        public Builder withConnectTimeout(final long duration, final TimeUnit unit) {
+            transport.connectTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder withSocketTimeout(final long duration, final TimeUnit unit) {
+            transport.socketTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * @param duration overall deadline for a call, including waiting for a pooled connection
+         */
+        public Builder withCallTimeout(final long duration, final TimeUnit unit) {
+            transport.callTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * @param duration how long a pooled connection may sit unused before it is closed
+         */
+        public Builder withIdleTimeout(final long duration, final TimeUnit unit) {
+            transport.idleTimeoutMillis = unit.toMillis(duration);
+            return this;
+        }
+
         public MicrosoftTranslatorTextApi build() {
+            transport.validate();
             return new MicrosoftTranslatorTextApi(this);
         }
     }
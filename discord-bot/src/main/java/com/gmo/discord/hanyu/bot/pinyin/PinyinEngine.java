@@ -0,0 +1,258 @@
+package com.gmo.discord.hanyu.bot.pinyin;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+import com.gmo.discord.hanyu.bot.dictionary.DictionaryEntry;
+import com.gmo.discord.hanyu.bot.dictionary.Pinyin;
+
+/**
+ * Local {@link Transliterator}. Text is segmented by forward maximum matching against the dictionary's headwords so
+ * that polyphonic characters take the reading of the word they appear in (银行 yín háng, 行人 xíng rén). Characters
+ * outside any known word use a default reading from a primitive table indexed by code point.
+ *
+ * <p>Text containing characters with no known reading is passed to the fallback, if there is one.
+ */
+public class PinyinEngine implements Transliterator {
+    private static final int TABLE_START = 0x3400;
+    private static final int TABLE_END = 0xA000;
+    /**
+     * Standalone, these are almost always particles, whatever their readings inside compounds suggest.
+     */
+    private static final String[][] PARTICLE_READINGS = {
+            {"了", "le5"}, {"的", "de5"}, {"得", "de5"}, {"着", "zhe5"}, {"著", "zhe5"}, {"吗", "ma5"}, {"嗎", "ma5"},
+            {"呢", "ne5"}, {"吧", "ba5"}, {"么", "me5"}, {"麼", "me5"}, {"啊", "a5"}};
+
+    private final CedictDictionary dictionary;
+    private final Transliterator fallback;
+    private final short[] readingIndex;
+    private final String[] readings;
+
+    private PinyinEngine(final Builder builder) {
+        dictionary = builder.dictionary;
+        fallback = builder.fallback;
+
+        final Map<String, Short> readingIds = new LinkedHashMap<>();
+        readingIds.put("", (short) 0);
+        readingIndex = new short[TABLE_END - TABLE_START];
+        defaultReadings(dictionary).forEach((codePoint, reading) -> {
+            if (codePoint >= TABLE_START && codePoint < TABLE_END) {
+                readingIndex[codePoint - TABLE_START] = readingIds.computeIfAbsent(Pinyin.toToneMarks(reading), r -> (short) readingIds.size());
+            }
+        });
+        readings = readingIds.keySet().toArray(new String[0]);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> transliterate(final Collection<String> texts) {
+        final Map<String, String> pinyin = new HashMap<>();
+        final List<String> unknown = new ArrayList<>();
+        for (final String text : texts) {
+            final Optional<String> local = transliterate(text);
+            if (local.isPresent()) {
+                pinyin.put(text, local.get());
+            } else {
+                unknown.add(text);
+            }
+        }
+
+        if (unknown.isEmpty() || fallback == null) {
+            return CompletableFuture.completedFuture(pinyin);
+        }
+        return fallback.transliterate(unknown).thenApply(remote -> {
+            pinyin.putAll(remote);
+            return pinyin;
+        });
+    }
+
+    /**
+     * @return tone-marked pinyin with syllables separated by spaces, or empty if the text has a Han character with no
+     * known reading
+     */
+    public Optional<String> transliterate(final String text) {
+        final StringBuilder sb = new StringBuilder(text.length() * 4);
+        boolean afterSyllable = false;
+        for (int i = 0; i < text.length(); ) {
+            final int codePoint = text.codePointAt(i);
+            final int charCount = Character.charCount(codePoint);
+            if (Character.UnicodeScript.of(codePoint) != Character.UnicodeScript.HAN) {
+                appendOther(sb, codePoint, afterSyllable);
+                afterSyllable = false;
+                i += charCount;
+                continue;
+            }
+
+            final int wordLength = dictionary.longestHeadword(text, i);
+            final String word = wordLength > charCount ? wordReading(text.substring(i, i + wordLength)) : null;
+            if (word != null) {
+                appendSyllables(sb, word);
+                i += wordLength;
+            } else {
+                final String reading = characterReading(codePoint);
+                if (reading == null) {
+                    return Optional.empty();
+                }
+                appendSyllables(sb, reading);
+                i += charCount;
+            }
+            afterSyllable = true;
+        }
+        return Optional.of(sb.toString().trim());
+    }
+
+    private String characterReading(final int codePoint) {
+        if (codePoint < TABLE_START || codePoint >= TABLE_END) {
+            return null;
+        }
+        final int index = readingIndex[codePoint - TABLE_START];
+        return index == 0 ? null : readings[index];
+    }
+
+    /**
+     * Prefers a common-noun reading over a proper-noun one, and skips entries whose pinyin doesn't line up one
+     * syllable per character.
+     */
+    private String wordReading(final String word) {
+        final int codePoints = word.codePointCount(0, word.length());
+        String properNoun = null;
+        for (final DictionaryEntry entry : dictionary.lookupHeadword(word)) {
+            final String pinyin = entry.getPinyin();
+            if (syllableCount(pinyin) != codePoints) {
+                continue;
+            }
+            if (!Character.isUpperCase(pinyin.charAt(0))) {
+                return Pinyin.toToneMarks(pinyin);
+            }
+            if (properNoun == null) {
+                properNoun = Pinyin.toToneMarks(pinyin.toLowerCase(Locale.ROOT));
+            }
+        }
+        return properNoun;
+    }
+
+    private static void appendSyllables(final StringBuilder sb, final String syllables) {
+        if (sb.length() > 0 && !Character.isWhitespace(sb.charAt(sb.length() - 1)) && "(\"'“‘「《".indexOf(sb.charAt(sb.length() - 1)) < 0) {
+            sb.append(' ');
+        }
+        sb.append(syllables);
+    }
+
+    /**
+     * Copies non-Han text, mapping full-width punctuation to its ASCII equivalent.
+     */
+    private static void appendOther(final StringBuilder sb, final int codePoint, final boolean afterSyllable) {
+        final int index = "，。！？：；（）、".indexOf(codePoint);
+        if (index >= 0) {
+            final char c = ",.!?:;(),".charAt(index);
+            sb.append(c == '(' ? " (" : String.valueOf(c));
+        } else {
+            if (afterSyllable && Character.isLetterOrDigit(codePoint)) {
+                sb.append(' ');
+            }
+            sb.appendCodePoint(codePoint);
+        }
+    }
+
+    private static int syllableCount(final String pinyin) {
+        int count = 1;
+        for (int i = 0; i < pinyin.length(); i++) {
+            if (pinyin.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Picks each character's default reading: the reading it most often has across the dictionary's words, where
+     * ties go to the reading of its earliest single character entry.
+     */
+    private static Map<Integer, String> defaultReadings(final CedictDictionary dictionary) {
+        final Map<Integer, Map<String, int[]>> counts = new HashMap<>();
+        for (final boolean singles : new boolean[]{true, false}) {
+            for (final DictionaryEntry entry : dictionary.getEntries()) {
+                final String headword = entry.getSimplified();
+                final int codePoints = headword.codePointCount(0, headword.length());
+                if ((codePoints == 1) != singles) {
+                    continue;
+                }
+                final String[] syllables = entry.getPinyin().toLowerCase(Locale.ROOT).split(" ");
+                if (syllables.length != codePoints) {
+                    continue;
+                }
+                count(counts, headword, syllables);
+                if (!entry.getTraditional().equals(headword)) {
+                    count(counts, entry.getTraditional(), syllables);
+                }
+            }
+        }
+
+        final Map<Integer, String> defaults = new HashMap<>(counts.size() * 4 / 3 + 1);
+        counts.forEach((codePoint, readings) -> {
+            String best = null;
+            int bestCount = 0;
+            for (final Map.Entry<String, int[]> reading : readings.entrySet()) {
+                if (reading.getValue()[0] > bestCount) {
+                    best = reading.getKey();
+                    bestCount = reading.getValue()[0];
+                }
+            }
+            defaults.put(codePoint, best);
+        });
+        for (final String[] particle : PARTICLE_READINGS) {
+            defaults.put(particle[0].codePointAt(0), particle[1]);
+        }
+        return defaults;
+    }
+
+    private static void count(final Map<Integer, Map<String, int[]>> counts, final String headword, final String[] syllables) {
+        int s = 0;
+        for (int i = 0; i < headword.length(); s++) {
+            final int codePoint = headword.codePointAt(i);
+            if (syllables[s].matches("[a-zü:]+[1-5]?")) {
+                counts.computeIfAbsent(codePoint, k -> new LinkedHashMap<>(2))
+                        .computeIfAbsent(syllables[s], k -> new int[1])[0]++;
+            }
+            i += Character.charCount(codePoint);
+        }
+    }
+
+    public static final class Builder {
+        private CedictDictionary dictionary;
+        private Transliterator fallback;
+
+        private Builder() { }
+
+        public Builder withDictionary(final CedictDictionary val) {
+            dictionary = val;
+            return this;
+        }
+
+        /**
+         * @param val used for text with characters the dictionary has no reading for; {@code null} for none
+         */
+        public Builder withFallback(final Transliterator val) {
+            fallback = val;
+            return this;
+        }
+
+        public PinyinEngine build() {
+            requireNonNull(dictionary, "Null dictionary");
+            return new PinyinEngine(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.gmo.discord.hanyu.bot.pinyin;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.Transliteration;
+
+/**
+ * {@link Transliterator} which asks the translator API for a {@code zh-Latn} translation.
+ */
+public class RemoteTransliterator implements Transliterator {
+    private final AsyncTranslatorTextApi translateApi;
+
+    public RemoteTransliterator(final AsyncTranslatorTextApi translateApi) {
+        this.translateApi = Objects.requireNonNull(translateApi, "Null translate API");
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> transliterate(final Collection<String> texts) {
+        if (texts.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        final TranslationRequest pinyinRequest = TranslationRequest.newBuilder()
+                .withSourceLanguage("zh-Hans")
+                .addDestinationLanguage("zh-Latn")
+                .withText(texts)
+                .build();
+        return translateApi.translateAsync(pinyinRequest)
+                .thenApply(pinyin -> pinyin.stream()
+                        .map(r -> r.getTranslations().stream().filter(t -> t.getTransliteration().filter(tl -> tl.getScript().equals("Latn")).isPresent()).findFirst().orElse(null))
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toMap(Translation::getText, t -> t.getTransliteration().map(Transliteration::getText).orElse(""), (a, b) -> a)));
+    }
+}
@@ -0,0 +1,15 @@
+package com.gmo.discord.hanyu.bot.pinyin;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Romanizes Chinese text as tone-marked pinyin.
+ */
+public interface Transliterator {
+    /**
+     * @return pinyin keyed by input text; texts which could not be romanized are left out
+     */
+    CompletableFuture<Map<String, String>> transliterate(Collection<String> texts);
+}
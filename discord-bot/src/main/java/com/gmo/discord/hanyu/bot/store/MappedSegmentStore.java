@@ -0,0 +1,369 @@
+package com.gmo.discord.hanyu.bot.store;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A persistent key-value store made of append-only, memory-mapped segment files with an in-memory hash index.
+ * <p>
+ * Each record is laid out as {@code [int length][int crc32][long writtenAtMillis][int keyLength][key][value]}, where
+ * the length and checksum cover everything after the eight byte header. The index is rebuilt at startup by scanning
+ * the segments in order. A torn or corrupt record at the tail of the newest segment, left behind by a crash, is
+ * truncated away. Sealed segments are compacted once less than half of their bytes are live, and the oldest segment
+ * is dropped when the store grows past its segment limit, so the on-disk footprint stays bounded.
+ */
+public class MappedSegmentStore implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedSegmentStore.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int BODY_PREFIX_BYTES = Long.BYTES + Integer.BYTES;
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long expireAfterWriteMillis;
+    private final Clock clock;
+    private final LinkedList<Segment> segments;
+    private final Map<String, Location> index;
+    private Segment active;
+
+    private MappedSegmentStore(final Builder builder) throws IOException {
+        directory = builder.directory;
+        segmentSize = builder.segmentSize;
+        maxSegments = builder.maxSegments;
+        expireAfterWriteMillis = builder.expireAfterWriteUnit.toMillis(builder.expireAfterWrite);
+        clock = builder.clock;
+        segments = new LinkedList<>();
+        index = new HashMap<>();
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public synchronized Optional<byte[]> get(final String key) {
+        final Location location = index.get(key);
+        if (location == null) {
+            return Optional.empty();
+        }
+        if (isExpired(location.writtenAt, clock.millis())) {
+            removeFromIndex(key);
+            return Optional.empty();
+        }
+        final ByteBuffer view = location.segment.view();
+        final int valueOffset = location.offset + HEADER_BYTES + BODY_PREFIX_BYTES + location.keyLength;
+        final byte[] value = new byte[location.recordLength - BODY_PREFIX_BYTES - location.keyLength];
+        view.position(valueOffset);
+        view.get(value);
+        return Optional.of(value);
+    }
+
+    public synchronized void put(final String key, final byte[] value) throws IOException {
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final int recordLength = BODY_PREFIX_BYTES + keyBytes.length + value.length;
+        if (HEADER_BYTES + recordLength > segmentSize) {
+            LOGGER.warn("Not persisting entry of {} bytes, larger than segment size {}", recordLength, segmentSize);
+            return;
+        }
+
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + recordLength);
+        record.putInt(recordLength);
+        record.putInt(0);
+        record.putLong(clock.millis());
+        record.putInt(keyBytes.length);
+        record.put(keyBytes);
+        record.put(value);
+        record.putInt(Integer.BYTES, checksum(record.array(), HEADER_BYTES, recordLength));
+        record.flip();
+        append(key, record);
+    }
+
+    /**
+     * Rewrites sealed segments whose live bytes have fallen below the compaction threshold, dropping expired and
+     * superseded records.
+     */
+    public synchronized void compact() throws IOException {
+        expire();
+        for (final Segment segment : new ArrayList<>(segments)) {
+            if (segment != active && segment.getLiveBytes() < segment.getWritePosition() * COMPACTION_THRESHOLD) {
+                evict(segment, true);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long diskSize() {
+        return segments.stream().mapToLong(Segment::capacity).sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        segments.forEach(Segment::force);
+    }
+
+    private void append(final String key, final ByteBuffer record) throws IOException {
+        if (active.remaining() < record.remaining()) {
+            roll();
+        }
+        final int length = record.remaining();
+        final int offset = active.append(record);
+        final int keyLength = record.getInt(HEADER_BYTES + Long.BYTES);
+        final long writtenAt = record.getLong(HEADER_BYTES);
+        removeFromIndex(key);
+        index.put(key, new Location(active, offset, length - HEADER_BYTES, keyLength, writtenAt));
+        active.addLiveBytes(length);
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        active = Segment.open(active.getId() + 1, segmentPath(active.getId() + 1), segmentSize);
+        segments.add(active);
+        compact();
+        while (segments.size() > maxSegments) {
+            evict(segments.getFirst(), false);
+        }
+    }
+
+    /**
+     * Removes the segment, first copying its live records into the active segment when {@code relocate} is set and
+     * there is room to do so without rolling.
+     */
+    private void evict(final Segment segment, final boolean relocate) throws IOException {
+        final Iterator<Map.Entry<String, Location>> iterator = index.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Location> entry = iterator.next();
+            final Location location = entry.getValue();
+            if (location.segment != segment) {
+                continue;
+            }
+            final int length = HEADER_BYTES + location.recordLength;
+            if (relocate && active.remaining() >= length) {
+                final ByteBuffer record = segment.view();
+                record.position(location.offset);
+                record.limit(location.offset + length);
+                final int offset = active.append(record);
+                active.addLiveBytes(length);
+                entry.setValue(new Location(active, offset, location.recordLength, location.keyLength, location.writtenAt));
+            } else {
+                iterator.remove();
+            }
+        }
+        segments.remove(segment);
+        segment.delete();
+    }
+
+    private void expire() {
+        final long now = clock.millis();
+        final Iterator<Map.Entry<String, Location>> iterator = index.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Location location = iterator.next().getValue();
+            if (isExpired(location.writtenAt, now)) {
+                location.segment.addLiveBytes(-(HEADER_BYTES + location.recordLength));
+                iterator.remove();
+            }
+        }
+    }
+
+    private void removeFromIndex(final String key) {
+        final Location previous = index.remove(key);
+        if (previous != null) {
+            previous.segment.addLiveBytes(-(HEADER_BYTES + previous.recordLength));
+        }
+    }
+
+    private boolean isExpired(final long writtenAt, final long now) {
+        return now - writtenAt >= expireAfterWriteMillis;
+    }
+
+    private void recover() throws IOException {
+        final List<Long> ids = new ArrayList<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (final Path path : stream) {
+                final Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        ids.sort(Long::compare);
+
+        final long now = clock.millis();
+        for (final long id : ids) {
+            final Segment segment = Segment.open(id, segmentPath(id), segmentSize);
+            segments.add(segment);
+            scan(segment, now);
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.open(0, segmentPath(0), segmentSize));
+        }
+        active = segments.getLast();
+        while (segments.size() > maxSegments) {
+            evict(segments.getFirst(), false);
+        }
+        LOGGER.info("Recovered {} entries from {} segments in {}", index.size(), segments.size(), directory);
+    }
+
+    private void scan(final Segment segment, final long now) {
+        final ByteBuffer view = segment.view();
+        int position = 0;
+        while (position + HEADER_BYTES <= segment.capacity()) {
+            final int recordLength = view.getInt(position);
+            if (recordLength == 0) {
+                break;
+            }
+            if (!isValidRecord(view, position, recordLength, segment.capacity())) {
+                LOGGER.warn("Truncating corrupt tail of segment {} at offset {}", segment.getId(), position);
+                segment.zeroFrom(position);
+                break;
+            }
+            final long writtenAt = view.getLong(position + HEADER_BYTES);
+            final int keyLength = view.getInt(position + HEADER_BYTES + Long.BYTES);
+            final byte[] key = new byte[keyLength];
+            final ByteBuffer keyView = segment.view();
+            keyView.position(position + HEADER_BYTES + BODY_PREFIX_BYTES);
+            keyView.get(key);
+
+            final String keyString = new String(key, StandardCharsets.UTF_8);
+            removeFromIndex(keyString);
+            if (!isExpired(writtenAt, now)) {
+                index.put(keyString, new Location(segment, position, recordLength, keyLength, writtenAt));
+                segment.addLiveBytes(HEADER_BYTES + recordLength);
+            }
+            position += HEADER_BYTES + recordLength;
+        }
+        segment.setWritePosition(position);
+    }
+
+    private static boolean isValidRecord(final ByteBuffer view, final int position, final int recordLength, final int capacity) {
+        if (recordLength < BODY_PREFIX_BYTES || (long) position + HEADER_BYTES + recordLength > capacity) {
+            return false;
+        }
+        final int keyLength = view.getInt(position + HEADER_BYTES + Long.BYTES);
+        if (keyLength < 0 || keyLength > recordLength - BODY_PREFIX_BYTES) {
+            return false;
+        }
+        final byte[] body = new byte[recordLength];
+        final ByteBuffer bodyView = view.duplicate();
+        bodyView.position(position + HEADER_BYTES);
+        bodyView.get(body);
+        return view.getInt(position + Integer.BYTES) == checksum(body, 0, recordLength);
+    }
+
+    private static int checksum(final byte[] bytes, final int offset, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private Path segmentPath(final long id) {
+        return directory.resolve(String.format("segment-%08d.dat", id));
+    }
+
+    private static final class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int recordLength;
+        private final int keyLength;
+        private final long writtenAt;
+
+        private Location(final Segment segment, final int offset, final int recordLength, final int keyLength, final long writtenAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.recordLength = recordLength;
+            this.keyLength = keyLength;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    public static final class Builder {
+        private Path directory;
+        private int segmentSize;
+        private int maxSegments;
+        private long expireAfterWrite;
+        private TimeUnit expireAfterWriteUnit;
+        private Clock clock;
+
+        private Builder() {
+            segmentSize = 8 * 1024 * 1024;
+            maxSegments = 8;
+            expireAfterWrite = 7;
+            expireAfterWriteUnit = TimeUnit.DAYS;
+            clock = Clock.systemUTC();
+        }
+
+        public Builder withDirectory(final Path val) {
+            directory = val;
+            return this;
+        }
+
+        /**
+         * @param val capacity of each segment file, in bytes
+         */
+        public Builder withSegmentSize(final int val) {
+            segmentSize = val;
+            return this;
+        }
+
+        public Builder withMaxSegments(final int val) {
+            maxSegments = val;
+            return this;
+        }
+
+        public Builder withExpireAfterWrite(final long duration, final TimeUnit unit) {
+            expireAfterWrite = duration;
+            expireAfterWriteUnit = unit;
+            return this;
+        }
+
+        public Builder withClock(final Clock val) {
+            clock = val;
+            return this;
+        }
+
+        public MappedSegmentStore build() throws IOException {
+            requireNonNull(directory, "Null directory");
+            requireNonNull(expireAfterWriteUnit, "Null expiry unit");
+            requireNonNull(clock, "Null clock");
+            Preconditions.checkArgument(segmentSize > HEADER_BYTES + BODY_PREFIX_BYTES, "Segment size too small");
+            Preconditions.checkArgument(maxSegments >= 2, "At least two segments are required");
+            Preconditions.checkArgument(expireAfterWrite > 0, "Expiry must be positive");
+
+            return new MappedSegmentStore(this);
+        }
+    }
+}
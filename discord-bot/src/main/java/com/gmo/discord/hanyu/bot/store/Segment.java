@@ -0,0 +1,97 @@
+package com.gmo.discord.hanyu.bot.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single fixed-capacity, memory-mapped, append-only segment file.
+ */
+final class Segment {
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+
+    private Segment(final long id, final Path path, final MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static Segment open(final long id, final Path path, final int capacity) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final long size = Math.max(channel.size(), capacity);
+            return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    int remaining() {
+        return buffer.capacity() - writePosition;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    void setWritePosition(final int writePosition) {
+        this.writePosition = writePosition;
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes(final long delta) {
+        liveBytes += delta;
+    }
+
+    /**
+     * @return a view of the mapped file; callers use absolute offsets
+     */
+    ByteBuffer view() {
+        return buffer.duplicate();
+    }
+
+    int append(final ByteBuffer record) {
+        final int offset = writePosition;
+        final ByteBuffer view = view();
+        view.position(offset);
+        view.put(record);
+        writePosition = view.position();
+        return offset;
+    }
+
+    void zeroFrom(final int offset) {
+        final ByteBuffer view = view();
+        view.position(offset);
+        while (view.remaining() >= Long.BYTES) {
+            view.putLong(0L);
+        }
+        while (view.hasRemaining()) {
+            view.put((byte) 0);
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,81 @@
+package com.gmo.discord.hanyu.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+public class CommandExecutorTest {
+    @Test
+    public void testChannelOrderIsKeptWhileOtherChannelsProceed() throws InterruptedException {
+        final CommandExecutor executor = new CommandExecutor(4, 100);
+        final List<String> replies = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> slowReply = new CompletableFuture<>();
+        final CountDownLatch otherChannel = new CountDownLatch(1);
+
+        assertTrue(executor.submit(1, () -> slowReply.thenRun(() -> replies.add("first"))));
+        assertTrue(executor.submit(1, () -> {
+            replies.add("second");
+            return CompletableFuture.completedFuture(null);
+        }));
+        assertTrue(executor.submit(2, () -> {
+            otherChannel.countDown();
+            return CompletableFuture.completedFuture(null);
+        }));
+
+        assertTrue(otherChannel.await(5, TimeUnit.SECONDS));
+        assertTrue(replies.isEmpty());
+        awaitTrue(() -> executor.getQueueDepth() == 1);
+
+        slowReply.complete(null);
+        awaitTrue(() -> replies.size() == 2);
+        assertEquals(Arrays.asList("first", "second"), replies);
+        assertEquals(3, executor.getWaitTime().getCount());
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() {
+        final CommandExecutor executor = new CommandExecutor(1, 1);
+        final CompletableFuture<Void> blocked = new CompletableFuture<>();
+
+        assertTrue(executor.submit(1, () -> blocked));
+        awaitTrue(() -> executor.getQueueDepth() == 0);
+        assertTrue(executor.submit(1, () -> CompletableFuture.completedFuture(null)));
+        assertFalse(executor.submit(1, () -> CompletableFuture.completedFuture(null)));
+        assertEquals(1, executor.getRejectedCount());
+        blocked.complete(null);
+    }
+
+    @Test
+    public void testRepliesCanBeSentOnWorkers() throws Exception {
+        final CommandExecutor executor = new CommandExecutor(1, 1);
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        final CompletableFuture<String> replyThread = new CompletableFuture<>();
+
+        assertTrue(executor.submit(1, () -> response.thenAcceptAsync(
+                result -> replyThread.complete(Thread.currentThread().getName()), executor.getWorkers())));
+        // Completed from a thread standing in for the HTTP client, as a translator response would be
+        final Thread ioThread = new Thread(() -> response.complete("reply"), "io-reactor");
+        ioThread.start();
+        ioThread.join();
+
+        assertTrue(replyThread.get(5, TimeUnit.SECONDS).startsWith("command-worker-"));
+    }
+
+    private static void awaitTrue(final BooleanSupplier condition) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.gmo.discord.hanyu.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+
+import sx.blah.discord.handle.obj.IMessage;
+
+public class ReplyTrackerTest {
+    private static final long CHANNEL = 1;
+
+    private final ReplyTracker tracker = new ReplyTracker(3, 100);
+
+    @Test
+    public void testReplyReplaceableWithinWindow() {
+        final IMessage reply = message(10);
+        tracker.onReply(CHANNEL, reply);
+        tracker.onMessage(CHANNEL, false);
+        tracker.onMessage(CHANNEL, false);
+
+        assertSame(reply, tracker.getReplaceable(CHANNEL));
+        assertNull(tracker.getReplaceable(2));
+
+        tracker.onMessage(CHANNEL, false);
+        assertNull(tracker.getReplaceable(CHANNEL));
+    }
+
+    @Test
+    public void testNewReplyResetsWindow() {
+        tracker.onReply(CHANNEL, message(10));
+        tracker.onMessage(CHANNEL, false);
+        tracker.onMessage(CHANNEL, false);
+        final IMessage reply = message(11);
+        tracker.onReply(CHANNEL, reply);
+        tracker.onMessage(CHANNEL, false);
+
+        assertSame(reply, tracker.getReplaceable(CHANNEL));
+    }
+
+    @Test
+    public void testBotMessagesNotCounted() {
+        final IMessage reply = message(10);
+        tracker.onReply(CHANNEL, reply);
+        // The echo of the reply itself, then messages from another bot
+        tracker.onMessage(CHANNEL, true);
+        tracker.onMessage(CHANNEL, true);
+        tracker.onMessage(CHANNEL, true);
+        tracker.onMessage(CHANNEL, false);
+        tracker.onMessage(CHANNEL, false);
+
+        assertSame(reply, tracker.getReplaceable(CHANNEL));
+    }
+
+    @Test
+    public void testDeletedReplyForgotten() {
+        tracker.onReply(CHANNEL, message(10));
+        tracker.onDelete(CHANNEL, 11);
+        tracker.onDelete(2, 10);
+        assertEquals(10, tracker.getReplaceable(CHANNEL).getLongID());
+
+        tracker.onDelete(CHANNEL, 10);
+        assertNull(tracker.getReplaceable(CHANNEL));
+    }
+
+    private static IMessage message(final long id) {
+        return (IMessage) Proxy.newProxyInstance(IMessage.class.getClassLoader(), new Class<?>[] {IMessage.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getLongID")) {
+                        return id;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,142 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+public class AsyncRetryingTranslatorTextApiTest {
+    private static final DetectionResponse DETECTION = DetectionResponse.newBuilder().withLanguage("en").build();
+
+    @Test
+    public void testRetriesApiFailures() {
+        final FailingApi delegate = new FailingApi(2);
+        final AsyncTranslatorTextApi api = AsyncRetryingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMaxAttempts(3)
+                .withWait(1, TimeUnit.MILLISECONDS)
+                .build();
+
+        assertEquals(DETECTION, api.detectAsync(TranslationRequest.newBuilder().addText("hello").build()).join());
+        assertEquals(3, delegate.attempts.get());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+        final FailingApi delegate = new FailingApi(5);
+        final AsyncTranslatorTextApi api = AsyncRetryingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMaxAttempts(2)
+                .withWait(1, TimeUnit.MILLISECONDS)
+                .build();
+
+        try {
+            api.detectAsync(TranslationRequest.newBuilder().addText("hello").build()).join();
+            fail("Expected failure");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(2, delegate.attempts.get());
+    }
+
+    @Test
+    public void testFailsFastOnClientErrors() {
+        final FailingApi delegate = new FailingApi(5, new TranslatorApiException(400, "Bad Request", -1));
+        final AsyncRetryingTranslatorTextApi api = AsyncRetryingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMaxAttempts(3)
+                .withWait(1, TimeUnit.MILLISECONDS)
+                .build();
+
+        try {
+            api.detectAsync(TranslationRequest.newBuilder().addText("hello").build()).join();
+            fail("Expected failure");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof TranslatorApiException);
+        }
+        assertEquals(1, delegate.attempts.get());
+        assertEquals(1, api.getNonRetryableCount());
+        assertEquals(1, api.getAttemptLatency(1).getCount());
+        assertEquals(0, api.getAttemptLatency(2).getCount());
+    }
+
+    @Test
+    public void testThrowingRetryFailsTheCall() throws Exception {
+        final FailingApi delegate = new FailingApi(1);
+        delegate.throwFrom = 2;
+        final AsyncRetryingTranslatorTextApi api = AsyncRetryingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMaxAttempts(3)
+                .withWait(1, TimeUnit.MILLISECONDS)
+                .build();
+
+        try {
+            api.detectAsync(TranslationRequest.newBuilder().addText("hello").build()).get(5, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(2, delegate.attempts.get());
+        assertEquals(1, api.getNonRetryableCount());
+    }
+
+    private static final class FailingApi implements AsyncTranslatorTextApi {
+        private final int failures;
+        private final IOException failure;
+        private final AtomicInteger attempts = new AtomicInteger();
+        // Attempts from this one on throw instead of returning a future
+        private volatile int throwFrom = Integer.MAX_VALUE;
+
+        private FailingApi(final int failures) {
+            this(failures, new IOException("Failed status code 503: Service Unavailable"));
+        }
+
+        private FailingApi(final int failures, final IOException failure) {
+            this.failures = failures;
+            this.failure = failure;
+        }
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            final int attempt = attempts.incrementAndGet();
+            if (attempt >= throwFrom) {
+                throw new IllegalStateException("I/O reactor has been shut down");
+            }
+            if (attempt <= failures) {
+                return AsyncCalls.failed(failure);
+            }
+            return CompletableFuture.completedFuture(DETECTION);
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
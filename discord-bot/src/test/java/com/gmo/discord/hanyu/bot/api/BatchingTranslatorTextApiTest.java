@@ -0,0 +1,147 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequestPayload;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+public class BatchingTranslatorTextApiTest {
+    @Test
+    public void testRequestsAreBatchedAndSplitByIndex() {
+        final PendingApi delegate = new PendingApi();
+        final BatchingTranslatorTextApi api = BatchingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withWindow(1, TimeUnit.HOURS)
+                .withMaxElements(3)
+                .build();
+
+        final CompletableFuture<List<TranslationResponse>> first = api.translateAsync(request("zh-Hans", "one"));
+        final CompletableFuture<List<TranslationResponse>> other = api.translateAsync(request("en", "你好"));
+        final CompletableFuture<List<TranslationResponse>> second = api.translateAsync(request("zh-Hans", "two", "three"));
+        final CompletableFuture<List<TranslationResponse>> third = api.translateAsync(request("zh-Hans", "four"));
+        assertEquals(1, delegate.requests.size());
+        assertEquals(Arrays.asList("one", "two", "three"), text(delegate.requests.get(0)));
+
+        delegate.pending.get(0).complete(Arrays.asList(response("一"), response("二"), response("三")));
+        assertEquals(Arrays.asList(response("一")), first.join());
+        assertEquals(Arrays.asList(response("二"), response("三")), second.join());
+        assertEquals(1, api.getBatchCount());
+        assertEquals(2, api.getBatchedRequestCount());
+        assertTrue(!other.isDone() && !third.isDone());
+    }
+
+    @Test
+    public void testWindowFlushesSingleRequestUnchanged() throws Exception {
+        final PendingApi delegate = new PendingApi();
+        final BatchingTranslatorTextApi api = BatchingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withWindow(1, TimeUnit.MILLISECONDS)
+                .build();
+
+        final TranslationRequest request = request("zh-Hans", "hello");
+        final CompletableFuture<List<TranslationResponse>> future = api.translateAsync(request);
+        for (int i = 0; i < 100 && delegate.requests.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(request), delegate.requests);
+
+        delegate.pending.get(0).completeExceptionally(new IOException("Failed status code 500"));
+        try {
+            future.join();
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testThrowingDelegateFailsEveryMember() throws Exception {
+        final PendingApi delegate = new PendingApi();
+        delegate.failure = new IllegalStateException("Client closed");
+        final BatchingTranslatorTextApi api = BatchingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withWindow(1, TimeUnit.MILLISECONDS)
+                .build();
+
+        final List<CompletableFuture<List<TranslationResponse>>> futures = Arrays.asList(
+                api.translateAsync(request("zh-Hans", "one")),
+                api.translateAsync(request("zh-Hans", "two")),
+                api.translateAsync(request("en", "你好")));
+        for (final CompletableFuture<List<TranslationResponse>> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected failure");
+            } catch (final ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    private static TranslationRequest request(final String to, final String... text) {
+        return TranslationRequest.newBuilder()
+                .withText(Arrays.asList(text))
+                .addDestinationLanguage(to)
+                .build();
+    }
+
+    private static TranslationResponse response(final String text) {
+        return TranslationResponse.newBuilder()
+                .withTranslations(Arrays.asList(Translation.newBuilder().withText(text).withDestinationLanguage("zh-Hans").build()))
+                .build();
+    }
+
+    private static List<String> text(final TranslationRequest request) {
+        return request.getText().stream().map(TranslationRequestPayload::getText).collect(Collectors.toList());
+    }
+
+    private static final class PendingApi implements AsyncTranslatorTextApi {
+        private final List<TranslationRequest> requests = new CopyOnWriteArrayList<>();
+        private final List<CompletableFuture<List<TranslationResponse>>> pending = new CopyOnWriteArrayList<>();
+        private volatile RuntimeException failure;
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            if (failure != null) {
+                throw failure;
+            }
+            final CompletableFuture<List<TranslationResponse>> future = new CompletableFuture<>();
+            requests.add(request);
+            pending.add(future);
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+
+public class CachingTranslatorTextApiTest {
+    @Test
+    public void testNormalizedRequestsShareEntry() throws IOException {
+        final CountingApi delegate = new CountingApi();
+        final CachingTranslatorTextApi api = CachingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .build();
+
+        api.translate(request("你好"));
+        api.translate(request("  你好 "));
+        api.translate(request("你好　"));
+
+        assertEquals(1, delegate.calls.get());
+        assertEquals(2, api.getStats().hitCount());
+        assertEquals(1, api.getStats().missCount());
+    }
+
+    @Test
+    public void testExpiry() throws IOException {
+        final CountingApi delegate = new CountingApi();
+        final AtomicLong nanos = new AtomicLong();
+        final CachingTranslatorTextApi api = CachingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withExpireAfterWrite(1, TimeUnit.MINUTES)
+                .withTicker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return nanos.get();
+                    }
+                })
+                .build();
+
+        api.translate(request("hello"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        api.translate(request("hello"));
+        assertEquals(1, delegate.calls.get());
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        api.translate(request("hello"));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() throws IOException {
+        final CountingApi delegate = new CountingApi();
+        final CachingTranslatorTextApi api = CachingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMaximumWeight(40)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            api.translate(request("hot"));
+        }
+        for (int i = 0; i < 20; i++) {
+            api.translate(request("cold" + i));
+        }
+        final int before = delegate.calls.get();
+        api.translate(request("hot"));
+        assertEquals(before, delegate.calls.get());
+    }
+
+    private static TranslationRequest request(final String text) {
+        return TranslationRequest.newBuilder()
+                .addText(text)
+                .addDestinationLanguage("en")
+                .build();
+    }
+
+    private static final class CountingApi implements TranslatorTextApi {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public List<TranslationResponse> translate(final TranslationRequest request) {
+            calls.incrementAndGet();
+            return ImmutableList.of(TranslationResponse.newBuilder()
+                    .addTranslation(Translation.newBuilder()
+                            .withText(request.getText().get(0).getText())
+                            .withDestinationLanguage("en")
+                            .build())
+                    .build());
+        }
+
+        @Override
+        public DetectionResponse detect(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DictionaryLookupResponse lookup(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ExampleResponse examples(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Ticker;
+
+public class CircuitBreakingTranslatorTextApiTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final ToggleApi delegate = new ToggleApi();
+    private final CircuitBreakingTranslatorTextApi api = CircuitBreakingTranslatorTextApi.newBuilder()
+            .withDelegate(delegate)
+            .withTicker(new Ticker() {
+                @Override
+                public long read() {
+                    return nanos.get();
+                }
+            })
+            .withWindowSize(10)
+            .withMinimumCalls(4)
+            .withOpenDuration(10, TimeUnit.SECONDS)
+            .withProbeCalls(2)
+            .build();
+
+    @Test
+    public void testOpensAndFailsFast() {
+        delegate.failing.set(true);
+        for (int i = 0; i < 4; i++) {
+            assertFails(detect("hello" + i), IOException.class);
+        }
+        assertEquals(CircuitBreakingTranslatorTextApi.State.OPEN, api.getState());
+
+        assertFails(detect("hello"), CircuitOpenException.class);
+        assertEquals(4, delegate.calls.get());
+        assertEquals(1, api.getRejectedCount());
+    }
+
+    @Test
+    public void testServesStaleResponsesWhileOpen() {
+        assertEquals("en", detect("cached").join().getLanguage());
+        delegate.failing.set(true);
+        for (int i = 0; i < 4; i++) {
+            assertFails(detect("hello" + i), IOException.class);
+        }
+
+        assertEquals("en", detect("cached").join().getLanguage());
+        assertEquals(1, api.getStaleCount());
+    }
+
+    @Test
+    public void testClientErrorsDoNotOpen() {
+        delegate.failure = new TranslatorApiException(400, "Bad Request", -1);
+        delegate.failing.set(true);
+        for (int i = 0; i < 10; i++) {
+            assertFails(detect("hello" + i), TranslatorApiException.class);
+        }
+        assertEquals(CircuitBreakingTranslatorTextApi.State.CLOSED, api.getState());
+    }
+
+    @Test
+    public void testProbesCloseCircuit() {
+        delegate.failing.set(true);
+        for (int i = 0; i < 4; i++) {
+            assertFails(detect("hello" + i), IOException.class);
+        }
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(CircuitBreakingTranslatorTextApi.State.HALF_OPEN, api.getState());
+
+        // A failed probe reopens the circuit
+        assertFails(detect("probe"), IOException.class);
+        assertEquals(CircuitBreakingTranslatorTextApi.State.OPEN, api.getState());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        delegate.failing.set(false);
+        detect("probe1").join();
+        detect("probe2").join();
+        assertEquals(CircuitBreakingTranslatorTextApi.State.CLOSED, api.getState());
+    }
+
+    private CompletableFuture<DetectionResponse> detect(final String text) {
+        return api.detectAsync(TranslationRequest.newBuilder().addText(text).build());
+    }
+
+    private static void assertFails(final CompletableFuture<?> future, final Class<? extends Throwable> type) {
+        try {
+            future.join();
+            fail("Expected failure");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause().toString(), type.isInstance(e.getCause()));
+        }
+    }
+
+    private static final class ToggleApi implements AsyncTranslatorTextApi {
+        private final AtomicBoolean failing = new AtomicBoolean();
+        private final AtomicInteger calls = new AtomicInteger();
+        private IOException failure = new IOException("Failed status code 503: Service Unavailable");
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            calls.incrementAndGet();
+            if (failing.get()) {
+                return AsyncCalls.failed(failure);
+            }
+            return CompletableFuture.completedFuture(DetectionResponse.newBuilder().withLanguage("en").build());
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
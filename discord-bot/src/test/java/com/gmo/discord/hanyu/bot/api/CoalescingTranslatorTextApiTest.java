@@ -0,0 +1,98 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+public class CoalescingTranslatorTextApiTest {
+    @Test
+    public void testConcurrentCallsShareOneRequest() {
+        final PendingApi delegate = new PendingApi();
+        final CoalescingTranslatorTextApi api = CoalescingTranslatorTextApi.newBuilder()
+                .withAsyncDelegate(delegate)
+                .build();
+
+        final CompletableFuture<DetectionResponse> first = api.detectAsync(request("你好"));
+        final CompletableFuture<DetectionResponse> second = api.detectAsync(request(" 你好"));
+        final CompletableFuture<DetectionResponse> third = api.detectAsync(request("你好 "));
+        assertEquals(1, delegate.pending.size());
+
+        final DetectionResponse response = DetectionResponse.newBuilder().withLanguage("zh-Hans").build();
+        delegate.pending.get(0).complete(response);
+        assertEquals(response, first.join());
+        assertEquals(response, second.join());
+        assertEquals(response, third.join());
+        assertEquals(1, api.getUpstreamCount());
+        assertEquals(2, api.getCollapsedCount());
+        assertEquals(4, api.getCollapsedCharacters());
+        assertEquals(0, api.getInFlightCount());
+
+        api.detectAsync(request("你好"));
+        assertEquals(2, delegate.pending.size());
+    }
+
+    @Test
+    public void testFailuresAreShared() {
+        final PendingApi delegate = new PendingApi();
+        final CoalescingTranslatorTextApi api = CoalescingTranslatorTextApi.newBuilder()
+                .withAsyncDelegate(delegate)
+                .build();
+
+        final CompletableFuture<DetectionResponse> first = api.detectAsync(request("hello"));
+        final CompletableFuture<DetectionResponse> second = api.detectAsync(request("hello"));
+        delegate.pending.get(0).completeExceptionally(new IOException("Failed status code 500"));
+
+        for (final CompletableFuture<DetectionResponse> future : new CompletableFuture[]{first, second}) {
+            try {
+                future.join();
+            } catch (final CompletionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+        assertEquals(1, delegate.pending.size());
+    }
+
+    private static TranslationRequest request(final String text) {
+        return TranslationRequest.newBuilder().addText(text).build();
+    }
+
+    private static final class PendingApi implements AsyncTranslatorTextApi {
+        private final List<CompletableFuture<DetectionResponse>> pending = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            final CompletableFuture<DetectionResponse> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+public class HedgingTranslatorTextApiTest {
+    private static final TranslationRequest REQUEST = TranslationRequest.newBuilder().addText("hello").build();
+
+    @Test
+    public void testHedgeWinsAndCancelsStalledCall() {
+        final StallingApi delegate = new StallingApi();
+        final HedgingTranslatorTextApi api = HedgingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMinDelay(10, TimeUnit.MILLISECONDS)
+                .withWindow(1, TimeUnit.NANOSECONDS, 1)
+                .withMaxHedgeRatio(0.5, 1)
+                .build();
+
+        // Fast calls establish the hedge delay
+        api.lookupAsync(REQUEST).join();
+        api.lookupAsync(REQUEST).join();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), api.getHedgeDelayNanos());
+
+        delegate.stallNext = true;
+        final DictionaryLookupResponse response = api.lookupAsync(REQUEST).join();
+
+        assertEquals("hedge", response.getNormalizedSource());
+        assertEquals(1, api.getHedgeCount());
+        // The win is counted just after the result completes
+        awaitTrue(() -> api.getHedgeWinCount() == 1 && delegate.stalled.isCancelled());
+    }
+
+    @Test
+    public void testHedgeRateIsCapped() {
+        final StallingApi delegate = new StallingApi();
+        final HedgingTranslatorTextApi api = HedgingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMinDelay(1, TimeUnit.MILLISECONDS)
+                .withWindow(1, TimeUnit.NANOSECONDS, 1)
+                .withMaxHedgeRatio(0.01, 1)
+                .build();
+        api.lookupAsync(REQUEST).join();
+        api.lookupAsync(REQUEST).join();
+
+        delegate.stallNext = true;
+        api.lookupAsync(REQUEST).join();
+        delegate.stallNext = true;
+        final CompletableFuture<DictionaryLookupResponse> unhedged = api.lookupAsync(REQUEST);
+
+        awaitTrue(() -> api.getSuppressedCount() == 1);
+        assertEquals(1, api.getHedgeCount());
+        delegate.stalled.complete(DictionaryLookupResponse.newBuilder().withNormalizedSource("primary").build());
+        assertEquals("primary", unhedged.join().getNormalizedSource());
+    }
+
+    @Test
+    public void testThrowingHedgeCountsAsFailed() throws Exception {
+        final StallingApi delegate = new StallingApi();
+        final HedgingTranslatorTextApi api = HedgingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withMinDelay(10, TimeUnit.MILLISECONDS)
+                .withWindow(1, TimeUnit.NANOSECONDS, 1)
+                .withMaxHedgeRatio(0.01, 1)
+                .build();
+        api.lookupAsync(REQUEST).join();
+        api.lookupAsync(REQUEST).join();
+
+        delegate.stallNext = true;
+        delegate.throwNext = true;
+        final CompletableFuture<DictionaryLookupResponse> failed = api.lookupAsync(REQUEST);
+        awaitTrue(() -> !delegate.throwNext);
+        delegate.stalled.completeExceptionally(new IOException("Failed status code 503: Service Unavailable"));
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(0, api.getHedgeCount());
+
+        // The credit taken for the hedge that threw was given back
+        delegate.stallNext = true;
+        assertEquals("hedge", api.lookupAsync(REQUEST).join().getNormalizedSource());
+        assertEquals(1, api.getHedgeCount());
+    }
+
+    private static void awaitTrue(final BooleanSupplier condition) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+
+    private static final class StallingApi implements AsyncTranslatorTextApi {
+        private volatile boolean stallNext;
+        private volatile boolean throwNext;
+        private volatile CompletableFuture<DictionaryLookupResponse> stalled;
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            if (stallNext) {
+                stallNext = false;
+                stalled = new CompletableFuture<>();
+                return stalled;
+            }
+            if (throwNext) {
+                throwNext = false;
+                throw new IllegalStateException("I/O reactor has been shut down");
+            }
+            return CompletableFuture.completedFuture(DictionaryLookupResponse.newBuilder()
+                    .withNormalizedSource("hedge")
+                    .build());
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
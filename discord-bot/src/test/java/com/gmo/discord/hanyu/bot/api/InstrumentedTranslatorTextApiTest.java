@@ -0,0 +1,63 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.support.metrics.MetricsRegistry;
+
+public class InstrumentedTranslatorTextApiTest {
+    private static final DetectionResponse DETECTION = DetectionResponse.newBuilder().withLanguage("en").build();
+
+    @Test
+    public void testRecordsLatencyByMethodAndOutcome() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final AsyncTranslatorTextApi api = InstrumentedTranslatorTextApi.newBuilder()
+                .withDelegate(new ThrottledApi())
+                .withRegistry(registry)
+                .withLayer("upstream")
+                .build();
+
+        api.detectAsync(TranslationRequest.newBuilder().addText("hello").build()).join();
+        api.lookupAsync(TranslationRequest.newBuilder().addText("hello").build()).exceptionally(e -> null).join();
+
+        assertEquals(1, registry.histogram(InstrumentedTranslatorTextApi.METRIC, "",
+                "layer", "upstream", "method", "detect", "outcome", "ok").getCount());
+        assertEquals(1, registry.histogram(InstrumentedTranslatorTextApi.METRIC, "",
+                "layer", "upstream", "method", "lookup", "outcome", "429").getCount());
+        assertTrue(registry.toString().contains(
+                "translator_request_seconds_count{layer=\"upstream\",method=\"translate\",outcome=\"ok\"} 0\n"));
+    }
+
+    private static final class ThrottledApi implements AsyncTranslatorTextApi {
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            return CompletableFuture.completedFuture(DETECTION);
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            return AsyncCalls.failed(new TranslatorApiException(429, "Too Many Requests", -1));
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.BackTranslation;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryTranslation;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.Transliteration;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.hanyu.bot.store.MappedSegmentStore;
+import com.google.common.collect.ImmutableList;
+
+public class PersistentCachingTranslatorTextApiTest {
+    private static final TranslationResponse TRANSLATION = TranslationResponse.newBuilder()
+            .addTranslation(Translation.newBuilder()
+                    .withText("你好")
+                    .withDestinationLanguage("zh-Hans")
+                    .withTransliteration(Transliteration.newBuilder()
+                            .withText("nǐ hǎo")
+                            .withScript("Latn")
+                            .build())
+                    .build())
+            .build();
+    private static final DictionaryLookupResponse LOOKUP = DictionaryLookupResponse.newBuilder()
+            .withNormalizedSource("hello")
+            .withDisplaySource("hello")
+            .withTranslations(ImmutableList.of(DictionaryTranslation.newBuilder()
+                    .withNormalizedTarget("你好")
+                    .withDisplayTarget("你好")
+                    .withPosTag("OTHER")
+                    .withConfidence(0.9)
+                    .withBackTranslations(ImmutableList.of(BackTranslation.newBuilder()
+                            .withNormalizedText("hello")
+                            .withDisplayText("hello")
+                            .withNumExamples(3)
+                            .withFrequencyCount(100)
+                            .build()))
+                    .build()))
+            .build();
+
+    @Test
+    public void testResponsesSurviveRestart() throws IOException {
+        final Path directory = Files.createTempDirectory("translator-cache");
+        final FixedApi first = new FixedApi();
+        try (final PersistentCachingTranslatorTextApi api = newApi(directory, first)) {
+            assertEquals(ImmutableList.of(TRANSLATION), api.translate(request()));
+            assertEquals(LOOKUP, api.lookup(request()));
+        }
+
+        final FixedApi second = new FixedApi();
+        try (final PersistentCachingTranslatorTextApi api = newApi(directory, second)) {
+            assertEquals(ImmutableList.of(TRANSLATION), api.translate(request()));
+            assertEquals(LOOKUP, api.lookup(request()));
+        }
+        assertEquals(2, first.calls.get());
+        assertEquals(0, second.calls.get());
+    }
+
+    @Test
+    public void testRequestsDifferingOnlyByLanguageAreStoredApart() throws IOException {
+        final Path directory = Files.createTempDirectory("translator-cache");
+        final TranslationRequest toChinese = request("谢谢", "en", "zh-Hans");
+        final TranslationRequest toEnglish = request("谢谢", "zh-Hans", "en");
+        try (final PersistentCachingTranslatorTextApi api = newApi(directory, new LanguageEchoApi())) {
+            api.translate(toChinese);
+            api.translate(toEnglish);
+            api.lookup(toChinese);
+            api.lookup(toEnglish);
+        }
+
+        final LanguageEchoApi delegate = new LanguageEchoApi();
+        try (final PersistentCachingTranslatorTextApi api = newApi(directory, delegate)) {
+            assertEquals("zh-Hans", api.translate(toChinese).get(0).getTranslations().get(0).getDestinationLanguage());
+            assertEquals("en", api.translate(toEnglish).get(0).getTranslations().get(0).getDestinationLanguage());
+            assertEquals("en->zh-Hans", api.lookup(toChinese).getNormalizedSource());
+            assertEquals("zh-Hans->en", api.lookup(toEnglish).getNormalizedSource());
+        }
+        assertEquals(0, delegate.calls.get());
+    }
+
+    private static PersistentCachingTranslatorTextApi newApi(final Path directory, final TranslatorTextApi delegate) throws IOException {
+        return PersistentCachingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withStore(MappedSegmentStore.newBuilder()
+                        .withDirectory(directory)
+                        .withSegmentSize(64 * 1024)
+                        .build())
+                .build();
+    }
+
+    private static TranslationRequest request() {
+        return request("hello", "en", "zh-Hans");
+    }
+
+    private static TranslationRequest request(final String text, final String from, final String to) {
+        return TranslationRequest.newBuilder()
+                .addText(text)
+                .withSourceLanguage(from)
+                .addDestinationLanguage(to)
+                .build();
+    }
+
+    private static final class FixedApi implements TranslatorTextApi {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public List<TranslationResponse> translate(final TranslationRequest request) {
+            calls.incrementAndGet();
+            return ImmutableList.of(TRANSLATION);
+        }
+
+        @Override
+        public DetectionResponse detect(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DictionaryLookupResponse lookup(final TranslationRequest request) {
+            calls.incrementAndGet();
+            return LOOKUP;
+        }
+
+        @Override
+        public ExampleResponse examples(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Answers with the request's languages, so a response served for the wrong language pair is obvious.
+     */
+    private static final class LanguageEchoApi implements TranslatorTextApi {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public List<TranslationResponse> translate(final TranslationRequest request) {
+            calls.incrementAndGet();
+            return ImmutableList.of(TranslationResponse.newBuilder()
+                    .addTranslation(Translation.newBuilder()
+                            .withText(request.getText().get(0).getText())
+                            .withDestinationLanguage(request.getDestinationLanguages().get(0))
+                            .build())
+                    .build());
+        }
+
+        @Override
+        public DetectionResponse detect(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DictionaryLookupResponse lookup(final TranslationRequest request) {
+            calls.incrementAndGet();
+            return DictionaryLookupResponse.newBuilder()
+                    .withNormalizedSource(request.getSourceLanguage().get() + "->" + request.getDestinationLanguages().get(0))
+                    .withDisplaySource(request.getText().get(0).getText())
+                    .withTranslations(ImmutableList.of())
+                    .build();
+        }
+
+        @Override
+        public ExampleResponse examples(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.base.Ticker;
+
+public class RateLimitingTranslatorTextApiTest {
+    private static final DetectionResponse DETECTION = DetectionResponse.newBuilder().withLanguage("en").build();
+
+    @Test
+    public void testDelaysThenRejects() {
+        final CountingApi delegate = new CountingApi();
+        final RateLimitingTranslatorTextApi api = RateLimitingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withCapacity(10)
+                .withRefill(100, 1, TimeUnit.SECONDS)
+                .withMaxWait(60, TimeUnit.MILLISECONDS)
+                .withTicker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return 0;
+                    }
+                })
+                .build();
+
+        // Ten characters fit the burst, the next five wait 50ms for the refill, the five after that don't fit
+        assertEquals(DETECTION, detect(api, "helloworld").join());
+        final CompletableFuture<DetectionResponse> delayed = detect(api, "again");
+        final CompletableFuture<DetectionResponse> rejected = detect(api, "third");
+
+        assertEquals(DETECTION, delayed.join());
+        try {
+            rejected.join();
+            fail("Expected failure");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof QuotaExceededException);
+        }
+        assertEquals(2, delegate.calls.get());
+        assertEquals(1, api.getDelayedCount());
+        assertEquals(1, api.getRejectedCount());
+    }
+
+    @Test
+    public void testChargesEveryRetry() {
+        final CountingApi delegate = new CountingApi(1);
+        final RateLimitingTranslatorTextApi rateLimitingApi = RateLimitingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withCapacity(10)
+                .withRefill(1, 1, TimeUnit.HOURS)
+                .withMaxWait(0, TimeUnit.MILLISECONDS)
+                .withTicker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return 0;
+                    }
+                })
+                .build();
+        final AsyncTranslatorTextApi api = AsyncRetryingTranslatorTextApi.newBuilder()
+                .withDelegate(rateLimitingApi)
+                .withMaxAttempts(3)
+                .withWait(1, TimeUnit.MILLISECONDS)
+                .build();
+
+        // The failed attempt and its retry each take five characters, leaving nothing for a second call
+        assertEquals(DETECTION, detect(api, "hello").join());
+        try {
+            detect(api, "hello").join();
+            fail("Expected failure");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof QuotaExceededException);
+        }
+        assertEquals(2, delegate.calls.get());
+        assertEquals(1, rateLimitingApi.getRejectedCount());
+    }
+
+    @Test
+    public void testCancellingDelayedCallCancelsDelegateCall() {
+        final CountingApi delegate = new CountingApi();
+        delegate.stall = true;
+        final RateLimitingTranslatorTextApi api = RateLimitingTranslatorTextApi.newBuilder()
+                .withDelegate(delegate)
+                .withCapacity(5)
+                .withRefill(1000, 1, TimeUnit.SECONDS)
+                .withTicker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return 0;
+                    }
+                })
+                .build();
+
+        detect(api, "hello");
+        final CompletableFuture<DetectionResponse> delayed = detect(api, "again");
+        awaitTrue(() -> delegate.calls.get() == 2);
+        delayed.cancel(true);
+        assertTrue(delegate.stalled.get(1).isCancelled());
+    }
+
+    private static void awaitTrue(final BooleanSupplier condition) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+
+    private static CompletableFuture<DetectionResponse> detect(final AsyncTranslatorTextApi api, final String text) {
+        return api.detectAsync(TranslationRequest.newBuilder().addText(text).build());
+    }
+
+    private static final class CountingApi implements AsyncTranslatorTextApi {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final int failures;
+        private final List<CompletableFuture<DetectionResponse>> stalled = new CopyOnWriteArrayList<>();
+        // Calls return futures which never complete by themselves
+        private volatile boolean stall;
+
+        private CountingApi() {
+            this(0);
+        }
+
+        /**
+         * @param failures how many calls fail with a 503 before the rest succeed
+         */
+        private CountingApi(final int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            if (calls.incrementAndGet() <= failures) {
+                return AsyncCalls.failed(new TranslatorApiException(503, "Service Unavailable", -1));
+            }
+            if (stall) {
+                final CompletableFuture<DetectionResponse> future = new CompletableFuture<>();
+                stalled.add(future);
+                return future;
+            }
+            return CompletableFuture.completedFuture(DETECTION);
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+    private final RetryPolicy policy = RetryPolicy.newBuilder()
+            .withMaxAttempts(5)
+            .withBaseDelay(100, TimeUnit.MILLISECONDS)
+            .withMaxDelay(1, TimeUnit.SECONDS)
+            .withMaxRetryAfter(3, TimeUnit.SECONDS)
+            .build();
+
+    @Test
+    public void testClassification() {
+        assertTrue(policy.isRetryable(new TranslatorApiException(429, "Too Many Requests", -1)));
+        assertTrue(policy.isRetryable(new TranslatorApiException(503, "Service Unavailable", -1)));
+        assertTrue(policy.isRetryable(new IOException("Connection reset")));
+        assertFalse(policy.isRetryable(new TranslatorApiException(400, "Bad Request", -1)));
+        assertFalse(policy.isRetryable(new TranslatorApiException(401, "Unauthorized", -1)));
+        assertFalse(policy.isRetryable(new IllegalStateException()));
+    }
+
+    @Test
+    public void testHonoursRetryAfter() {
+        assertEquals(2000, policy.nextDelayMillis(new TranslatorApiException(429, "Too Many Requests", 2000), 1, 0));
+        assertEquals(RetryPolicy.GIVE_UP,
+                policy.nextDelayMillis(new TranslatorApiException(429, "Too Many Requests", 60000), 1, 0));
+    }
+
+    @Test
+    public void testDecorrelatedJitterStaysInBounds() {
+        final IOException error = new IOException("Connection reset");
+        long previous = 0;
+        for (int attempt = 1; attempt < 5; attempt++) {
+            final long delay = policy.nextDelayMillis(error, attempt, previous);
+            assertTrue(delay >= 100);
+            assertTrue(delay <= Math.min(1000, Math.max(100, previous) * 3));
+            previous = delay;
+        }
+        assertEquals(RetryPolicy.GIVE_UP, policy.nextDelayMillis(error, 5, previous));
+    }
+}
@@ -0,0 +1,76 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+
+public class ScriptLanguageDetectorTest {
+    private static final DetectionResponse REMOTE = DetectionResponse.newBuilder().withLanguage("fr").withScore(1).build();
+
+    @Test
+    public void testDetectLocally() {
+        assertEquals("zh-Hans", ScriptLanguageDetector.detectLocally("你好，我叫小明。").getLanguage());
+        assertEquals("zh-Hant", ScriptLanguageDetector.detectLocally("我們說中文").getLanguage());
+        assertEquals("ja", ScriptLanguageDetector.detectLocally("日本語を話します").getLanguage());
+        assertEquals("ko", ScriptLanguageDetector.detectLocally("안녕하세요").getLanguage());
+        assertEquals("en", ScriptLanguageDetector.detectLocally("hello there!").getLanguage());
+        assertEquals(1.0, ScriptLanguageDetector.detectLocally("你好").getScore(), 0.0001);
+        assertEquals(0.0, ScriptLanguageDetector.detectLocally("123 ?!").getScore(), 0.0001);
+
+        final DetectionResponse mixed = ScriptLanguageDetector.detectLocally("我 love 你");
+        assertEquals("zh-Hans", mixed.getLanguage());
+        assertTrue(mixed.getScore() < 0.8);
+    }
+
+    @Test
+    public void testAmbiguousInputGoesToDelegate() {
+        final ScriptLanguageDetector detector = ScriptLanguageDetector.newBuilder()
+                .withDelegate(new RemoteDetector())
+                .build();
+
+        assertEquals("zh-Hans", detector.detectAsync(request("学习")).join().getLanguage());
+        assertEquals("en", detector.detectAsync(request("study")).join().getLanguage());
+        assertSame(REMOTE, detector.detectAsync(request("étudier")).join());
+        assertSame(REMOTE, detector.detectAsync(request("42")).join());
+        assertEquals(2, detector.getLocalDetectionCount());
+        assertEquals(2, detector.getRemoteDetectionCount());
+    }
+
+    private static TranslationRequest request(final String text) {
+        return TranslationRequest.newBuilder().addText(text).build();
+    }
+
+    private static final class RemoteDetector implements AsyncTranslatorTextApi {
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            return CompletableFuture.completedFuture(REMOTE);
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
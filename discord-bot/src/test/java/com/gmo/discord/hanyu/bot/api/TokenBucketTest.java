@@ -0,0 +1,46 @@
+package com.gmo.discord.hanyu.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class TokenBucketTest {
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+    private final TokenBucket bucket = new TokenBucket(100, 10, 1, TimeUnit.SECONDS, new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    });
+
+    @Test
+    public void testBurstThenRefill() {
+        assertTrue(bucket.isFull());
+        assertTrue(bucket.tryAcquire(60));
+        assertTrue(bucket.tryAcquire(40));
+        assertFalse(bucket.tryAcquire(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.nanosUntilAvailable(1));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(bucket.tryAcquire(20));
+        assertFalse(bucket.tryAcquire(1));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(bucket.isFull());
+    }
+
+    @Test
+    public void testReserveBorrowsWithinMaxWait() {
+        assertTrue(bucket.tryAcquire(100));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(10, TimeUnit.SECONDS.toNanos(2)));
+        assertEquals(-1, bucket.reserve(20, TimeUnit.SECONDS.toNanos(2)));
+        assertEquals(TimeUnit.SECONDS.toNanos(2), bucket.reserve(10, TimeUnit.SECONDS.toNanos(2)));
+    }
+}
@@ -0,0 +1,310 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import com.gmo.discord.hanyu.bot.api.AsyncRetryingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.InstrumentedTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.ScriptLanguageDetector;
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+import com.gmo.discord.hanyu.bot.microsoft.AsyncMicrosoftTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.microsoft.StubTranslatorServer;
+import com.gmo.discord.hanyu.bot.pinyin.PinyinEngine;
+import com.gmo.discord.support.command.CommandInfo;
+import com.gmo.discord.support.command.CommandRouter;
+import com.gmo.discord.support.command.ICommand;
+import com.gmo.discord.support.metrics.LatencyHistogram;
+import com.gmo.discord.support.metrics.MetricsRegistry;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Open-loop load generator for the translator commands. Commands are issued at a fixed rate whether or not earlier
+ * ones have finished, and each latency is measured from when its command was due rather than when it was actually
+ * sent, so a stalled client shows up in the percentiles instead of quietly lowering the offered load.
+ *
+ * <p>{@link #main} runs {@link #syntheticCommands} through {@link TranslateCommand}, {@link LookupCommand} and
+ * {@link ExampleCommand} against a {@link StubTranslatorServer}:
+ * <pre>CommandLoadDriver [commands per second] [seconds] [median API latency ms] [API error rate]</pre>
+ */
+public final class CommandLoadDriver {
+    private final CommandRouter router;
+    private final Supplier<CommandInfo> workload;
+    private final long intervalNanos;
+    private final long durationNanos;
+    private final long drainNanos;
+
+    private CommandLoadDriver(final Builder builder) {
+        router = CommandRouter.of(builder.commands);
+        workload = builder.workload;
+        intervalNanos = TimeUnit.SECONDS.toNanos(1) / builder.rate;
+        durationNanos = builder.durationNanos;
+        drainNanos = builder.drainNanos;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Issues commands for the configured duration, then waits for those still running to finish.
+     */
+    public Report run() throws InterruptedException {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failed = new LongAdder();
+        final List<CompletableFuture<?>> pending = new ArrayList<>();
+
+        final long start = System.nanoTime();
+        for (long i = 0; ; i++) {
+            final long due = start + i * intervalNanos;
+            if (due - start >= durationNanos) {
+                break;
+            }
+            for (long now = System.nanoTime(); now < due; now = System.nanoTime()) {
+                LockSupport.parkNanos(due - now);
+            }
+
+            final CommandInfo commandInfo = workload.get();
+            final Optional<ICommand> command = router.route(commandInfo);
+            if (!command.isPresent()) {
+                throw new IllegalArgumentException("No command for " + commandInfo.getCommand());
+            }
+            CompletableFuture<?> result;
+            try {
+                result = command.get().executeAsync(commandInfo);
+            } catch (final RuntimeException e) {
+                final CompletableFuture<Object> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(e);
+                result = rejected;
+            }
+            pending.add(result.whenComplete((messages, error) -> {
+                latency.recordNanos(System.nanoTime() - due);
+                if (error != null) {
+                    failed.increment();
+                }
+            }));
+        }
+        final long issuedNanos = System.nanoTime() - start;
+
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get(drainNanos, TimeUnit.NANOSECONDS);
+        } catch (final ExecutionException | TimeoutException e) {
+            // Failures are already counted; commands still running after the drain period are reported as such
+        }
+        final long unfinished = pending.stream().filter(f -> !f.isDone()).count();
+        return new Report(pending.size(), failed.sum(), unfinished, issuedNanos, System.nanoTime() - start, latency);
+    }
+
+    /**
+     * @return an endless, deterministic mix of half {@code !translate}, a third {@code !lookup} of words the local
+     * dictionary doesn't know, and the rest {@code !example}, so every command reaches the translator API
+     */
+    public static Supplier<CommandInfo> syntheticCommands() {
+        final AtomicLong sequence = new AtomicLong();
+        final List<String> chinese = ImmutableList.of("学习", "朋友", "老师", "电脑", "喜欢");
+        return () -> {
+            final long n = sequence.getAndIncrement();
+            final int slot = (int) (n % 6);
+            if (slot < 3) {
+                return command("translate", "synthetic message number " + n);
+            } else if (slot < 5) {
+                return command("lookup", "zyx" + n);
+            }
+            return command("example", chinese.get((int) (n / 6 % chinese.size())));
+        };
+    }
+
+    private static CommandInfo command(final String name, final String text) {
+        return CommandInfo.newBuilder()
+                .withCommand(name)
+                .withArgs(text.split(" "))
+                .build();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final int rate = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        final int medianMillis = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+        final double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        try (final StubTranslatorServer server = StubTranslatorServer.newBuilder()
+                     .withLatency(StubTranslatorServer.Latency.logNormal(medianMillis, TimeUnit.MILLISECONDS, 0.5))
+                     .withErrors(errorRate, 429)
+                     .withRetryAfterSeconds(0)
+                     .build();
+             final AsyncMicrosoftTranslatorTextApi microsoftApi = AsyncMicrosoftTranslatorTextApi.newBuilder()
+                     .withApiHost(server.getApiHost())
+                     .withApiKeySupplier(() -> "load-test")
+                     .build()) {
+            final AsyncTranslatorTextApi api = ScriptLanguageDetector.newBuilder()
+                    .withDelegate(AsyncRetryingTranslatorTextApi.newBuilder()
+                            .withDelegate(InstrumentedTranslatorTextApi.newBuilder()
+                                    .withDelegate(microsoftApi)
+                                    .withRegistry(metrics)
+                                    .withLayer("upstream")
+                                    .build())
+                            .build())
+                    .build();
+            final CedictDictionary dictionary = CedictDictionary.fromResource();
+            final PinyinEngine transliterator = PinyinEngine.newBuilder().withDictionary(dictionary).build();
+
+            final Report report = newBuilder()
+                    .withCommands(ImmutableList.of(
+                            new TranslateCommand(api, transliterator, RecentMessages.newBuilder().build()),
+                            new LookupCommand(api, dictionary, transliterator),
+                            new ExampleCommand(api, transliterator)))
+                    .withWorkload(syntheticCommands())
+                    .withRate(rate)
+                    .withDuration(seconds, TimeUnit.SECONDS)
+                    .build()
+                    .run();
+
+            System.out.println(report);
+            System.out.printf("stub: %d requests, %d injected errors%n", server.getRequestCount(), server.getErrorCount());
+            System.out.print(metrics);
+        }
+    }
+
+    public static final class Report {
+        private final long issued;
+        private final long failed;
+        private final long unfinished;
+        private final long issuedNanos;
+        private final long elapsedNanos;
+        private final LatencyHistogram latency;
+
+        private Report(final long issued, final long failed, final long unfinished, final long issuedNanos,
+                       final long elapsedNanos, final LatencyHistogram latency) {
+            this.issued = issued;
+            this.failed = failed;
+            this.unfinished = unfinished;
+            this.issuedNanos = issuedNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+        }
+
+        public long getIssued() {
+            return issued;
+        }
+
+        public long getCompleted() {
+            return latency.getCount();
+        }
+
+        /**
+         * @return commands whose future failed; API failures the command turned into a reply are not counted
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return commands still running when the drain period ran out
+         */
+        public long getUnfinished() {
+            return unfinished;
+        }
+
+        /**
+         * @return completed commands per second, over the whole run including the drain
+         */
+        public double getThroughput() {
+            return getCompleted() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return commands issued per second, which falls short of the target rate if the driver itself fell behind
+         */
+        public double getOfferedRate() {
+            return issued / (issuedNanos / 1e9);
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("issued %d (%.1f/s), completed %d (%.1f/s), failed %d, unfinished %d, "
+                            + "latency p50 %.2f ms, p99 %.2f ms, p999 %.2f ms",
+                    issued, getOfferedRate(), getCompleted(), getThroughput(), failed, unfinished,
+                    millis(0.5), millis(0.99), millis(0.999));
+        }
+
+        private double millis(final double quantile) {
+            return latency.getValueAtQuantile(quantile) / 1e6;
+        }
+    }
+
+    public static final class Builder {
+        private List<ICommand> commands;
+        private Supplier<CommandInfo> workload;
+        private int rate;
+        private long durationNanos;
+        private long drainNanos;
+
+        private Builder() {
+            workload = syntheticCommands();
+            rate = 100;
+            durationNanos = TimeUnit.SECONDS.toNanos(10);
+            drainNanos = TimeUnit.SECONDS.toNanos(30);
+        }
+
+        public Builder withCommands(final List<ICommand> val) {
+            commands = val;
+            return this;
+        }
+
+        /**
+         * @param val called once per command issued, from the driver's thread
+         */
+        public Builder withWorkload(final Supplier<CommandInfo> val) {
+            workload = val;
+            return this;
+        }
+
+        /**
+         * @param val commands issued per second
+         */
+        public Builder withRate(final int val) {
+            rate = val;
+            return this;
+        }
+
+        public Builder withDuration(final long duration, final TimeUnit unit) {
+            durationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration how long to wait for commands still running once the last has been issued
+         */
+        public Builder withDrainTimeout(final long duration, final TimeUnit unit) {
+            drainNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public CommandLoadDriver build() {
+            requireNonNull(commands, "Null commands");
+            requireNonNull(workload, "Null workload");
+            Preconditions.checkArgument(rate > 0 && rate <= 1_000_000, "Rate must be between 1 and 1,000,000");
+            Preconditions.checkArgument(durationNanos > 0, "Duration must be positive");
+            Preconditions.checkArgument(drainNanos >= 0, "Drain timeout must not be negative");
+
+            return new CommandLoadDriver(this);
+        }
+    }
+}
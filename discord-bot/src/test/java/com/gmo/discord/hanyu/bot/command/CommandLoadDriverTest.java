@@ -0,0 +1,56 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.AsyncRetryingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+import com.gmo.discord.hanyu.bot.microsoft.AsyncMicrosoftTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.microsoft.StubTranslatorServer;
+import com.gmo.discord.hanyu.bot.pinyin.PinyinEngine;
+import com.google.common.collect.ImmutableList;
+
+public class CommandLoadDriverTest {
+    @Test
+    public void testCommandsCompleteAgainstStub() throws Exception {
+        try (final StubTranslatorServer server = StubTranslatorServer.newBuilder()
+                     .withLatency(StubTranslatorServer.Latency.logNormal(2, TimeUnit.MILLISECONDS, 0.5))
+                     .withErrors(0.05, 503)
+                     .withRetryAfterSeconds(0)
+                     .build();
+             final AsyncMicrosoftTranslatorTextApi microsoftApi = AsyncMicrosoftTranslatorTextApi.newBuilder()
+                     .withApiHost(server.getApiHost())
+                     .withApiKeySupplier(() -> "key")
+                     .build()) {
+            final AsyncTranslatorTextApi api = AsyncRetryingTranslatorTextApi.newBuilder()
+                    .withDelegate(microsoftApi)
+                    .build();
+            final CedictDictionary dictionary = CedictDictionary.fromResource();
+            final PinyinEngine transliterator = PinyinEngine.newBuilder().withDictionary(dictionary).build();
+
+            final CommandLoadDriver.Report report = CommandLoadDriver.newBuilder()
+                    .withCommands(ImmutableList.of(
+                            new TranslateCommand(api, transliterator, RecentMessages.newBuilder().build()),
+                            new LookupCommand(api, dictionary, transliterator),
+                            new ExampleCommand(api, transliterator)))
+                    .withRate(100)
+                    .withDuration(1, TimeUnit.SECONDS)
+                    .withDrainTimeout(10, TimeUnit.SECONDS)
+                    .build()
+                    .run();
+
+            assertEquals(100, report.getIssued());
+            assertEquals(100, report.getCompleted());
+            assertEquals(0, report.getFailed());
+            assertEquals(0, report.getUnfinished());
+            assertTrue(report.getLatency().getValueAtQuantile(0.99) >= report.getLatency().getValueAtQuantile(0.5));
+            assertTrue(server.getRequestCount(StubTranslatorServer.TRANSLATE_PATH) >= 50);
+            assertTrue(server.getRequestCount(StubTranslatorServer.EXAMPLES_PATH) > 0);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.Translation;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.Example;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.support.command.CommandInfo;
+import com.gmo.discord.support.message.DiscordMessage;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class ExampleCommandTest {
+    @Test
+    public void testTranslationOverlapsDetection() {
+        final SlowDetectionApi api = new SlowDetectionApi();
+        final ExampleCommand command = new ExampleCommand(api,
+                texts -> CompletableFuture.completedFuture(Collections.emptyMap()),
+                MoreExecutors.directExecutor());
+
+        final CompletableFuture<Iterable<DiscordMessage>> result = command.executeAsync(CommandInfo.newBuilder()
+                .withCommand("examples")
+                .withArgs(new String[] {"thanks"})
+                .build());
+
+        assertEquals(1, api.translations.get());
+        assertFalse(result.isDone());
+
+        api.detection.complete(DetectionResponse.newBuilder().withLanguage("en").build());
+        final String text = Iterables.getOnlyElement(result.join()).getText().get();
+        assertTrue(text, text.contains("谢谢你"));
+        assertEquals(1, api.translations.get());
+        assertEquals(1, command.getLatency().getCount());
+    }
+
+    @Test
+    public void testEstimateCountsEveryCall() {
+        final ExampleCommand command = new ExampleCommand(new SlowDetectionApi(),
+                texts -> CompletableFuture.completedFuture(Collections.emptyMap()));
+
+        // Detection, translation, both texts in the examples request, and pinyin
+        assertEquals(6 * 5, command.estimateCharacters(CommandInfo.newBuilder()
+                .withCommand("examples")
+                .withArgs(new String[] {"thanks"})
+                .build()));
+    }
+
+    private static final class SlowDetectionApi implements AsyncTranslatorTextApi {
+        private final CompletableFuture<DetectionResponse> detection = new CompletableFuture<>();
+        private final AtomicInteger translations = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            return detection;
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            translations.incrementAndGet();
+            return CompletableFuture.completedFuture(Collections.singletonList(TranslationResponse.newBuilder()
+                    .addTranslation(Translation.newBuilder()
+                            .withText("谢谢")
+                            .withDestinationLanguage("zh-Hans")
+                            .build())
+                    .build()));
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            return CompletableFuture.completedFuture(ExampleResponse.newBuilder()
+                    .withExamples(Collections.singletonList(Example.newBuilder()
+                            .withSourcePrefix("")
+                            .withSourceTerm("thanks")
+                            .withSourceSuffix(" a lot")
+                            .withTargetPrefix("")
+                            .withTargetTerm("谢谢")
+                            .withTargetSuffix("你")
+                            .build()))
+                    .build());
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
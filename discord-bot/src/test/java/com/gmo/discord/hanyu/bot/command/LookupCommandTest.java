@@ -0,0 +1,107 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.entities.DetectionResponse;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+import com.gmo.discord.support.command.CommandInfo;
+import com.gmo.discord.support.message.DiscordMessage;
+
+public class LookupCommandTest {
+    @Test
+    public void testSpeculativeLookupDiscardedWhenDetectionDisagrees() throws IOException {
+        final SlowDetectionApi api = new SlowDetectionApi();
+        final LookupCommand command = new LookupCommand(api, CedictDictionary.fromResource(),
+                texts -> CompletableFuture.completedFuture(Collections.emptyMap()));
+
+        final CompletableFuture<Iterable<DiscordMessage>> result = command.executeAsync(CommandInfo.newBuilder()
+                .withCommand("lookup")
+                .withArgs(new String[] {"xyzzy"})
+                .build());
+
+        // The English lookup starts before detection answers
+        assertEquals(Collections.singletonList("en"), api.sourceLanguages);
+        assertFalse(result.isDone());
+
+        api.detection.complete(DetectionResponse.newBuilder().withLanguage("zh-Hans").build());
+        result.join();
+        assertEquals(2, api.sourceLanguages.size());
+        assertEquals("zh-Hans", api.sourceLanguages.get(1));
+        assertEquals(1, command.getSpeculativeMissCount());
+        assertTrue(api.lookups.get(0).isCancelled());
+    }
+
+    @Test
+    public void testWeakDictionaryMatchFallsBackToApi() throws IOException {
+        final CedictDictionary dictionary = CedictDictionary.fromResource();
+        final SlowDetectionApi localApi = new SlowDetectionApi();
+        final LookupCommand localCommand = new LookupCommand(localApi, dictionary,
+                texts -> CompletableFuture.completedFuture(Collections.emptyMap()));
+        assertTrue(localCommand.executeAsync(lookup("tea")).isDone());
+        assertTrue(localApi.sourceLanguages.isEmpty());
+
+        // "plant" only appears inside the gloss "tea plant"
+        final SlowDetectionApi remoteApi = new SlowDetectionApi();
+        final LookupCommand remoteCommand = new LookupCommand(remoteApi, dictionary,
+                texts -> CompletableFuture.completedFuture(Collections.emptyMap()));
+        assertFalse(remoteCommand.executeAsync(lookup("plant")).isDone());
+        assertEquals(Collections.singletonList("en"), remoteApi.sourceLanguages);
+        assertTrue(remoteCommand.estimateCharacters(lookup("plant")) > 0);
+    }
+
+    private static CommandInfo lookup(final String text) {
+        return CommandInfo.newBuilder()
+                .withCommand("lookup")
+                .withArgs(new String[] {text})
+                .build();
+    }
+
+    private static final class SlowDetectionApi implements AsyncTranslatorTextApi {
+        private final CompletableFuture<DetectionResponse> detection = new CompletableFuture<>();
+        private final List<String> sourceLanguages = new CopyOnWriteArrayList<>();
+        private final List<CompletableFuture<DictionaryLookupResponse>> lookups = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletableFuture<DetectionResponse> detectAsync(final TranslationRequest request) {
+            return detection;
+        }
+
+        @Override
+        public CompletableFuture<DictionaryLookupResponse> lookupAsync(final TranslationRequest request) {
+            sourceLanguages.add(request.getSourceLanguage().orElse(""));
+            final CompletableFuture<DictionaryLookupResponse> lookup = sourceLanguages.size() == 1
+                    ? new CompletableFuture<>()
+                    : CompletableFuture.completedFuture(DictionaryLookupResponse.newBuilder()
+                            .withTranslations(Collections.emptyList())
+                            .build());
+            lookups.add(lookup);
+            return lookup;
+        }
+
+        @Override
+        public CompletableFuture<List<TranslationResponse>> translateAsync(final TranslationRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ExampleResponse> examplesAsync(final ExampleRequest request) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class RecentMessagesTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final RecentMessages recentMessages = RecentMessages.newBuilder()
+            .withDepth(3)
+            .withIdleTimeout(1, TimeUnit.MINUTES)
+            .withTicker(new Ticker() {
+                @Override
+                public long read() {
+                    return nanos.get();
+                }
+            })
+            .build();
+
+    @Test
+    public void testSkipsBotMessages() {
+        recentMessages.add(1, "older", false);
+        recentMessages.add(1, "newest human", false);
+        recentMessages.add(1, "bot reply", true);
+
+        assertEquals(Optional.of("newest human"), recentMessages.getLastHumanMessage(1));
+        assertEquals(Optional.empty(), recentMessages.getLastHumanMessage(2));
+    }
+
+    @Test
+    public void testOnlyRemembersDepth() {
+        recentMessages.add(1, "human", false);
+        recentMessages.add(1, "bot 1", true);
+        recentMessages.add(1, "bot 2", true);
+        assertEquals(Optional.of("human"), recentMessages.getLastHumanMessage(1));
+
+        recentMessages.add(1, "bot 3", true);
+        assertEquals(Optional.empty(), recentMessages.getLastHumanMessage(1));
+    }
+
+    @Test
+    public void testEvictsIdleChannels() {
+        recentMessages.add(1, "quiet", false);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        recentMessages.add(2, "busy", false);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        assertEquals(Optional.empty(), recentMessages.getLastHumanMessage(1));
+        assertEquals(Optional.of("busy"), recentMessages.getLastHumanMessage(2));
+    }
+
+    @Test
+    public void testEvictsWhenOverCharacterCap() {
+        final RecentMessages small = RecentMessages.newBuilder()
+                .withMaxCharacters(1000)
+                .build();
+        for (long channel = 0; channel < 50; channel++) {
+            small.add(channel, "some message text", false);
+        }
+
+        assertEquals(Optional.of("some message text"), small.getLastHumanMessage(49));
+        assertTrue(small.getChannelCount() < 50);
+    }
+}
@@ -0,0 +1,60 @@
+package com.gmo.discord.hanyu.bot.command;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.AsyncTranslatorTextApi;
+import com.gmo.discord.support.command.CommandInfo;
+import com.google.common.collect.ImmutableSet;
+import sx.blah.discord.handle.obj.IChannel;
+
+public class TranslateCommandTest {
+    private static final long CHANNEL = 1;
+
+    private final RecentMessages recentMessages = RecentMessages.newBuilder().build();
+    private final TranslateCommand command = new TranslateCommand(
+            (AsyncTranslatorTextApi) Proxy.newProxyInstance(AsyncTranslatorTextApi.class.getClassLoader(),
+                    new Class<?>[] {AsyncTranslatorTextApi.class}, (proxy, method, args) -> {
+                        throw new UnsupportedOperationException(method.getName());
+                    }),
+            texts -> CompletableFuture.completedFuture(Collections.emptyMap()),
+            recentMessages);
+
+    @Test
+    public void testEstimateCountsEveryCall() {
+        assertEquals(5 * 3, command.estimateCharacters(command("hello")));
+        assertEquals(5 * 2, command.estimateCharacters(CommandInfo.newBuilder()
+                .withCommand("t")
+                .withArgs(new String[] {"hello"})
+                .withFlags(ImmutableSet.of(CommandFlags.NO_PINYIN))
+                .build()));
+        assertEquals(0, command.estimateCharacters(command("help")));
+    }
+
+    @Test
+    public void testEstimateForArgumentlessCommandUsesRecentMessage() {
+        assertEquals(0, command.estimateCharacters(command()));
+
+        recentMessages.add(CHANNEL, "a much longer message from earlier", false);
+        assertEquals("a much longer message from earlier".length() * 3, command.estimateCharacters(command()));
+    }
+
+    private static CommandInfo command(final String... args) {
+        return CommandInfo.newBuilder()
+                .withCommand("t")
+                .withArgs(args)
+                .withChannel((IChannel) Proxy.newProxyInstance(IChannel.class.getClassLoader(),
+                        new Class<?>[] {IChannel.class}, (proxy, method, methodArgs) -> {
+                            if (method.getName().equals("getLongID")) {
+                                return CHANNEL;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }))
+                .build();
+    }
+}
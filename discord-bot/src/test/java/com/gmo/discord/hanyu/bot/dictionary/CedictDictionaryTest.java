@@ -0,0 +1,85 @@
+package com.gmo.discord.hanyu.bot.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class CedictDictionaryTest {
+    private static final CedictDictionary DICTIONARY;
+
+    static {
+        try {
+            DICTIONARY = CedictDictionary.fromResource();
+        } catch (final IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Test
+    public void testHeadwordLookup() {
+        final List<DictionaryEntry> simplified = DICTIONARY.lookupHeadword("银行");
+        assertEquals(1, simplified.size());
+        assertEquals("銀行", simplified.get(0).getTraditional());
+        assertEquals("yín háng", simplified.get(0).getToneMarkedPinyin());
+        assertEquals(simplified, DICTIONARY.lookupHeadword("銀行"));
+
+        assertEquals(2, DICTIONARY.lookupHeadword("行").size());
+        assertTrue(DICTIONARY.lookupHeadword("银").isEmpty());
+    }
+
+    @Test
+    public void testEnglishLookupRanksExactGlossFirst() {
+        assertEquals("银行", DICTIONARY.lookupEnglish("Bank", 5).get(0).getSimplified());
+        assertEquals("学习", DICTIONARY.lookupEnglish("to study", 5).get(0).getSimplified());
+
+        final List<String> tea = DICTIONARY.lookupEnglish("tea", 5).stream()
+                .map(DictionaryEntry::getSimplified)
+                .collect(Collectors.toList());
+        assertEquals("茶", tea.get(0));
+        assertTrue(tea.contains("绿茶"));
+
+        assertTrue(DICTIONARY.lookupEnglish("the", 5).isEmpty());
+        assertTrue(DICTIONARY.lookupEnglish("xylophone", 5).isEmpty());
+    }
+
+    @Test
+    public void testEnglishGlossLookupIgnoresWeakMatches() {
+        assertEquals("茶", DICTIONARY.lookupEnglish("plant", 5).get(0).getSimplified());
+        assertTrue(DICTIONARY.lookupEnglishGloss("plant", 5).isEmpty());
+
+        final List<String> tea = DICTIONARY.lookupEnglishGloss("tea", 5).stream()
+                .map(DictionaryEntry::getSimplified)
+                .collect(Collectors.toList());
+        assertEquals("茶", tea.get(0));
+        assertTrue(tea.contains("绿茶"));
+    }
+
+    @Test
+    public void testLongestHeadword() {
+        final String text = "我去银行了";
+        assertEquals(1, DICTIONARY.longestHeadword(text, 0));
+        assertEquals(2, DICTIONARY.longestHeadword(text, 2));
+        assertEquals(0, DICTIONARY.longestHeadword("xyz", 0));
+    }
+
+    @Test
+    public void testParse() {
+        final DictionaryEntry entry = CedictDictionary.parse("綠茶 绿茶 [lu:4 cha2] /green tea/");
+        assertEquals("绿茶", entry.getSimplified());
+        assertEquals("lǜ chá", entry.getToneMarkedPinyin());
+        assertEquals(1, entry.getDefinitions().size());
+        assertEquals(null, CedictDictionary.parse("broken line"));
+    }
+
+    @Test
+    public void testToneMarks() {
+        assertEquals("Zhōng guó", Pinyin.toToneMarks("Zhong1 guo2"));
+        assertEquals("xiè xie", Pinyin.toToneMarks("xie4 xie5"));
+        assertEquals("liù huì gǒu nǚ", Pinyin.toToneMarks("liu4 hui4 gou3 nu:3"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.HedgingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.RateLimitingTranslatorTextApi;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+
+public class AsyncMicrosoftTranslatorTextApiTest {
+    @Test
+    public void testCallDeadlineFailsAndReleasesConnection() throws Exception {
+        // Accepts connections but never answers
+        try (final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             final AsyncMicrosoftTranslatorTextApi api = AsyncMicrosoftTranslatorTextApi.newBuilder()
+                     .withApiHost("http://127.0.0.1:" + server.getLocalPort())
+                     .withApiKeySupplier(() -> "key")
+                     .withCallTimeout(200, TimeUnit.MILLISECONDS)
+                     .withSocketTimeout(1, TimeUnit.MINUTES)
+                     .build()) {
+            try {
+                api.detectAsync(TranslationRequest.newBuilder().addText("你好").build()).join();
+                fail("Expected timeout");
+            } catch (final CompletionException e) {
+                assertTrue(e.getCause() instanceof InterruptedIOException);
+            }
+
+            PoolStats stats = api.getPoolStats().get();
+            for (int i = 0; i < 100 && stats.getLeased() > 0; i++) {
+                Thread.sleep(10);
+                stats = api.getPoolStats().get();
+            }
+            assertEquals(0, stats.getLeased());
+            assertEquals(0, stats.getPending());
+        }
+    }
+
+    @Test
+    public void testFailuresCompleteOnCallbackExecutor() throws Exception {
+        final int closedPort;
+        try (final ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        // Accepts connections but never answers
+        try (final ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            assertFailsOnCallbackExecutor("http://127.0.0.1:" + closedPort, IOException.class);
+            assertFailsOnCallbackExecutor("http://127.0.0.1:" + silent.getLocalPort(), InterruptedIOException.class);
+        }
+    }
+
+    @Test
+    public void testLosingHedgedLookupReleasesItsConnection() throws Exception {
+        // The third request stalls; the others, including its hedge, answer at once
+        final AtomicInteger requests = new AtomicInteger();
+        try (final StubTranslatorServer server = StubTranslatorServer.newBuilder()
+                     .withLatency(random -> requests.incrementAndGet() == 3 ? TimeUnit.MINUTES.toMicros(1) : 0)
+                     .build();
+             final AsyncMicrosoftTranslatorTextApi microsoftApi = AsyncMicrosoftTranslatorTextApi.newBuilder()
+                     .withApiHost(server.getApiHost())
+                     .withApiKeySupplier(() -> "key")
+                     .withCallTimeout(1, TimeUnit.MINUTES)
+                     .withSocketTimeout(1, TimeUnit.MINUTES)
+                     .build()) {
+            final HedgingTranslatorTextApi api = HedgingTranslatorTextApi.newBuilder()
+                    .withDelegate(RateLimitingTranslatorTextApi.newBuilder()
+                            .withDelegate(microsoftApi)
+                            .build())
+                    .withMinDelay(50, TimeUnit.MILLISECONDS)
+                    .withWindow(1, TimeUnit.NANOSECONDS, 1)
+                    .withMaxHedgeRatio(0.5, 1)
+                    .build();
+            final TranslationRequest request = TranslationRequest.newBuilder()
+                    .addText("hello")
+                    .withSourceLanguage("en")
+                    .addDestinationLanguage("zh-Hans")
+                    .build();
+
+            api.lookupAsync(request).join();
+            api.lookupAsync(request).join();
+            api.lookupAsync(request).get(5, TimeUnit.SECONDS);
+            assertEquals(1, api.getHedgeCount());
+
+            PoolStats stats = microsoftApi.getPoolStats().get();
+            for (int i = 0; i < 100 && stats.getLeased() > 0; i++) {
+                Thread.sleep(10);
+                stats = microsoftApi.getPoolStats().get();
+            }
+            assertEquals(0, stats.getLeased());
+        }
+    }
+
+    private static void assertFailsOnCallbackExecutor(final String apiHost, final Class<? extends Exception> expected)
+            throws Exception {
+        final AtomicInteger callbacks = new AtomicInteger();
+        final Executor callbackExecutor = command -> {
+            callbacks.incrementAndGet();
+            ForkJoinPool.commonPool().execute(command);
+        };
+        try (final AsyncMicrosoftTranslatorTextApi api = AsyncMicrosoftTranslatorTextApi.newBuilder()
+                .withApiHost(apiHost)
+                .withApiKeySupplier(() -> "key")
+                .withCallbackExecutor(callbackExecutor)
+                .withCallTimeout(200, TimeUnit.MILLISECONDS)
+                .withSocketTimeout(1, TimeUnit.MINUTES)
+                .build()) {
+            try {
+                api.detectAsync(TranslationRequest.newBuilder().addText("你好").build()).join();
+                fail("Expected failure");
+            } catch (final CompletionException e) {
+                assertTrue(expected.isInstance(e.getCause()));
+            }
+            assertTrue(callbacks.get() > 0);
+        }
+    }
+}
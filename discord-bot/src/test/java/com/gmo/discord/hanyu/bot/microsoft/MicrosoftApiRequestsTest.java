@@ -0,0 +1,125 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.google.common.collect.Iterables;
+
+public class MicrosoftApiRequestsTest {
+    private static final String RESPONSE_JSON = "[{\"translations\":[{\"text\":\"你好\",\"transliteration\":{\"text\":\"nǐ hǎo\",\"script\":\"Latn\"},\"to\":\"zh-Hans\"}]}]";
+
+    @Test
+    public void testReadsUtf8FromStream() throws IOException {
+        final TrackingInputStream content = new TrackingInputStream(RESPONSE_JSON.getBytes(StandardCharsets.UTF_8));
+        final List<TranslationResponse> responses = MicrosoftApiRequests.readResponse(
+                response(200, content, "application/json"), MicrosoftApiRequests.TRANSLATION_RESPONSE_READER);
+
+        final TranslationResponse response = Iterables.getOnlyElement(responses);
+        assertEquals("你好", response.getTranslations().get(0).getText());
+        assertEquals("nǐ hǎo", response.getTranslations().get(0).getTransliteration().get().getText());
+        assertTrue(content.closed);
+    }
+
+    @Test
+    public void testHonorsDeclaredCharset() throws IOException {
+        final TrackingInputStream content = new TrackingInputStream(RESPONSE_JSON.getBytes(StandardCharsets.UTF_16LE));
+        final List<TranslationResponse> responses = MicrosoftApiRequests.readResponse(
+                response(200, content, "application/json; charset=UTF-16LE"), MicrosoftApiRequests.TRANSLATION_RESPONSE_READER);
+
+        assertEquals("你好", Iterables.getOnlyElement(responses).getTranslations().get(0).getText());
+    }
+
+    @Test
+    public void testErrorResponseIsConsumed() {
+        final TrackingInputStream content = new TrackingInputStream("{\"error\":{\"code\":429001}}".getBytes(StandardCharsets.UTF_8));
+        try {
+            MicrosoftApiRequests.readResponse(response(429, content, "application/json"), MicrosoftApiRequests.TRANSLATION_RESPONSE_READER);
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("429"));
+        }
+        assertTrue(content.closed);
+    }
+
+    @Test
+    public void testRequestsEncodeUtf8Json() throws IOException {
+        final MicrosoftApiRequests requests = new MicrosoftApiRequests("https://example.test", () -> "key");
+        final TranslationRequest request = TranslationRequest.newBuilder()
+                .addText("你好")
+                .withSourceLanguage("zh-Hans")
+                .addDestinationLanguage("en")
+                .build();
+
+        final HttpPost translate = requests.translate(request);
+        assertEquals("https://example.test/translate?api-version=3.0&to=en", translate.getURI().toString());
+        assertEquals("[{\"text\":\"你好\"}]", EntityUtils.toString(translate.getEntity(), StandardCharsets.UTF_8));
+        assertEquals("[{\"text\":\"你好\"}]".getBytes(StandardCharsets.UTF_8).length, translate.getEntity().getContentLength());
+        assertSame(translate.getURI(), requests.translate(request).getURI());
+
+        final HttpPost lookup = requests.lookup(request);
+        assertEquals("https://example.test/dictionary/lookup?api-version=3.0&to=en&from=zh-Hans", lookup.getURI().toString());
+
+        final HttpPost examples = requests.examples(ExampleRequest.newBuilder()
+                .withSourceText("你好")
+                .withDestinationTranslation("hello")
+                .withSourceLanguage("zh-Hans")
+                .withDestinationLanguage("en")
+                .build());
+        assertEquals("https://example.test/dictionary/examples?api-version=3.0&to=en&from=zh-Hans", examples.getURI().toString());
+        assertEquals("[{\"Text\":\"你好\",\"Translation\":\"hello\"}]", EntityUtils.toString(examples.getEntity(), StandardCharsets.UTF_8));
+        assertEquals("key", examples.getFirstHeader("Ocp-Apim-Subscription-Key").getValue());
+    }
+
+    @Test
+    public void testTraceIdsAreRandomVersion4Uuids() {
+        final UUID first = UUID.fromString(MicrosoftApiRequests.traceId());
+        final UUID second = UUID.fromString(MicrosoftApiRequests.traceId());
+        assertEquals(4, first.version());
+        assertEquals(2, first.variant());
+        assertNotEquals(first, second);
+    }
+
+    private static HttpResponse response(final int statusCode, final TrackingInputStream content, final String contentType) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "status " + statusCode);
+        final BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(content);
+        entity.setContentType(ContentType.parse(contentType).toString());
+        response.setEntity(entity);
+        return response;
+    }
+
+    private static final class TrackingInputStream extends ByteArrayInputStream {
+        private boolean closed;
+
+        private TrackingInputStream(final byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the Microsoft Translator Text API v3, for load tests which shouldn't spend real quota. Answers
+ * {@code /translate}, {@code /detect}, {@code /dictionary/lookup} and {@code /dictionary/examples} in the shapes the
+ * real API uses, either with a canned body per path or with responses generated from the request. Each response is
+ * delayed by a configurable {@link Latency} without holding a server thread, and a configurable fraction of requests
+ * fails with an error status. Point a client at it with {@code withApiHost(server.getApiHost())}.
+ */
+public final class StubTranslatorServer implements Closeable {
+    public static final String TRANSLATE_PATH = "/translate";
+    public static final String DETECT_PATH = "/detect";
+    public static final String LOOKUP_PATH = "/dictionary/lookup";
+    public static final String EXAMPLES_PATH = "/dictionary/examples";
+
+    private static final ObjectReader REQUEST_READER = MicrosoftApiRequests.OBJECT_MAPPER
+            .readerFor(new TypeReference<List<Map<String, String>>>() {});
+    private static final String CHINESE = "zh-Hans";
+    private static final String ENGLISH = "en";
+    // Generated translations pair each input with one of these, so transliteration has real words to work on
+    private static final List<String> CHINESE_WORDS = ImmutableList.of("你好", "学习", "朋友", "谢谢", "中国", "老师", "电脑", "喜欢");
+    private static final List<String> ENGLISH_WORDS = ImmutableList.of("hello", "study", "friend", "thanks", "China", "teacher", "computer", "like");
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService responders;
+    private final Latency latency;
+    private final double errorRate;
+    private final int errorStatus;
+    private final int retryAfterSeconds;
+    private final Map<String, byte[]> cannedResponses;
+    private final Map<String, LongAdder> requests = new HashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    private StubTranslatorServer(final Builder builder) throws IOException {
+        latency = builder.latency;
+        errorRate = builder.errorRate;
+        errorStatus = builder.errorStatus;
+        retryAfterSeconds = builder.retryAfterSeconds;
+        cannedResponses = ImmutableMap.copyOf(builder.cannedResponses);
+        for (final String path : ImmutableList.of(TRANSLATE_PATH, DETECT_PATH, LOOKUP_PATH, EXAMPLES_PATH)) {
+            requests.put(path, new LongAdder());
+        }
+
+        handlers = Executors.newFixedThreadPool(builder.threads, new ThreadFactoryBuilder()
+                .setNameFormat("stub-translator-%d")
+                .setDaemon(true)
+                .build());
+        responders = Executors.newScheduledThreadPool(builder.threads, new ThreadFactoryBuilder()
+                .setNameFormat("stub-translator-responder-%d")
+                .setDaemon(true)
+                .build());
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), 1024);
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the value to pass to {@code withApiHost} on either Microsoft client builder
+     */
+    public String getApiHost() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return requests received for one of the API paths, including those answered with an injected error
+     */
+    public long getRequestCount(final String path) {
+        final LongAdder count = requests.get(path);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getRequestCount() {
+        return requests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @return requests answered with the injected error status
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        responders.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final URI uri = exchange.getRequestURI();
+        final String path = uri.getPath();
+        final LongAdder count = requests.get(path);
+        if (count == null || !"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 404, null);
+            return;
+        }
+        count.increment();
+
+        if (exchange.getRequestHeaders().getFirst("Ocp-Apim-Subscription-Key") == null) {
+            respond(exchange, 401, null);
+            return;
+        }
+
+        final List<Map<String, String>> body;
+        try (final InputStream in = exchange.getRequestBody()) {
+            body = REQUEST_READER.readValue(in);
+        } catch (final IOException e) {
+            respond(exchange, 400, null);
+            return;
+        }
+
+        final int status;
+        final byte[] response;
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.increment();
+            status = errorStatus;
+            response = null;
+        } else {
+            status = 200;
+            response = cannedResponses.containsKey(path)
+                    ? cannedResponses.get(path)
+                    : MicrosoftApiRequests.OBJECT_MAPPER.writeValueAsBytes(generate(path, queryParameters(uri), body));
+        }
+
+        // The exchange stays open after the handler returns, so the delay doesn't occupy a server thread
+        final long delayMicros = latency.nextMicros(ThreadLocalRandom.current());
+        if (delayMicros <= 0) {
+            respond(exchange, status, response);
+        } else {
+            responders.schedule(() -> {
+                respond(exchange, status, response);
+                return null;
+            }, delayMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void respond(final HttpExchange exchange, final int status, final byte[] response) throws IOException {
+        try {
+            if (status == 429 || status == 503) {
+                exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+            }
+            if (response == null) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(status, response.length);
+                try (final OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Object generate(final String path, final Map<String, List<String>> params,
+                                   final List<Map<String, String>> body) {
+        final List<Object> results = new ArrayList<>(body.size());
+        for (final Map<String, String> item : body) {
+            final String text = field(item, "Text");
+            switch (path) {
+                case TRANSLATE_PATH:
+                    results.add(translation(text, params.getOrDefault("to", ImmutableList.of())));
+                    break;
+                case DETECT_PATH:
+                    results.add(detection(text));
+                    break;
+                case LOOKUP_PATH:
+                    results.add(lookup(text, first(params, "to")));
+                    break;
+                default:
+                    results.add(examples(text, field(item, "Translation")));
+                    break;
+            }
+        }
+        return results;
+    }
+
+    private static Map<String, Object> translation(final String text, final List<String> destinations) {
+        final String language = language(text);
+        final List<Object> translations = new ArrayList<>();
+        for (final String to : destinations) {
+            translations.add(ImmutableMap.of(
+                    "text", to.equals(language) ? text : counterpart(text, to),
+                    "to", to));
+        }
+        return ImmutableMap.of(
+                "detectedLanguage", ImmutableMap.of("language", language, "score", 1.0),
+                "translations", translations);
+    }
+
+    private static Map<String, Object> detection(final String text) {
+        return ImmutableMap.of(
+                "language", language(text),
+                "score", 1.0,
+                "isTranslationSupported", true,
+                "isTransliterationSupported", true);
+    }
+
+    private static Map<String, Object> lookup(final String text, final String to) {
+        final List<Object> translations = new ArrayList<>();
+        final List<String> words = CHINESE.equals(to) ? CHINESE_WORDS : ENGLISH_WORDS;
+        final int start = Math.floorMod(text.hashCode(), words.size());
+        for (int i = 0; i < 3; i++) {
+            final String target = words.get((start + i) % words.size());
+            translations.add(ImmutableMap.<String, Object>builder()
+                    .put("normalizedTarget", target)
+                    .put("displayTarget", target)
+                    .put("posTag", "NOUN")
+                    .put("confidence", 0.5 / (i + 1))
+                    .put("prefixWord", "")
+                    .put("backTranslations", ImmutableList.of(ImmutableMap.of(
+                            "normalizedText", text,
+                            "displayText", text,
+                            "numExamples", 1,
+                            "frequencyCount", 100)))
+                    .build());
+        }
+        return ImmutableMap.of(
+                "normalizedSource", text,
+                "displaySource", text,
+                "translations", translations);
+    }
+
+    private static Map<String, Object> examples(final String text, final String translation) {
+        final Map<String, Object> example = new LinkedHashMap<>();
+        example.put("sourcePrefix", "");
+        example.put("sourceTerm", text);
+        example.put("sourceSuffix", "。");
+        example.put("targetPrefix", "");
+        example.put("targetTerm", translation);
+        example.put("targetSuffix", ".");
+        example.put("sourceSentence", text + "。");
+        example.put("targetSentence", translation + ".");
+        return ImmutableMap.of(
+                "normalizedSource", text,
+                "normalizedTarget", translation,
+                "examples", ImmutableList.of(example));
+    }
+
+    private static String language(final String text) {
+        return text.codePoints().anyMatch(cp -> Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN)
+                ? CHINESE
+                : ENGLISH;
+    }
+
+    private static String counterpart(final String text, final String to) {
+        final List<String> words = CHINESE.equals(to) ? CHINESE_WORDS : ENGLISH_WORDS;
+        return words.get(Math.floorMod(text.hashCode(), words.size()));
+    }
+
+    /**
+     * Like the real API, accepts body fields in any case: the clients send {@code text} for translations but
+     * {@code Text} for examples.
+     */
+    private static String field(final Map<String, String> item, final String name) {
+        for (final Map.Entry<String, String> entry : item.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue() == null ? "" : entry.getValue();
+            }
+        }
+        return "";
+    }
+
+    private static String first(final Map<String, List<String>> params, final String name) {
+        final List<String> values = params.get(name);
+        return values == null || values.isEmpty() ? "" : values.get(0);
+    }
+
+    private static Map<String, List<String>> queryParameters(final URI uri) {
+        final Map<String, List<String>> params = new HashMap<>();
+        final String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (final String pair : query.split("&")) {
+            final int eq = pair.indexOf('=');
+            final String name = eq < 0 ? pair : pair.substring(0, eq);
+            final String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.computeIfAbsent(decode(name), k -> new ArrayList<>()).add(decode(value));
+        }
+        return params;
+    }
+
+    private static String decode(final String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Distribution the delay before each response is drawn from.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        long nextMicros(ThreadLocalRandom random);
+
+        static Latency none() {
+            return random -> 0;
+        }
+
+        static Latency fixed(final long duration, final TimeUnit unit) {
+            final long micros = unit.toMicros(duration);
+            return random -> micros;
+        }
+
+        static Latency uniform(final long min, final long max, final TimeUnit unit) {
+            Preconditions.checkArgument(min <= max, "Min must not exceed max");
+            final long minMicros = unit.toMicros(min);
+            final long maxMicros = unit.toMicros(max);
+            return random -> minMicros == maxMicros ? minMicros : random.nextLong(minMicros, maxMicros + 1);
+        }
+
+        /**
+         * Long-tailed delays, the shape real service latencies usually take. A sigma of 0.5 puts p99 at about 3.2
+         * times the median, and 1.0 at about 10 times.
+         */
+        static Latency logNormal(final long median, final TimeUnit unit, final double sigma) {
+            Preconditions.checkArgument(sigma >= 0, "Sigma must not be negative");
+            final double medianMicros = unit.toMicros(median);
+            return random -> (long) (medianMicros * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    public static final class Builder {
+        private int port;
+        private int threads;
+        private Latency latency;
+        private double errorRate;
+        private int errorStatus;
+        private int retryAfterSeconds;
+        private final Map<String, byte[]> cannedResponses = new HashMap<>();
+
+        private Builder() {
+            threads = 4;
+            latency = Latency.none();
+            errorStatus = 429;
+            retryAfterSeconds = 1;
+        }
+
+        /**
+         * @param val port to listen on, or 0 for any free port
+         */
+        public Builder withPort(final int val) {
+            port = val;
+            return this;
+        }
+
+        public Builder withThreads(final int val) {
+            threads = val;
+            return this;
+        }
+
+        public Builder withLatency(final Latency val) {
+            latency = val;
+            return this;
+        }
+
+        /**
+         * @param rate fraction of requests, from 0 to 1, answered with {@code status} instead of a result
+         * @param status e.g. 429 or 503, which carry a {@code Retry-After} header, or 500
+         */
+        public Builder withErrors(final double rate, final int status) {
+            errorRate = rate;
+            errorStatus = status;
+            return this;
+        }
+
+        public Builder withRetryAfterSeconds(final int val) {
+            retryAfterSeconds = val;
+            return this;
+        }
+
+        /**
+         * Answers every successful request to the path with the given JSON instead of a generated response.
+         */
+        public Builder withCannedResponse(final String path, final String json) {
+            cannedResponses.put(path, json.getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        public StubTranslatorServer build() throws IOException {
+            Preconditions.checkArgument(port >= 0, "Port must not be negative");
+            Preconditions.checkArgument(threads > 0, "Threads must be positive");
+            Preconditions.checkArgument(errorRate >= 0 && errorRate <= 1, "Error rate must be between 0 and 1");
+            Preconditions.checkArgument(retryAfterSeconds >= 0, "Retry-After must not be negative");
+            requireNonNull(latency, "Null latency");
+
+            return new StubTranslatorServer(this);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.gmo.discord.hanyu.bot.microsoft;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.api.TranslatorApiException;
+import com.gmo.discord.hanyu.bot.api.entities.DictionaryLookupResponse;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationRequest;
+import com.gmo.discord.hanyu.bot.api.entities.TranslationResponse;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleRequest;
+import com.gmo.discord.hanyu.bot.api.entities.example.ExampleResponse;
+import com.google.common.collect.Iterables;
+
+public class StubTranslatorServerTest {
+    @Test
+    public void testGeneratedResponsesParse() throws Exception {
+        try (final StubTranslatorServer server = StubTranslatorServer.newBuilder()
+                     .withLatency(StubTranslatorServer.Latency.uniform(1, 5, TimeUnit.MILLISECONDS))
+                     .build();
+             final MicrosoftTranslatorTextApi api = client(server)) {
+            final List<TranslationResponse> translations = api.translate(TranslationRequest.newBuilder()
+                    .addText("hello there")
+                    .addDestinationLanguage("zh-Hans")
+                    .addDestinationLanguage("en")
+                    .build());
+            final TranslationResponse translation = Iterables.getOnlyElement(translations);
+            assertEquals(2, translation.getTranslations().size());
+            assertEquals("zh-Hans", translation.getTranslations().get(0).getDestinationLanguage());
+            assertEquals("hello there", translation.getTranslations().get(1).getText());
+
+            assertEquals("zh-Hans", api.detect(TranslationRequest.newBuilder().addText("学习").build()).getLanguage());
+
+            final DictionaryLookupResponse lookup = api.lookup(TranslationRequest.newBuilder()
+                    .addText("study")
+                    .withSourceLanguage("en")
+                    .addDestinationLanguage("zh-Hans")
+                    .build());
+            assertEquals(3, lookup.getTranslations().size());
+
+            final ExampleResponse examples = api.examples(ExampleRequest.newBuilder()
+                    .withSourceText("学习")
+                    .withDestinationTranslation("study")
+                    .withSourceLanguage("zh-Hans")
+                    .withDestinationLanguage("en")
+                    .build());
+            assertEquals("学习。", examples.getExamples().get(0).getSourceSentence());
+
+            assertEquals(4, server.getRequestCount());
+            assertEquals(1, server.getRequestCount(StubTranslatorServer.LOOKUP_PATH));
+        }
+    }
+
+    @Test
+    public void testCannedResponse() throws Exception {
+        try (final StubTranslatorServer server = StubTranslatorServer.newBuilder()
+                     .withCannedResponse(StubTranslatorServer.DETECT_PATH, "[{\"language\":\"fr\",\"score\":0.5}]")
+                     .build();
+             final MicrosoftTranslatorTextApi api = client(server)) {
+            assertEquals("fr", api.detect(TranslationRequest.newBuilder().addText("bonjour").build()).getLanguage());
+        }
+    }
+
+    @Test
+    public void testInjectedErrorsCarryRetryAfter() throws Exception {
+        try (final StubTranslatorServer server = StubTranslatorServer.newBuilder()
+                     .withErrors(1, 429)
+                     .withRetryAfterSeconds(3)
+                     .build();
+             final MicrosoftTranslatorTextApi api = client(server)) {
+            try {
+                api.detect(TranslationRequest.newBuilder().addText("hello").build());
+                fail("Expected injected error");
+            } catch (final TranslatorApiException e) {
+                assertEquals(429, e.getStatusCode());
+                assertEquals(TimeUnit.SECONDS.toMillis(3), e.getRetryAfterMillis().getAsLong());
+            }
+            assertEquals(1, server.getErrorCount());
+        }
+    }
+
+    private static MicrosoftTranslatorTextApi client(final StubTranslatorServer server) {
+        return MicrosoftTranslatorTextApi.newBuilder()
+                .withApiHost(server.getApiHost())
+                .withApiKeySupplier(() -> "key")
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.gmo.discord.hanyu.bot.pinyin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.gmo.discord.hanyu.bot.dictionary.CedictDictionary;
+
+public class PinyinEngineTest {
+    private static final CedictDictionary DICTIONARY;
+
+    static {
+        try {
+            DICTIONARY = CedictDictionary.fromResource();
+        } catch (final IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Test
+    public void testPolyphonesResolveByWord() {
+        final PinyinEngine engine = PinyinEngine.newBuilder().withDictionary(DICTIONARY).build();
+        assertEquals(Optional.of("wǒ qù yín háng le."), engine.transliterate("我去银行了。"));
+        assertEquals(Optional.of("xíng rén"), engine.transliterate("行人"));
+        assertEquals(Optional.of("tā zhǎng dà le, wǒ liǎo jiě"), engine.transliterate("他长大了，我了解"));
+        assertEquals(Optional.of("cháng chéng"), engine.transliterate("长城"));
+        assertEquals(Optional.of("nǐ hǎo Discord 123"), engine.transliterate("你好Discord 123"));
+        assertFalse(engine.transliterate("你好龘").isPresent());
+    }
+
+    @Test
+    public void testUnknownTextGoesToFallback() {
+        final Transliterator fallback = new Transliterator() {
+            @Override
+            public CompletableFuture<Map<String, String>> transliterate(final Collection<String> texts) {
+                return CompletableFuture.completedFuture(texts.stream().collect(Collectors.toMap(t -> t, t -> "remote")));
+            }
+        };
+        final PinyinEngine engine = PinyinEngine.newBuilder()
+                .withDictionary(DICTIONARY)
+                .withFallback(fallback)
+                .build();
+
+        final Map<String, String> pinyin = engine.transliterate(Arrays.asList("你好", "龘")).join();
+        assertEquals("nǐ hǎo", pinyin.get("你好"));
+        assertEquals("remote", pinyin.get("龘"));
+    }
+}
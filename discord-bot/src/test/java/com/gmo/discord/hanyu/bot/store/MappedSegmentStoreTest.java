@@ -0,0 +1,104 @@
+package com.gmo.discord.hanyu.bot.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MappedSegmentStoreTest {
+    @Test
+    public void testEntriesSurviveReopen() throws IOException {
+        final Path directory = Files.createTempDirectory("segments");
+        try (final MappedSegmentStore store = newStore(directory, Clock.systemUTC())) {
+            store.put("a", bytes("你好"));
+            store.put("b", bytes("hello"));
+            store.put("a", bytes("谢谢"));
+        }
+
+        try (final MappedSegmentStore store = newStore(directory, Clock.systemUTC())) {
+            assertEquals(2, store.size());
+            assertArrayEquals(bytes("谢谢"), store.get("a").get());
+            assertArrayEquals(bytes("hello"), store.get("b").get());
+        }
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        final Path directory = Files.createTempDirectory("segments");
+        try (final MappedSegmentStore store = newStore(directory, Clock.systemUTC())) {
+            store.put("a", bytes("first"));
+            store.put("b", bytes("second"));
+        }
+
+        // Corrupt the last byte of the second record's value
+        final Path segment = directory.resolve("segment-00000000.dat");
+        final int secondRecordEnd = 2 * (8 + 12 + 1) + "first".length() + "second".length();
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), secondRecordEnd - 1);
+        }
+
+        try (final MappedSegmentStore store = newStore(directory, Clock.systemUTC())) {
+            assertArrayEquals(bytes("first"), store.get("a").get());
+            assertFalse(store.get("b").isPresent());
+            store.put("c", bytes("third"));
+        }
+
+        try (final MappedSegmentStore store = newStore(directory, Clock.systemUTC())) {
+            assertEquals(2, store.size());
+            assertArrayEquals(bytes("third"), store.get("c").get());
+        }
+    }
+
+    @Test
+    public void testFootprintIsBounded() throws IOException {
+        final Path directory = Files.createTempDirectory("segments");
+        try (final MappedSegmentStore store = newStore(directory, Clock.systemUTC())) {
+            for (int i = 0; i < 1000; i++) {
+                store.put("key" + i, new byte[100]);
+            }
+            assertTrue(store.segmentCount() <= 3);
+            assertTrue(store.get("key999").isPresent());
+            assertFalse(store.get("key0").isPresent());
+        }
+    }
+
+    @Test
+    public void testExpiredEntriesAreDropped() throws IOException {
+        final Path directory = Files.createTempDirectory("segments");
+        final Instant start = Instant.now();
+        try (final MappedSegmentStore store = newStore(directory, Clock.fixed(start, ZoneOffset.UTC))) {
+            store.put("a", bytes("first"));
+        }
+        try (final MappedSegmentStore store = newStore(directory, Clock.fixed(start.plusSeconds(3601), ZoneOffset.UTC))) {
+            assertFalse(store.get("a").isPresent());
+        }
+    }
+
+    private static MappedSegmentStore newStore(final Path directory, final Clock clock) throws IOException {
+        return MappedSegmentStore.newBuilder()
+                .withDirectory(directory)
+                .withSegmentSize(4096)
+                .withMaxSegments(3)
+                .withExpireAfterWrite(1, TimeUnit.HOURS)
+                .withClock(clock)
+                .build();
+    }
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,6 +1,8 @@
 package com.gmo.discord.support.command;
 
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
 
 import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IGuild;
@@ -19,6 +21,7 @@ public final class CommandInfo {
     private final IMessage message;
     private final String command;
     private final String[] args;
+    private final Set<String> flags;
 
     private CommandInfo(final Builder builder) {
         user = builder.user;
@@ -27,6 +30,7 @@ public final class CommandInfo {
         message = builder.message;
         command = builder.command;
         args = builder.args;
+        flags = builder.flags;
     }
 
     public static Builder newBuilder() {
@@ -57,6 +61,13 @@ public final class CommandInfo {
         return args;
     }
 
+    /**
+     * @return true if the message carried the flag, see {@link CommandParser.Builder#withFlag}
+     */
+    public boolean hasFlag(final String flag) {
+        return flags.contains(flag);
+    }
+
     public Optional<String> getArg(final int index) {
         if (args.length > index) {
             return Optional.of(args[index]);
@@ -91,8 +102,10 @@ public final class CommandInfo {
         private IMessage message;
         private String command;
         private String[] args;
+        private Set<String> flags;
 
         private Builder() {
+            flags = Collections.emptySet();
         }
 
         public Builder withUser(final IUser user) {
@@ -125,6 +138,20 @@ public final class CommandInfo {
             return this;
         }
 
+        public Builder withFlags(final Set<String> flags) {
+            this.flags = flags;
+            return this;
+        }
+
+        /**
+         * Sets the command, arguments and flags.
+         */
+        public Builder withParsedCommand(final ParsedCommand parsedCommand) {
+            return withCommand(parsedCommand.getCommand())
+                    .withArgs(parsedCommand.getArgs())
+                    .withFlags(parsedCommand.getFlags());
+        }
+
         public CommandInfo build() {
             return new CommandInfo(this);
         }
@@ -0,0 +1,61 @@
+package com.gmo.discord.support.command;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gmo.discord.support.metrics.Counter;
+import com.gmo.discord.support.metrics.LatencyHistogram;
+import com.gmo.discord.support.metrics.MetricsRegistry;
+
+/**
+ * The metrics every bot keeps about its message handling: messages seen, time to parse them, time each
+ * {@link ICommand} takes and how often it fails, and time spent sending to Discord. Metrics for each command are
+ * labelled with the command's class name and created up front, so recording never touches the registry.
+ */
+public final class CommandMetrics {
+    private final Counter messages;
+    private final LatencyHistogram parseTime;
+    private final LatencyHistogram sendTime;
+    private final Map<ICommand, LatencyHistogram> executeTimes = new IdentityHashMap<>();
+    private final Map<ICommand, Counter> failures = new IdentityHashMap<>();
+
+    public CommandMetrics(final MetricsRegistry registry, final List<? extends ICommand> commands) {
+        messages = registry.counter("discord_messages_total", "Messages received from other users");
+        parseTime = registry.histogram("discord_command_parse_seconds", "Time to parse a message into a command");
+        sendTime = registry.histogram("discord_send_seconds", "Time to send or edit a message on Discord");
+        for (final ICommand command : commands) {
+            final String name = command.getClass().getSimpleName();
+            executeTimes.put(command, registry.histogram("discord_command_execute_seconds",
+                    "Time to execute a command, excluding sending the reply", "command", name));
+            failures.put(command, registry.counter("discord_command_failures_total",
+                    "Commands which failed with an exception", "command", name));
+        }
+    }
+
+    public Counter getMessages() {
+        return messages;
+    }
+
+    public LatencyHistogram getParseTime() {
+        return parseTime;
+    }
+
+    public LatencyHistogram getSendTime() {
+        return sendTime;
+    }
+
+    /**
+     * @param command one of the commands given at construction
+     */
+    public LatencyHistogram getExecuteTime(final ICommand command) {
+        return executeTimes.get(command);
+    }
+
+    /**
+     * @param command one of the commands given at construction
+     */
+    public Counter getFailures(final ICommand command) {
+        return failures.get(command);
+    }
+}
@@ -0,0 +1,137 @@
+package com.gmo.discord.support.command;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Splits a message into a {@link ParsedCommand} in a single pass over its characters. The prefix is matched
+ * literally, tokens are separated by any run of whitespace, and tokens matching a registered flag alias are pulled
+ * out of the arguments. No regular expressions are involved, and the only allocations are the tokens themselves.
+ */
+public final class CommandParser {
+    private static final int INITIAL_TOKENS = 16;
+
+    private final String prefix;
+    private final Map<String, String> flagAliases;
+
+    private CommandParser(final Builder builder) {
+        prefix = builder.prefix;
+        flagAliases = ImmutableMap.copyOf(builder.flagAliases);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the parsed command, or null if the message doesn't start with the prefix or has nothing after it
+     */
+    public ParsedCommand parse(final String content) {
+        final int length = content.length();
+        int position = skipWhitespace(content, 0);
+        if (!content.startsWith(prefix, position)) {
+            return null;
+        }
+        position = skipWhitespace(content, position + prefix.length());
+        if (position == length) {
+            return null;
+        }
+
+        // Token boundaries as start/end pairs; the first token is the command
+        int[] bounds = new int[INITIAL_TOKENS * 2];
+        int tokens = 0;
+        while (position < length) {
+            final int start = position;
+            while (position < length && !Character.isWhitespace(content.charAt(position))) {
+                position++;
+            }
+            if (tokens * 2 == bounds.length) {
+                final int[] grown = new int[bounds.length * 2];
+                System.arraycopy(bounds, 0, grown, 0, bounds.length);
+                bounds = grown;
+            }
+            bounds[tokens * 2] = start;
+            bounds[tokens * 2 + 1] = position;
+            tokens++;
+            position = skipWhitespace(content, position);
+        }
+
+        final String command = content.substring(bounds[0], bounds[1]);
+        String[] args = new String[tokens - 1];
+        int argCount = 0;
+        Set<String> flags = Collections.emptySet();
+        for (int i = 1; i < tokens; i++) {
+            final String token = content.substring(bounds[i * 2], bounds[i * 2 + 1]);
+            final String flag = flagAliases.isEmpty() ? null : flagAliases.get(token);
+            if (flag == null) {
+                args[argCount++] = token;
+            } else {
+                if (flags.isEmpty()) {
+                    flags = new TreeSet<>();
+                }
+                flags.add(flag);
+            }
+        }
+        if (argCount < args.length) {
+            final String[] trimmed = new String[argCount];
+            System.arraycopy(args, 0, trimmed, 0, argCount);
+            args = trimmed;
+        }
+        return new ParsedCommand(command, args, flags.isEmpty() ? flags : Collections.unmodifiableSet(flags));
+    }
+
+    private static int skipWhitespace(final String content, final int from) {
+        int position = from;
+        while (position < content.length() && Character.isWhitespace(content.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    public static final class Builder {
+        private String prefix;
+        private final Map<String, String> flagAliases;
+
+        private Builder() {
+            prefix = "";
+            flagAliases = new HashMap<>();
+        }
+
+        /**
+         * @param val literal text every command starts with, may be empty
+         */
+        public Builder withPrefix(final String val) {
+            prefix = val;
+            return this;
+        }
+
+        /**
+         * @param name canonical name reported in {@link ParsedCommand#getFlags()}
+         * @param aliases tokens which set the flag and are removed from the arguments
+         */
+        public Builder withFlag(final String name, final Set<String> aliases) {
+            requireNonNull(name, "Null flag name");
+            for (final String alias : ImmutableSet.copyOf(aliases)) {
+                final String existing = flagAliases.putIfAbsent(alias, name);
+                Preconditions.checkArgument(existing == null || existing.equals(name),
+                        "Alias %s already used by flag %s", alias, existing);
+            }
+            return this;
+        }
+
+        public CommandParser build() {
+            requireNonNull(prefix, "Null prefix");
+
+            return new CommandParser(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gmo.discord.support.command;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Finds the {@link ICommand} for a message with a single hash lookup on the command name, using the aliases each
+ * command declares through {@link ICommand#getAliases()}. Aliases are matched case-insensitively, and the command's
+ * {@link ICommand#canHandle} still has the final say. Commands that declare no aliases are tried in order afterwards.
+ */
+public final class CommandRouter {
+    private final Map<String, ICommand> byAlias;
+    private final List<ICommand> unaliased;
+
+    private CommandRouter(final Map<String, ICommand> byAlias, final List<ICommand> unaliased) {
+        this.byAlias = byAlias;
+        this.unaliased = unaliased;
+    }
+
+    public static CommandRouter of(final List<? extends ICommand> commands) {
+        final Map<String, ICommand> byAlias = new HashMap<>();
+        final List<ICommand> unaliased = new ArrayList<>();
+        for (final ICommand command : commands) {
+            requireNonNull(command, "Null command");
+            if (command.getAliases().isEmpty()) {
+                unaliased.add(command);
+            }
+            for (final String alias : command.getAliases()) {
+                final ICommand existing = byAlias.put(alias.toLowerCase(Locale.ROOT), command);
+                Preconditions.checkArgument(existing == null, "Alias %s is declared by more than one command", alias);
+            }
+        }
+        return new CommandRouter(ImmutableMap.copyOf(byAlias), ImmutableList.copyOf(unaliased));
+    }
+
+    public Optional<ICommand> route(final CommandInfo commandInfo) {
+        final ICommand command = byAlias.get(commandInfo.getCommand().toLowerCase(Locale.ROOT));
+        if (command != null && command.canHandle(commandInfo)) {
+            return Optional.of(command);
+        }
+        for (final ICommand candidate : unaliased) {
+            if (candidate.canHandle(commandInfo)) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -1,5 +1,9 @@
 package com.gmo.discord.support.command;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 import com.gmo.discord.support.message.DiscordMessage;
 
 /**
@@ -9,4 +13,26 @@ public interface ICommand {
     boolean canHandle(final CommandInfo commandInfo);
     Iterable<DiscordMessage> execute(final CommandInfo commandInfo);
     DiscordMessage help();
+
+    /**
+     * The command names this command answers to, which lets {@link CommandRouter} find it without asking every
+     * command. Commands which decide some other way may rely on this default and are asked in turn.
+     */
+    default Set<String> getAliases() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Executes the command without blocking on remote calls. Commands which only do local work may rely on this
+     * default, which runs {@link #execute(CommandInfo)} on the calling thread.
+     */
+    default CompletableFuture<Iterable<DiscordMessage>> executeAsync(final CommandInfo commandInfo) {
+        final CompletableFuture<Iterable<DiscordMessage>> future = new CompletableFuture<>();
+        try {
+            future.complete(execute(commandInfo));
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
 }
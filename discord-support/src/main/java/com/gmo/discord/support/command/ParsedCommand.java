@@ -0,0 +1,50 @@
+package com.gmo.discord.support.command;
+
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A message split into its command, arguments and flags by {@link CommandParser}.
+ */
+public final class ParsedCommand {
+    private final String command;
+    private final String[] args;
+    private final Set<String> flags;
+
+    ParsedCommand(final String command, final String[] args, final Set<String> flags) {
+        this.command = command;
+        this.args = args;
+        this.flags = flags;
+    }
+
+    /**
+     * @return the first token after the prefix
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return the remaining tokens, excluding flags
+     */
+    public String[] getArgs() {
+        return args;
+    }
+
+    /**
+     * @return the canonical names of the flags present in the message
+     */
+    public Set<String> getFlags() {
+        return flags;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("command", command)
+                .add("args", args)
+                .add("flags", flags)
+                .toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.gmo.discord.support.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count backed by a {@link LongAdder}, so concurrent increments don't contend.
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(final long value) {
+        count.add(value);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,211 @@
+package com.gmo.discord.support.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Named counters, gauges and latency histograms, written out in the Prometheus text format. Metrics are looked up by
+ * name and label values; the lookup is a map read once the metric exists, but callers on hot paths should keep the
+ * returned {@link Counter} or {@link LatencyHistogram} rather than looking it up on every use.
+ * <p>
+ * Labels are given as alternating names and values, e.g. {@code counter("x_total", "...", "command", "translate")}.
+ * Histograms are written as summaries in seconds, with the quantiles in {@link #QUANTILES}.
+ */
+public final class MetricsRegistry {
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(final String name, final String help, final String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).children.computeIfAbsent(labels(labels), key -> new Counter());
+    }
+
+    public LatencyHistogram histogram(final String name, final String help, final String... labels) {
+        return (LatencyHistogram) family(name, help, Type.SUMMARY).children
+                .computeIfAbsent(labels(labels), key -> new LatencyHistogram());
+    }
+
+    /**
+     * Exports a histogram owned by some other component.
+     */
+    public void register(final String name, final String help, final LatencyHistogram histogram,
+                         final String... labels) {
+        requireNonNull(histogram, "Null histogram");
+        put(family(name, help, Type.SUMMARY), labels, histogram);
+    }
+
+    /**
+     * Exports a count kept by some other component, read each time the metrics are written.
+     */
+    public void counter(final String name, final String help, final DoubleSupplier value, final String... labels) {
+        requireNonNull(value, "Null value");
+        put(family(name, help, Type.COUNTER), labels, value);
+    }
+
+    /**
+     * Exports a value which may go up and down, read each time the metrics are written.
+     */
+    public void gauge(final String name, final String help, final DoubleSupplier value, final String... labels) {
+        requireNonNull(value, "Null value");
+        put(family(name, help, Type.GAUGE), labels, value);
+    }
+
+    public void writeTo(final Writer out) throws IOException {
+        for (final Map.Entry<String, Family> entry : families.entrySet()) {
+            final String name = entry.getKey();
+            final Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type.prometheusName).append('\n');
+            for (final Map.Entry<String, Object> child : family.children.entrySet()) {
+                final String labels = child.getKey();
+                final Object metric = child.getValue();
+                if (metric instanceof LatencyHistogram) {
+                    writeSummary(out, name, labels, (LatencyHistogram) metric);
+                } else if (metric instanceof Counter) {
+                    writeSample(out, name, labels, ((Counter) metric).get());
+                } else {
+                    writeSample(out, name, labels, ((DoubleSupplier) metric).getAsDouble());
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringWriter out = new StringWriter();
+        try {
+            writeTo(out);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private Family family(final String name, final String help, final Type type) {
+        Preconditions.checkArgument(isValidName(name), "Invalid metric name %s", name);
+        final Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        Preconditions.checkArgument(family.type == type, "Metric %s is already a %s", name, family.type);
+        return family;
+    }
+
+    private static void put(final Family family, final String[] labels, final Object metric) {
+        final Object existing = family.children.putIfAbsent(labels(labels), metric);
+        Preconditions.checkArgument(existing == null, "Metric already registered with labels %s", (Object) labels);
+    }
+
+    private static void writeSummary(final Writer out, final String name, final String labels,
+                                     final LatencyHistogram histogram) throws IOException {
+        for (final double quantile : QUANTILES) {
+            final String quantileLabel = "quantile=\"" + quantile + "\"";
+            final String withQuantile = labels.isEmpty()
+                    ? "{" + quantileLabel + "}"
+                    : labels.substring(0, labels.length() - 1) + "," + quantileLabel + "}";
+            writeSample(out, name, withQuantile, histogram.getValueAtQuantile(quantile) / NANOS_PER_SECOND);
+        }
+        writeSample(out, name + "_sum", labels, histogram.getSumNanos() / NANOS_PER_SECOND);
+        writeSample(out, name + "_count", labels, histogram.getCount());
+    }
+
+    private static void writeSample(final Writer out, final String name, final String labels, final double value)
+            throws IOException {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append(Long.toString((long) value));
+        } else {
+            out.append(Double.toString(value));
+        }
+        out.append('\n');
+    }
+
+    private static String labels(final String[] labels) {
+        Preconditions.checkArgument(labels.length % 2 == 0, "Labels must be name and value pairs");
+        if (labels.length == 0) {
+            return "";
+        }
+        final StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            Preconditions.checkArgument(isValidName(labels[i]), "Invalid label name %s", labels[i]);
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"");
+            escapeLabelValue(builder, requireNonNull(labels[i + 1], "Null label value"));
+            builder.append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static void escapeLabelValue(final StringBuilder builder, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+    }
+
+    private static String escapeHelp(final String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static boolean isValidName(final String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            final boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                    || (i > 0 && c >= '0' && c <= '9');
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String prometheusName;
+
+        Type(final String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    private static final class Family {
+        private final String help;
+        private final Type type;
+        private final ConcurrentMap<String, Object> children = new ConcurrentSkipListMap<>();
+
+        private Family(final String help, final Type type) {
+            this.help = requireNonNull(help, "Null help");
+            this.type = type;
+        }
+    }
+}
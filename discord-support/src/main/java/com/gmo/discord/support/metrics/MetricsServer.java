@@ -0,0 +1,86 @@
+package com.gmo.discord.support.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a {@link MetricsRegistry} in the Prometheus text format at {@code /metrics}, using the JDK's built-in HTTP
+ * server on a single daemon thread.
+ */
+public final class MetricsServer implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServer.class);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private MetricsServer(final HttpServer server, final ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static MetricsServer start(final MetricsRegistry registry, final InetSocketAddress address)
+            throws IOException {
+        requireNonNull(registry, "Null registry");
+        requireNonNull(address, "Null address");
+
+        final HttpServer server = HttpServer.create(address, 0);
+        final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("metrics-server-%d")
+                .setDaemon(true)
+                .build());
+        server.createContext("/metrics", exchange -> scrape(registry, exchange));
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Serving metrics on {}", server.getAddress());
+        return new MetricsServer(server, executor);
+    }
+
+    /**
+     * @return the bound address, useful when started on port 0
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static void scrape(final MetricsRegistry registry, final HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final byte[] body = registry.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.gmo.discord.support.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * How long a bot took to become useful after a deploy: the warm-up, the time from JVM start until Discord reported the
+ * bot ready, and the latency of the first command it answered. Each is logged once and exported as
+ * {@code discord_startup_seconds}, labelled by phase; phases which haven't happened yet read as NaN.
+ */
+public final class StartupMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupMetrics.class);
+    private static final String METRIC = "discord_startup_seconds";
+    private static final String HELP = "Time taken by each startup phase";
+
+    private final long jvmStartMillis;
+    private final AtomicBoolean ready = new AtomicBoolean();
+    private final AtomicBoolean firstCommand = new AtomicBoolean();
+    private volatile double warmupSeconds = Double.NaN;
+    private volatile double readySeconds = Double.NaN;
+    private volatile double firstCommandSeconds = Double.NaN;
+
+    public StartupMetrics(final MetricsRegistry registry) {
+        jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        registry.gauge(METRIC, HELP, () -> warmupSeconds, "phase", "warmup");
+        registry.gauge(METRIC, HELP, () -> readySeconds, "phase", "ready");
+        registry.gauge(METRIC, HELP, () -> firstCommandSeconds, "phase", "first_command");
+    }
+
+    /**
+     * Runs the warm-up and records how long it took. A failing warm-up is logged and otherwise ignored, since the bot
+     * works without it, only more slowly at first.
+     */
+    public void warmUp(final Runnable warmup) {
+        final long start = System.nanoTime();
+        try {
+            warmup.run();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Warm-up failed, continuing without it", e);
+        }
+        final long elapsed = System.nanoTime() - start;
+        warmupSeconds = elapsed / 1e9;
+        LOGGER.info("Warm-up took {} ms, {} ms after JVM start", TimeUnit.NANOSECONDS.toMillis(elapsed), sinceJvmStart());
+    }
+
+    /**
+     * Records the first ready event; those after a reconnect are ignored.
+     */
+    public void onReady() {
+        if (ready.compareAndSet(false, true)) {
+            final long millis = sinceJvmStart();
+            readySeconds = millis / 1e3;
+            LOGGER.info("Ready {} ms after JVM start", millis);
+        }
+    }
+
+    /**
+     * Records the latency of the first command answered; later ones are ignored.
+     *
+     * @param nanos from receiving the message until the reply was sent
+     */
+    public void onCommand(final long nanos) {
+        if (firstCommand.compareAndSet(false, true)) {
+            firstCommandSeconds = nanos / 1e9;
+            LOGGER.info("First command answered in {} ms, {} ms after JVM start",
+                    TimeUnit.NANOSECONDS.toMillis(nanos), sinceJvmStart());
+        }
+    }
+
+    private long sinceJvmStart() {
+        return System.currentTimeMillis() - jvmStartMillis;
+    }
+}
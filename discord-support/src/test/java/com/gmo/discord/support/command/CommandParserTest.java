@@ -0,0 +1,68 @@
+package com.gmo.discord.support.command;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class CommandParserTest {
+    private final CommandParser parser = CommandParser.newBuilder()
+            .withPrefix("!")
+            .withFlag("no-pinyin", ImmutableSet.of("pl", "np"))
+            .build();
+
+    @Test
+    public void testSplitsOnAnyWhitespace() {
+        final ParsedCommand parsed = parser.parse("  !translate \t 你好\n  world  ");
+
+        assertEquals("translate", parsed.getCommand());
+        assertArrayEquals(new String[] {"你好", "world"}, parsed.getArgs());
+        assertEquals(Collections.emptySet(), parsed.getFlags());
+    }
+
+    @Test
+    public void testRemovesFlagsFromArgs() {
+        final ParsedCommand parsed = parser.parse("!t pl hello np there");
+
+        assertEquals("t", parsed.getCommand());
+        assertArrayEquals(new String[] {"hello", "there"}, parsed.getArgs());
+        assertEquals(Collections.singleton("no-pinyin"), parsed.getFlags());
+    }
+
+    @Test
+    public void testAllowsSpaceAfterPrefix() {
+        final ParsedCommand parsed = parser.parse("! lookup");
+
+        assertEquals("lookup", parsed.getCommand());
+        assertArrayEquals(new String[0], parsed.getArgs());
+    }
+
+    @Test
+    public void testIgnoresMessagesWithoutCommand() {
+        assertNull(parser.parse("translate hello"));
+        assertNull(parser.parse("!   "));
+        assertNull(parser.parse(""));
+    }
+
+    @Test
+    public void testMatchesMultiCharacterPrefix() {
+        final CommandParser longPrefix = CommandParser.newBuilder()
+                .withPrefix("hy!")
+                .build();
+
+        assertEquals("t", longPrefix.parse("hy!t x").getCommand());
+        assertNull(longPrefix.parse("!t x"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsAliasSharedByTwoFlags() {
+        CommandParser.newBuilder()
+                .withFlag("a", ImmutableSet.of("x"))
+                .withFlag("b", ImmutableSet.of("x"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.gmo.discord.support.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.gmo.discord.support.message.DiscordMessage;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class CommandRouterTest {
+    private final StubCommand translate = new StubCommand(ImmutableSet.of("translate", "t"));
+    private final StubCommand lookup = new StubCommand(ImmutableSet.of("lookup", "l"));
+    private final StubCommand fallback = new StubCommand(Collections.emptySet()) {
+        @Override
+        public boolean canHandle(final CommandInfo commandInfo) {
+            return commandInfo.getCommand().startsWith("guess");
+        }
+    };
+    private final CommandRouter router = CommandRouter.of(ImmutableList.of(translate, lookup, fallback));
+
+    @Test
+    public void testRoutesByAlias() {
+        assertEquals(Optional.of(translate), router.route(info("t")));
+        assertEquals(Optional.of(lookup), router.route(info("lookup")));
+    }
+
+    @Test
+    public void testAskedCommandHasFinalSay() {
+        // The alias lookup ignores case, the command itself does not
+        assertFalse(router.route(info("T")).isPresent());
+    }
+
+    @Test
+    public void testFallsBackToUnaliasedCommands() {
+        assertEquals(Optional.of(fallback), router.route(info("guess")));
+        assertFalse(router.route(info("nope")).isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDuplicateAliases() {
+        CommandRouter.of(ImmutableList.of(translate, new StubCommand(ImmutableSet.of("T"))));
+    }
+
+    private static CommandInfo info(final String command) {
+        return CommandInfo.newBuilder()
+                .withCommand(command)
+                .withArgs(new String[0])
+                .build();
+    }
+
+    private static class StubCommand implements ICommand {
+        private final Set<String> aliases;
+
+        private StubCommand(final Set<String> aliases) {
+            this.aliases = aliases;
+        }
+
+        @Override
+        public Set<String> getAliases() {
+            return aliases;
+        }
+
+        @Override
+        public boolean canHandle(final CommandInfo commandInfo) {
+            return aliases.contains(commandInfo.getCommand());
+        }
+
+        @Override
+        public Iterable<DiscordMessage> execute(final CommandInfo commandInfo) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public DiscordMessage help() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.gmo.discord.support.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class MetricsRegistryTest {
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void testWritesCountersAndGauges() {
+        registry.counter("commands_total", "Commands run", "command", "translate").add(3);
+        registry.counter("commands_total", "Commands run", "command", "lookup").increment();
+        registry.gauge("queue_depth", "Waiting \"commands\"", () -> 2.5);
+
+        assertEquals("# HELP commands_total Commands run\n"
+                + "# TYPE commands_total counter\n"
+                + "commands_total{command=\"lookup\"} 1\n"
+                + "commands_total{command=\"translate\"} 3\n"
+                + "# HELP queue_depth Waiting \"commands\"\n"
+                + "# TYPE queue_depth gauge\n"
+                + "queue_depth 2.5\n", registry.toString());
+    }
+
+    @Test
+    public void testReturnsSameMetricForSameLabels() {
+        assertSame(registry.counter("a_total", "A", "x", "1"), registry.counter("a_total", "A", "x", "1"));
+        assertSame(registry.histogram("b_seconds", "B"), registry.histogram("b_seconds", "B"));
+    }
+
+    @Test
+    public void testWritesHistogramsAsSummariesInSeconds() {
+        final LatencyHistogram histogram = registry.histogram("call_seconds", "Calls", "method", "say \"hi\"\n");
+        histogram.record(2, TimeUnit.SECONDS);
+
+        final String text = registry.toString();
+        assertTrue(text, text.contains("# TYPE call_seconds summary\n"));
+        assertTrue(text, text.contains("call_seconds{method=\"say \\\"hi\\\"\\n\",quantile=\"0.5\"} 2."));
+        assertTrue(text, text.contains("call_seconds_sum{method=\"say \\\"hi\\\"\\n\"} 2\n"));
+        assertTrue(text, text.contains("call_seconds_count{method=\"say \\\"hi\\\"\\n\"} 1\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTypeMismatch() {
+        registry.counter("x_total", "X");
+        registry.histogram("x_total", "X");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidName() {
+        registry.counter("bad-name", "X");
+    }
+
+    @Test
+    public void testServesMetrics() throws IOException {
+        registry.counter("scrapes_total", "Scrapes").increment();
+        try (final MetricsServer server = MetricsServer.start(registry,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            final URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/metrics");
+            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            try (final InputStream in = connection.getInputStream()) {
+                assertEquals(200, connection.getResponseCode());
+                assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+                assertEquals(registry.toString(), new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+            }
+        }
+    }
+}